@@ -0,0 +1,71 @@
+package com.phuc.cart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded in-process cache of shopId to owner email, used by the own-product check on
+ * cart writes. Shops without an owner are cached as empty for a shorter TTL so an unknown
+ * shop is not looked up on every write. Ownership changes can be pushed through
+ * {@link #invalidate(String)}.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShopOwnerCache {
+
+    Cache<String, Optional<String>> owners;
+    Counter negativeHits;
+
+    public ShopOwnerCache(MeterRegistry meterRegistry,
+                          @Value("${cart.shop-owners.maximum-size:10000}") long maximumSize,
+                          @Value("${cart.shop-owners.ttl:10m}") Duration ttl,
+                          @Value("${cart.shop-owners.negative-ttl:1m}") Duration negativeTtl) {
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((String shopId, Optional<String> owner) -> owner.isPresent() ? ttl : negativeTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, owners, "cart.shop-owners");
+        this.negativeHits = Counter.builder("cart.shop-owners.negative.hits").register(meterRegistry);
+    }
+
+    /** Returns the cached entries among {@code shopIds}; an empty value means "known to have no owner". */
+    public Map<String, Optional<String>> getAllPresent(Collection<String> shopIds) {
+        Objects.requireNonNull(shopIds, "shopIds must not be null");
+        Map<String, Optional<String>> cached = owners.getAllPresent(shopIds);
+        negativeHits.increment(cached.values().stream().filter(Optional::isEmpty).count());
+        return cached;
+    }
+
+    public void put(String shopId, String ownerEmail) {
+        Objects.requireNonNull(shopId, "shopId must not be null");
+        owners.put(shopId, Optional.ofNullable(ownerEmail).filter(owner -> !owner.isBlank()));
+    }
+
+    public void invalidate(String shopId) {
+        owners.invalidate(Objects.requireNonNull(shopId, "shopId must not be null"));
+        log.info("Invalidated cached owner of shop {}", shopId);
+    }
+
+    public void invalidateAll() {
+        owners.invalidateAll();
+        log.info("Invalidated all cached shop owners");
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.phuc.cart.controller;
 
 import com.phuc.cart.dto.request.CartCreationRequest;
+import com.phuc.cart.dto.request.CartItemCreationRequest;
+import com.phuc.cart.dto.request.CartItemQuantityRequest;
 import com.phuc.cart.dto.response.CartResponse;
 import com.phuc.cart.httpclient.response.OrderResponse;
 import com.phuc.cart.service.CartService;
@@ -18,11 +20,14 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CartController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     CartService cartService;
 
     @PostMapping("/create")
-    public ResponseEntity<CartResponse> createCart(@Valid @RequestBody CartCreationRequest request) {
-        return ResponseEntity.ok(cartService.createCart(request));
+    public ResponseEntity<CartResponse> createCart(@Valid @RequestBody CartCreationRequest request,
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.createCart(request, idempotencyKey));
     }
 
     @GetMapping("/{id}")
@@ -38,8 +43,9 @@ public class CartController {
 
     @PutMapping("/{id}")
     public ResponseEntity<CartResponse> updateCart(@PathVariable Long id,
-                                                   @Valid @RequestBody CartCreationRequest request) {
-        return ResponseEntity.ok(cartService.updateCart(id, request));
+                                                   @Valid @RequestBody CartCreationRequest request,
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.updateCart(id, request, idempotencyKey));
     }
 
     @GetMapping("/")
@@ -81,7 +87,29 @@ public class CartController {
     @PostMapping("/{cartId}/apply-promo")
     public ResponseEntity<CartResponse> applyPromoCode(
             @PathVariable Long cartId,
-            @RequestParam("promoCode") String promoCode) {
-        return ResponseEntity.ok(cartService.applyPromoCode(cartId, promoCode));
+            @RequestParam("promoCode") String promoCode,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.applyPromoCode(cartId, promoCode, idempotencyKey));
+    }
+
+    @PostMapping("/{cartId}/items")
+    public ResponseEntity<CartResponse> addItem(@PathVariable Long cartId,
+                                                @Valid @RequestBody CartItemCreationRequest request,
+                                                @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.addItem(cartId, request, idempotencyKey));
+    }
+
+    @PatchMapping("/{cartId}/items/{variantId}")
+    public ResponseEntity<CartResponse> updateItemQuantity(@PathVariable Long cartId,
+                                                           @PathVariable String variantId,
+                                                           @Valid @RequestBody CartItemQuantityRequest request,
+                                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.updateItemQuantity(cartId, variantId, request, idempotencyKey));
+    }
+
+    @DeleteMapping("/{cartId}/items/{variantId}")
+    public ResponseEntity<CartResponse> removeItem(@PathVariable Long cartId, @PathVariable String variantId,
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(cartService.removeItem(cartId, variantId, idempotencyKey));
     }
 }
@@ -0,0 +1,32 @@
+package com.phuc.cart.controller;
+
+import com.phuc.cart.cache.ShopOwnerCache;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/cache/shop-owners")
+@PreAuthorize("hasRole('ADMIN')")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShopOwnerCacheController {
+
+    ShopOwnerCache shopOwnerCache;
+
+    @DeleteMapping("/{shopId}")
+    public ResponseEntity<Void> invalidate(@PathVariable String shopId) {
+        shopOwnerCache.invalidate(shopId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAll() {
+        shopOwnerCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+}
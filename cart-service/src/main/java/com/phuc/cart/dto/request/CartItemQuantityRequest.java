@@ -0,0 +1,15 @@
+package com.phuc.cart.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CartItemQuantityRequest {
+    @NotNull(message = "QUANTITY_ID IS REQUIRED")
+    Integer quantity;
+}
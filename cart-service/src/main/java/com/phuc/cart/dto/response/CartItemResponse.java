@@ -2,6 +2,8 @@ package com.phuc.cart.dto.response;
 
 import lombok.*;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -10,4 +12,5 @@ public class CartItemResponse {
     private String productId;
     private String variantId;
     private Integer quantity;
+    private BigDecimal unitPrice;
 }
@@ -43,4 +43,14 @@ public class Cart {
 
     @UpdateTimestamp
     LocalDateTime updatedAt;
+
+    /** The cart the user is shopping with; at most one per email (see CartSchemaMigration). */
+    @Column(columnDefinition = "boolean default true not null")
+    @Builder.Default
+    Boolean active = true;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    @Builder.Default
+    Long version = 0L;
 }
\ No newline at end of file
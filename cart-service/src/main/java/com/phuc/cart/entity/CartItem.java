@@ -1,9 +1,12 @@
 package com.phuc.cart.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,4 +17,8 @@ public class CartItem {
     String productId;
     String variantId;
     Integer quantity;
+
+    /** Price per unit when the line was last quoted; lets quantity changes skip a product lookup. */
+    @Column(name = "unit_price", precision = 12, scale = 2)
+    BigDecimal unitPrice;
 }
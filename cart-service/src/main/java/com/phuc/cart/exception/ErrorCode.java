@@ -58,6 +58,9 @@ public enum ErrorCode {
     NO_ELIGIBLE_PRODUCTS(2030, "There are no eligible products for the promotion. Please verify the products in your cart.", HttpStatus.BAD_REQUEST),
     PROMOTION_ORDER_VALUE_TOO_LOW(2031, "The order value is too low. Please ensure the order meets the minimum value required for the promotion.", HttpStatus.BAD_REQUEST),
     PROMOTION_SERVICE_UNAVAILABLE(2032, "Promotion service is currently unavailable. Please try again later.", HttpStatus.SERVICE_UNAVAILABLE),
+    CART_ITEM_NOT_FOUND(2033, "The item could not be found in the cart.", HttpStatus.NOT_FOUND),
+    CART_MODIFIED(2034, "The cart was changed by another request. Please reload it and try again.", HttpStatus.CONFLICT),
+    INVALID_IDEMPOTENCY_KEY(2035, "Idempotency-Key must be 1 to 64 letters, digits or . _ : - characters.", HttpStatus.BAD_REQUEST),
     ;
 
     int code;
@@ -3,10 +3,18 @@ package com.phuc.cart.httpclient;
 import com.phuc.cart.configuration.AuthenticationRequestInterceptor;
 import com.phuc.cart.dto.ApiResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import com.phuc.cart.httpclient.request.ProductLookupRequest;
 import com.phuc.cart.httpclient.response.ExistsResponse;
+import com.phuc.cart.httpclient.response.ProductLookupResponse;
+
+import java.util.List;
 
 @FeignClient(name = "product-service", url = "${product.service.url}", configuration = AuthenticationRequestInterceptor.class)
 public interface ProductClient {
@@ -23,4 +31,8 @@ public interface ProductClient {
     @GetMapping(value = "/{productId}/shopId", produces = MediaType.APPLICATION_JSON_VALUE)
     ApiResponse<String> getShopIdByProductId(@PathVariable("productId") String productId);
 
+    @PostMapping(value = "/products/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<List<ProductLookupResponse>> lookupProducts(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                            @RequestBody ProductLookupRequest request);
+
 }
@@ -1,9 +1,11 @@
 package com.phuc.cart.httpclient;
 
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import com.phuc.cart.configuration.AuthenticationRequestInterceptor;
 import com.phuc.cart.dto.ApiResponse;
 
@@ -11,6 +13,7 @@ import com.phuc.cart.dto.ApiResponse;
 public interface ShopClient {
 
       @GetMapping(value = "/{shopId}/owner", produces = MediaType.APPLICATION_JSON_VALUE)
-      ApiResponse<String> getOwnerUsernameByShopId(@PathVariable("shopId") String shopId);
+      ApiResponse<String> getOwnerUsernameByShopId(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                   @PathVariable("shopId") String shopId);
 
 }
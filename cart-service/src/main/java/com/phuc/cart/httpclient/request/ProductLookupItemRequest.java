@@ -0,0 +1,16 @@
+package com.phuc.cart.httpclient.request;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductLookupItemRequest {
+
+      String productId;
+      String variantId;
+
+}
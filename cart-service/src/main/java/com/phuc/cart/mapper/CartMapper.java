@@ -20,6 +20,7 @@ public interface CartMapper {
 
     List<CartItem> toCartItemList(List<CartItemCreationRequest> requests);
 
+    @Mapping(target = "unitPrice", ignore = true)
     CartItem toCartItem(CartItemCreationRequest request);
 
     List<CartItemResponse> toCartItemResponseList(List<CartItem> items);
@@ -0,0 +1,81 @@
+package com.phuc.cart.quote;
+
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.exception.AppException;
+import com.phuc.cart.exception.ErrorCode;
+import com.phuc.cart.httpclient.response.ProductLookupResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Product data resolved for one set of cart lines: a lookup per distinct
+ * (productId, variantId) pair and, when requested, the owner of each shop involved.
+ */
+@Slf4j
+public record CartQuote(Map<String, ProductLookupResponse> lines, Map<String, String> shopOwners) {
+
+    public static String key(String productId, String variantId) {
+        return productId + ":" + variantId;
+    }
+
+    public ProductLookupResponse line(CartItem item) {
+        ProductLookupResponse line = lines.get(key(item.getProductId(), item.getVariantId()));
+        if (line == null || !line.isExists()) {
+            log.error("Product not found for productId: {}, variantId: {}", item.getProductId(), item.getVariantId());
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        return line;
+    }
+
+    public BigDecimal price(CartItem item) {
+        Double price = line(item).getPrice();
+        if (price == null) {
+            log.error("Product price not found for productId: {}, variantId: {}", item.getProductId(), item.getVariantId());
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        return BigDecimal.valueOf(price);
+    }
+
+    public BigDecimal subtotal(Collection<CartItem> items) {
+        return items.stream()
+                .map(item -> BigDecimal.valueOf(item.getQuantity()).multiply(price(item)))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /** Stamps each item with its current unit price and returns the subtotal. */
+    public BigDecimal reprice(Collection<CartItem> items) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            item.setUnitPrice(price(item));
+            subtotal = subtotal.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return subtotal;
+    }
+
+    public void requireAvailable(Collection<CartItem> items) {
+        items.forEach(this::line);
+    }
+
+    /**
+     * Rejects items sold by a shop that {@code email} owns. Shops whose owner could not be
+     * resolved are skipped, as a failed owner lookup has never blocked a cart.
+     */
+    public void requireNotOwnedBy(Collection<CartItem> items, String email) {
+        if (email == null) {
+            return;
+        }
+        for (CartItem item : items) {
+            String shopId = line(item).getShopId();
+            String owner = shopId == null ? null : shopOwners.get(shopId);
+            if (owner != null && email.equalsIgnoreCase(owner)) {
+                log.error("User {} is trying to add their own product {} from shop {} to cart",
+                        email, item.getProductId(), shopId);
+                throw new AppException(ErrorCode.CANNOT_ADD_OWN_PRODUCT);
+            }
+        }
+    }
+
+}
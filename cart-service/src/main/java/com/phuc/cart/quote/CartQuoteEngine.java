@@ -0,0 +1,198 @@
+package com.phuc.cart.quote;
+
+import com.phuc.cart.cache.ShopOwnerCache;
+import com.phuc.cart.dto.ApiResponse;
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.exception.AppException;
+import com.phuc.cart.exception.ErrorCode;
+import com.phuc.cart.httpclient.ProductClient;
+import com.phuc.cart.httpclient.ShopClient;
+import com.phuc.cart.httpclient.request.ProductLookupItemRequest;
+import com.phuc.cart.httpclient.request.ProductLookupRequest;
+import com.phuc.cart.httpclient.response.ProductLookupResponse;
+import feign.FeignException;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves price, existence and shop owner for every line of a cart in roughly one
+ * round trip. Distinct (productId, variantId) pairs go to the batch lookup endpoint in
+ * chunks, and owners are fetched once per distinct shop; every call runs on its own
+ * virtual thread and all of them share one deadline. Owners come from
+ * {@link ShopOwnerCache} when present, so steady-state writes skip shop-service.
+ * <p>
+ * The caller's {@code Authorization} header is read once on the request thread and passed
+ * to every call, as the servlet request must not be touched from other threads.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CartQuoteEngine {
+
+    ProductClient productClient;
+    ShopClient shopClient;
+    ShopOwnerCache shopOwnerCache;
+    int batchSize;
+    Duration timeout;
+
+    public CartQuoteEngine(ProductClient productClient,
+                           ShopClient shopClient,
+                           ShopOwnerCache shopOwnerCache,
+                           @Value("${cart.quote.batch-size:100}") int batchSize,
+                           @Value("${cart.quote.timeout:3s}") Duration timeout) {
+        this.productClient = productClient;
+        this.shopClient = shopClient;
+        this.shopOwnerCache = shopOwnerCache;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+    }
+
+    public CartQuote quote(Collection<CartItem> items, boolean resolveOwners) {
+        Objects.requireNonNull(items, "items must not be null");
+        long deadline = System.nanoTime() + timeout.toNanos();
+        String authorization = currentAuthorization();
+
+        Map<String, ProductLookupItemRequest> pairs = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            pairs.putIfAbsent(CartQuote.key(item.getProductId(), item.getVariantId()),
+                    ProductLookupItemRequest.builder()
+                            .productId(item.getProductId())
+                            .variantId(item.getVariantId())
+                            .build());
+        }
+
+        // Not try-with-resources: close() would wait out a call that has already missed the deadline.
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<ProductLookupItemRequest> requests = new ArrayList<>(pairs.values());
+            List<Future<List<ProductLookupResponse>>> batches = new ArrayList<>();
+            for (int from = 0; from < requests.size(); from += batchSize) {
+                List<ProductLookupItemRequest> batch = requests.subList(from, Math.min(from + batchSize, requests.size()));
+                batches.add(executor.submit(() -> lookup(authorization, batch)));
+            }
+
+            Map<String, ProductLookupResponse> lines = new HashMap<>();
+            for (Future<List<ProductLookupResponse>> batch : batches) {
+                for (ProductLookupResponse line : awaitLookup(batch, deadline)) {
+                    lines.put(CartQuote.key(line.getProductId(), line.getVariantId()), line);
+                }
+            }
+
+            Map<String, String> owners = resolveOwners
+                    ? resolveOwners(executor, authorization, lines.values(), deadline)
+                    : Map.of();
+            return new CartQuote(lines, owners);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<ProductLookupResponse> lookup(String authorization, List<ProductLookupItemRequest> batch) {
+        ApiResponse<List<ProductLookupResponse>> response = productClient.lookupProducts(authorization,
+                ProductLookupRequest.builder().items(List.copyOf(batch)).build());
+        if (response == null || response.getResult() == null) {
+            throw new AppException(ErrorCode.PRODUCT_FETCH_FAILED);
+        }
+        return response.getResult();
+    }
+
+    private List<ProductLookupResponse> awaitLookup(Future<List<ProductLookupResponse>> batch, long deadline) {
+        try {
+            return batch.get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AppException appException) {
+                throw appException;
+            }
+            log.error("Error looking up cart products: {}", e.getCause().getMessage());
+            throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
+        } catch (TimeoutException e) {
+            log.error("Product lookup did not finish within {}", timeout);
+            throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private Map<String, String> resolveOwners(ExecutorService executor,
+                                              String authorization,
+                                              Collection<ProductLookupResponse> lines,
+                                              long deadline) {
+        List<String> shopIds = lines.stream()
+                .filter(ProductLookupResponse::isExists)
+                .map(ProductLookupResponse::getShopId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, String> owners = new HashMap<>();
+        Map<String, Optional<String>> cached = shopOwnerCache.getAllPresent(shopIds);
+        cached.forEach((shopId, owner) -> owner.ifPresent(email -> owners.put(shopId, email)));
+
+        Map<String, Future<ApiResponse<String>>> pending = new HashMap<>();
+        for (String shopId : shopIds) {
+            if (!cached.containsKey(shopId)) {
+                pending.put(shopId, executor.submit(() -> shopClient.getOwnerUsernameByShopId(authorization, shopId)));
+            }
+        }
+
+        for (Map.Entry<String, Future<ApiResponse<String>>> entry : pending.entrySet()) {
+            try {
+                ApiResponse<String> response = entry.getValue().get(remaining(deadline), TimeUnit.NANOSECONDS);
+                String owner = response != null ? response.getResult() : null;
+                shopOwnerCache.put(entry.getKey(), owner);
+                if (owner != null && !owner.isBlank()) {
+                    owners.put(entry.getKey(), owner);
+                } else {
+                    log.warn("Could not get owner email for shopId: {}. Skipping own product validation.", entry.getKey());
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof FeignException feignException && feignException.status() == 404) {
+                    shopOwnerCache.put(entry.getKey(), null);
+                }
+                log.warn("Error resolving owner of shop {}: {}. Skipping own product validation.",
+                        entry.getKey(), e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                log.warn("Owner of shop {} was not resolved within {}. Skipping own product validation.",
+                        entry.getKey(), timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return owners;
+    }
+
+    private static String currentAuthorization() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+        }
+        return null;
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+}
@@ -9,7 +9,8 @@ import java.util.Optional;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     
-    Optional<Cart> findFirstByEmailOrderByUpdatedAtDesc(String email);
+    /** Served by the partial unique index on {@code carts(email) WHERE active}. */
+    Optional<Cart> findByEmailAndActiveTrue(String email);
     
     boolean existsByEmail(String email);
 }
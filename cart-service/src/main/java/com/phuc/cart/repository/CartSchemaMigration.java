@@ -0,0 +1,137 @@
+package com.phuc.cart.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema Hibernate's {@code ddl-auto} cannot express: at most one active cart per email,
+ * {@code cart_items} by cart, and the {@code cart_archive} table the reaper copies idle
+ * carts into. Older duplicate carts of an email are deactivated first,
+ * keeping the most recently updated one, which is the cart users have been seeing. Every
+ * step is idempotent and indexes that are already valid are left alone, so each instance runs
+ * it on startup; a session advisory lock keeps instances from running it at the same time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@ConditionalOnProperty(name = "cart.schema-migration.enabled", havingValue = "true", matchIfMissing = true)
+public class CartSchemaMigration implements ApplicationRunner {
+
+    static final String ACTIVE_EMAIL_INDEX = "ux_carts_active_email";
+    static final String CART_ITEMS_INDEX = "ix_cart_items_cart_id";
+    static final long MIGRATION_LOCK = 0x6361727473L;
+
+    static final String DEACTIVATE_DUPLICATES = """
+            UPDATE carts SET active = false
+            WHERE cart_id IN (
+                SELECT cart_id FROM (
+                    SELECT cart_id, row_number() OVER (
+                        PARTITION BY email ORDER BY updated_at DESC NULLS LAST, cart_id DESC) AS rank
+                    FROM carts
+                    WHERE active
+                ) ranked
+                WHERE rank > 1
+            )
+            """;
+
+    static final String CREATE_ARCHIVE = """
+            CREATE TABLE IF NOT EXISTS cart_archive (
+                cart_id         bigint PRIMARY KEY,
+                email           varchar(255),
+                total_amount    numeric(38, 2),
+                promo_code      varchar(50),
+                discount_amount numeric(10, 2),
+                items           jsonb,
+                created_at      timestamp,
+                updated_at      timestamp,
+                archived_at     timestamp NOT NULL
+            )
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // The advisory lock belongs to the session, so every step runs on one connection.
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            migrate(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+            return null;
+        });
+    }
+
+    void migrate(JdbcTemplate session) {
+        session.execute("SELECT pg_advisory_lock(" + MIGRATION_LOCK + ")");
+        try {
+            try {
+                session.execute(CREATE_ARCHIVE);
+            } catch (DataAccessException ex) {
+                log.error("Could not create cart_archive: {}", ex.getMessage());
+            }
+            createIndex(session, CART_ITEMS_INDEX, "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + CART_ITEMS_INDEX
+                    + " ON cart_items (cart_id)", false);
+            createIndex(session, ACTIVE_EMAIL_INDEX, "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS "
+                    + ACTIVE_EMAIL_INDEX + " ON carts (email) WHERE active", true);
+        } finally {
+            session.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK + ")");
+        }
+    }
+
+    /**
+     * Builds an index without blocking writes, unless a valid one already exists. A concurrent
+     * build that failed leaves an invalid index behind, which is dropped and rebuilt. A unique
+     * index is retried once, as a cart may be created between deactivating duplicates and
+     * building it.
+     */
+    private void createIndex(JdbcTemplate session, String name, String ddl, boolean deduplicate) {
+        for (int attempt = 1; attempt <= (deduplicate ? 2 : 1); attempt++) {
+            try {
+                if (hasValidIndex(session, name)) {
+                    return;
+                }
+                if (deduplicate) {
+                    int deactivated = session.update(DEACTIVATE_DUPLICATES);
+                    if (deactivated > 0) {
+                        log.info("Deactivated {} duplicate carts", deactivated);
+                    }
+                }
+                session.execute(ddl);
+                return;
+            } catch (DataAccessException ex) {
+                log.warn("Could not create index {} (attempt {}): {}", name, attempt, ex.getMessage());
+            }
+        }
+        log.error("Index {} could not be created; it will be retried on the next start", name);
+    }
+
+    /**
+     * Returns whether a valid index {@code name} exists, dropping it if it is invalid.
+     */
+    private boolean hasValidIndex(JdbcTemplate session, String name) {
+        List<Boolean> valid = session.queryForList("""
+                SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ?
+                """, Boolean.class, name);
+        if (valid.isEmpty()) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(valid.get(0))) {
+            return true;
+        }
+        log.warn("Dropping invalid index {} left by an interrupted build", name);
+        session.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        return false;
+    }
+}
@@ -1,6 +1,8 @@
 package com.phuc.cart.service;
 
 import com.phuc.cart.dto.request.CartCreationRequest;
+import com.phuc.cart.dto.request.CartItemCreationRequest;
+import com.phuc.cart.dto.request.CartItemQuantityRequest;
 import com.phuc.cart.dto.response.CartResponse;
 import com.phuc.cart.httpclient.response.OrderResponse;
 import jakarta.validation.Valid;
@@ -9,7 +11,7 @@ import java.util.List;
 
 public interface CartService {
 
-    CartResponse createCart(CartCreationRequest request);
+    CartResponse createCart(CartCreationRequest request, String idempotencyKey);
 
     List<CartResponse> getAllCarts();
 
@@ -17,7 +19,7 @@ public interface CartService {
 
     void deleteCart(Long id);
 
-    CartResponse updateCart(Long id, @Valid CartCreationRequest request);
+    CartResponse updateCart(Long id, @Valid CartCreationRequest request, String idempotencyKey);
     
     void updateCartTotal(String email, double total);
 
@@ -27,5 +29,12 @@ public interface CartService {
     
     OrderResponse createOrderFromCart(Long cartId, String shippingAddress, String notes);
     
-    CartResponse applyPromoCode(Long cartId, String promoCode);
+    CartResponse applyPromoCode(Long cartId, String promoCode, String idempotencyKey);
+
+    CartResponse addItem(Long cartId, CartItemCreationRequest request, String idempotencyKey);
+
+    CartResponse updateItemQuantity(Long cartId, String variantId, CartItemQuantityRequest request,
+                                    String idempotencyKey);
+
+    CartResponse removeItem(Long cartId, String variantId, String idempotencyKey);
 }
@@ -1,6 +1,8 @@
 package com.phuc.cart.service.Impl;
 
 import com.phuc.cart.dto.request.CartCreationRequest;
+import com.phuc.cart.dto.request.CartItemCreationRequest;
+import com.phuc.cart.dto.request.CartItemQuantityRequest;
 import com.phuc.cart.dto.response.CartItemResponse;
 import com.phuc.cart.dto.response.CartResponse;
 import com.phuc.cart.entity.Cart;
@@ -9,14 +11,16 @@ import com.phuc.cart.exception.AppException;
 import com.phuc.cart.exception.ErrorCode;
 import com.phuc.cart.httpclient.OrderClient;
 import com.phuc.cart.httpclient.PaymentClient;
-import com.phuc.cart.httpclient.ProductClient;
 import com.phuc.cart.httpclient.dto.CreateCheckoutSessionRequest;
 import com.phuc.cart.httpclient.request.OrderCreationRequest;
 import com.phuc.cart.httpclient.request.OrderItemCreationRequest;
 import com.phuc.cart.httpclient.response.OrderResponse;
 import com.phuc.cart.mapper.CartMapper;
+import com.phuc.cart.quote.CartQuote;
+import com.phuc.cart.quote.CartQuoteEngine;
 import com.phuc.cart.repository.CartRepository;
 import com.phuc.cart.service.CartService;
+import com.phuc.cart.store.CartStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.phuc.cart.dto.ApiResponse;
 import feign.FeignException;
@@ -27,10 +31,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -39,59 +44,52 @@ import java.util.stream.Collectors;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class CartServiceImpl implements CartService {
     CartRepository cartRepository;
+    CartStore cartStore;
     CartMapper cartMapper;
-    ProductClient productClient;
     OrderClient orderClient;
     PaymentClient paymentClient;
     com.phuc.cart.httpclient.PromotionClient promotionClient;
-    com.phuc.cart.httpclient.ShopClient shopClient;
+    CartQuoteEngine cartQuoteEngine;
     ObjectMapper objectMapper;
 
     @Override
-    public CartResponse createCart(CartCreationRequest request) {
+    public CartResponse createCart(CartCreationRequest request, String idempotencyKey) {
+        return cartStore.mutate(() -> mergeIntoCart(request, idempotencyKey));
+    }
+
+    private CartResponse mergeIntoCart(CartCreationRequest request, String idempotencyKey) {
         try {
             log.info("Creating/updating cart for email: {}", request.getEmail());
             log.info("Cart items: {}", request.getItems());
             
-            validateProductIds(request.getItems());
-            
-            validateUserNotBuyingOwnProducts(request.getItems(), request.getEmail());
-            
-            Optional<Cart> existingCartOpt = cartRepository.findFirstByEmailOrderByUpdatedAtDesc(request.getEmail());
+            List<CartItem> requestedItems = toCartItems(request.getItems());
+            Optional<Cart> existingCartOpt = cartStore.findByEmail(request.getEmail());
             
             Cart cart;
             if (existingCartOpt.isPresent()) {
                 cart = existingCartOpt.get();
+                if (cartStore.isReplay(cart.getEmail(), idempotencyKey)) {
+                    log.info("Request {} was already applied to cart {}", idempotencyKey, cart.getCartId());
+                    return cartMapper.toCartResponse(cart);
+                }
                 log.info("User already has cart {}. Merging new items into existing cart.", cart.getCartId());
                 
-                List<CartItem> existingItems = cart.getItems() != null ? new ArrayList<>(cart.getItems()) : new ArrayList<>();
-                List<CartItem> newItems = request.getItems().stream()
-                        .map(itemReq -> CartItem.builder()
-                                .productId(itemReq.getProductId())
-                                .variantId(itemReq.getVariantId())
-                                .quantity(itemReq.getQuantity())
-                                .build())
-                        .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-                
-                for (CartItem newItem : newItems) {
-                    boolean found = false;
-                    for (CartItem existingItem : existingItems) {
-                        if (existingItem.getProductId().equals(newItem.getProductId()) 
-                                && existingItem.getVariantId().equals(newItem.getVariantId())) {
-                            existingItem.setQuantity(existingItem.getQuantity() + newItem.getQuantity());
-                            found = true;
-                            log.info("Merged item: {} - {} (new quantity: {})", 
-                                    newItem.getProductId(), newItem.getVariantId(), existingItem.getQuantity());
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        existingItems.add(newItem);
-                        log.info("Added new item: {} - {}", newItem.getProductId(), newItem.getVariantId());
-                    }
+                Map<String, CartItem> existingItems = new LinkedHashMap<>();
+                if (cart.getItems() != null) {
+                    cart.getItems().forEach(item ->
+                            existingItems.put(CartQuote.key(item.getProductId(), item.getVariantId()), item));
+                }
+                for (CartItem newItem : requestedItems) {
+                    CartItem merged = existingItems.merge(CartQuote.key(newItem.getProductId(), newItem.getVariantId()),
+                            newItem, (existingItem, added) -> {
+                                existingItem.setQuantity(existingItem.getQuantity() + added.getQuantity());
+                                return existingItem;
+                            });
+                    log.info("Merged item: {} - {} (quantity: {})",
+                            newItem.getProductId(), newItem.getVariantId(), merged.getQuantity());
                 }
                 
-                cart.setItems(existingItems);
+                cart.setItems(new ArrayList<>(existingItems.values()));
                 
                 if (request.getPromoCode() != null && !request.getPromoCode().isBlank()) {
                     cart.setPromoCode(request.getPromoCode());
@@ -105,14 +103,7 @@ public class CartServiceImpl implements CartService {
                         .discountAmount(BigDecimal.ZERO)
                         .build();
                 
-                List<CartItem> items = request.getItems().stream()
-                        .map(itemReq -> CartItem.builder()
-                                .productId(itemReq.getProductId())
-                                .variantId(itemReq.getVariantId())
-                                .quantity(itemReq.getQuantity())
-                                .build())
-                        .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-                cart.setItems(items);
+                cart.setItems(toCartItems(request.getItems()));
                 
                 if (request.getPromoCode() != null && !request.getPromoCode().isBlank()) {
                     cart.setPromoCode(request.getPromoCode());
@@ -120,9 +111,10 @@ public class CartServiceImpl implements CartService {
                 }
             }
             
-            BigDecimal subtotal = cart.getItems().stream()
-                    .map(item -> BigDecimal.valueOf(item.getQuantity()).multiply(getProductPrice(item)))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            CartQuote quote = cartQuoteEngine.quote(cart.getItems(), true);
+            quote.requireAvailable(requestedItems);
+            quote.requireNotOwnedBy(requestedItems, request.getEmail());
+            BigDecimal subtotal = quote.reprice(cart.getItems());
             
             BigDecimal currentDiscount = cart.getDiscountAmount() != null ? cart.getDiscountAmount() : BigDecimal.ZERO;
             cart.setTotalAmount(subtotal.subtract(currentDiscount));
@@ -130,13 +122,13 @@ public class CartServiceImpl implements CartService {
             log.info("Calculated total amount: {} (subtotal: {}, discount: {})", 
                     cart.getTotalAmount(), subtotal, currentDiscount);
 
-            Cart saved = cartRepository.save(cart);
+            Cart saved = cartStore.save(cart, idempotencyKey);
             log.info("Cart saved successfully with ID: {}", saved.getCartId());
             
             if (request.getPromoCode() != null && !request.getPromoCode().isBlank()) {
                 try {
                     log.info("Auto-applying promo code {} to cart {}", request.getPromoCode(), saved.getCartId());
-                    return applyPromoCode(saved.getCartId(), request.getPromoCode());
+                    return applyPromoCode(saved.getCartId(), request.getPromoCode(), null);
                 } catch (Exception e) {
                     log.warn("Failed to auto-apply promo code {} to cart {}: {}. Returning cart without discount.", 
                             request.getPromoCode(), saved.getCartId(), e.getMessage());
@@ -151,6 +143,7 @@ public class CartServiceImpl implements CartService {
                                     .productId(item.getProductId())
                                     .variantId(item.getVariantId())
                                     .quantity(item.getQuantity())
+                                    .unitPrice(item.getUnitPrice())
                                     .build())
                             .toList())
                     .totalAmount(saved.getTotalAmount())
@@ -176,38 +169,38 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public CartResponse getCartById(Long id) {
-        Cart cart = cartRepository.findById(id)
+        Cart cart = cartStore.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
         return cartMapper.toCartResponse(cart);
     }
 
     @Override
     public void deleteCart(Long id) {
-        if (!cartRepository.existsById(id)) {
-            throw new AppException(ErrorCode.CART_NOT_FOUND);
-        }
-        cartRepository.deleteById(id);
+        Cart cart = cartStore.findById(id)
+                .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+        cartStore.delete(cart);
     }
 
     @Override
-    public CartResponse updateCart(Long id, CartCreationRequest request) {
-        Cart existingCart = cartRepository.findById(id)
+    public CartResponse updateCart(Long id, CartCreationRequest request, String idempotencyKey) {
+        return cartStore.mutate(() -> replaceCart(id, request, idempotencyKey));
+    }
+
+    private CartResponse replaceCart(Long id, CartCreationRequest request, String idempotencyKey) {
+        Cart existingCart = cartStore.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+        if (cartStore.isReplay(existingCart.getEmail(), idempotencyKey)) {
+            return cartMapper.toCartResponse(existingCart);
+        }
 
-        validateProductIds(request.getItems());
-        
-        validateUserNotBuyingOwnProducts(request.getItems(), request.getEmail());
+        List<CartItem> newItems = toCartItems(request.getItems());
+        CartQuote quote = cartQuoteEngine.quote(newItems, true);
+        quote.requireAvailable(newItems);
+        quote.requireNotOwnedBy(newItems, request.getEmail());
 
         existingCart.setEmail(request.getEmail());
         
-        BigDecimal subtotal = request.getItems().stream()
-                .map(itemReq -> BigDecimal.valueOf(itemReq.getQuantity()).multiply(getProductPrice(
-                        CartItem.builder()
-                                .productId(itemReq.getProductId())
-                                .variantId(itemReq.getVariantId())
-                                .quantity(itemReq.getQuantity())
-                                .build())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal subtotal = quote.reprice(newItems);
         
         if (request.getPromoCode() != null && !request.getPromoCode().isBlank()) {
             existingCart.setPromoCode(request.getPromoCode());
@@ -223,19 +216,10 @@ public class CartServiceImpl implements CartService {
         
         existingCart.setTotalAmount(subtotal.subtract(
                 existingCart.getDiscountAmount() != null ? existingCart.getDiscountAmount() : BigDecimal.ZERO));
-        existingCart.setUpdatedAt(LocalDateTime.now());
-
-        List<CartItem> newItems = request.getItems().stream()
-                .map(itemReq -> CartItem.builder()
-                        .productId(itemReq.getProductId())
-                        .variantId(itemReq.getVariantId())
-                        .quantity(itemReq.getQuantity())
-                        .build())
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
 
         existingCart.setItems(newItems);
 
-        Cart updatedCart = cartRepository.save(existingCart);
+        Cart updatedCart = cartStore.save(existingCart, idempotencyKey);
 
         CartResponse response = cartMapper.toCartResponse(updatedCart);
         response.setPromoCode(updatedCart.getPromoCode());
@@ -247,28 +231,25 @@ public class CartServiceImpl implements CartService {
     public void updateCartTotal(String email, double total) {
         log.info("Updating cart total for email: {} to: {}", email, total);
         
-        Cart cart = cartRepository.findFirstByEmailOrderByUpdatedAtDesc(email)
-                .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
-        
-        cart.setTotalAmount(BigDecimal.valueOf(total));
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        cartRepository.save(cart);
+        cartStore.mutate(() -> {
+            Cart cart = cartStore.findByEmail(email)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+            cart.setTotalAmount(BigDecimal.valueOf(total));
+            return cartStore.save(cart);
+        });
         log.info("Cart total updated successfully for email: {}", email);
     }
 
     @Override
-    @Transactional
     public void updateCartTotalById(Long cartId, double total) {
         log.info("Updating cart total for cartId: {} to: {}", cartId, total);
         
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
-        
-        cart.setTotalAmount(BigDecimal.valueOf(total));
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        cartRepository.saveAndFlush(cart);
+        cartStore.mutate(() -> {
+            Cart cart = cartStore.findById(cartId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+            cart.setTotalAmount(BigDecimal.valueOf(total));
+            return cartStore.save(cart);
+        });
         log.info("Cart total updated successfully for cartId: {}", cartId);
     }
 
@@ -276,7 +257,7 @@ public class CartServiceImpl implements CartService {
     public CartResponse getCartByEmail(String email) {
         log.info("Getting cart for email: {}", email);
         
-        Cart cart = cartRepository.findFirstByEmailOrderByUpdatedAtDesc(email)
+        Cart cart = cartStore.findByEmail(email)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
         
         return cartMapper.toCartResponse(cart);
@@ -287,8 +268,9 @@ public class CartServiceImpl implements CartService {
     public OrderResponse createOrderFromCart(Long cartId, String shippingAddress, String notes) {
         log.info("Creating order from cart with cartId: {}", cartId);
         
-        Cart cart = cartRepository.findById(cartId)
+        Cart cart = cartStore.findById(cartId)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+        cartStore.flush(cart.getEmail());
         
         if (cart.getItems() == null || cart.getItems().isEmpty()) {
             log.error("Cart {} is empty, cannot create order", cartId);
@@ -335,7 +317,7 @@ public class CartServiceImpl implements CartService {
                 log.error("Error creating checkout session for order {}: {}", orderResponse.getOrderId(), e.getMessage());
             }
             
-            cartRepository.delete(cart);
+            cartStore.delete(cart);
             log.info("Cart {} deleted after successful order creation", cartId);
             
             return orderResponse;
@@ -359,11 +341,14 @@ public class CartServiceImpl implements CartService {
     }
 
     @Override
-    public CartResponse applyPromoCode(Long cartId, String promoCode) {
+    public CartResponse applyPromoCode(Long cartId, String promoCode, String idempotencyKey) {
         log.info("Applying promo code {} to cart {}", promoCode, cartId);
         
-        Cart cart = cartRepository.findById(cartId)
+        Cart cart = cartStore.findById(cartId)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+        if (cartStore.isReplay(cart.getEmail(), idempotencyKey)) {
+            return cartMapper.toCartResponse(cart);
+        }
         
         if (cart.getItems() == null || cart.getItems().isEmpty()) {
             log.error("Cart {} is empty, cannot apply promo code", cartId);
@@ -374,9 +359,7 @@ public class CartServiceImpl implements CartService {
         if (cart.getDiscountAmount() != null && cart.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
             subtotal = subtotal.add(cart.getDiscountAmount());
         } else {
-            subtotal = cart.getItems().stream()
-                    .map(item -> BigDecimal.valueOf(item.getQuantity()).multiply(getProductPrice(item)))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            subtotal = cartQuoteEngine.quote(cart.getItems(), false).reprice(cart.getItems());
         }
         
         log.info("Cart {} subtotal before promo: {}", cartId, subtotal);
@@ -384,27 +367,29 @@ public class CartServiceImpl implements CartService {
         try {
             promotionClient.applyPromotionCode(promoCode, cartId);
             
-            cart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
-            
-            BigDecimal newTotal = cart.getTotalAmount();
-            BigDecimal discountAmount = subtotal.subtract(newTotal);
-            
-            if (discountAmount.compareTo(BigDecimal.ZERO) < 0) {
-                log.warn("Calculated discount amount is negative: {}. Setting to 0.", discountAmount);
-                discountAmount = BigDecimal.ZERO;
-            }
-            
-            log.info("Cart {} - Subtotal: {}, New total: {}, Discount: {}", 
-                    cartId, subtotal, newTotal, discountAmount);
-            
-            cart.setPromoCode(promoCode);
-            cart.setDiscountAmount(discountAmount);
-            cart.setUpdatedAt(LocalDateTime.now());
-            
-            Cart savedCart = cartRepository.saveAndFlush(cart);
+            // Only the cart update is retried on a conflict; the promotion has been applied once.
+            BigDecimal promotedSubtotal = subtotal;
+            Cart savedCart = cartStore.mutate(() -> {
+                Cart promoted = cartStore.findById(cartId)
+                        .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+                
+                BigDecimal newTotal = promoted.getTotalAmount();
+                BigDecimal discountAmount = promotedSubtotal.subtract(newTotal);
+                
+                if (discountAmount.compareTo(BigDecimal.ZERO) < 0) {
+                    log.warn("Calculated discount amount is negative: {}. Setting to 0.", discountAmount);
+                    discountAmount = BigDecimal.ZERO;
+                }
+                
+                log.info("Cart {} - Subtotal: {}, New total: {}, Discount: {}", 
+                        cartId, promotedSubtotal, newTotal, discountAmount);
+                
+                promoted.setPromoCode(promoCode);
+                promoted.setDiscountAmount(discountAmount);
+                return cartStore.save(promoted, idempotencyKey);
+            });
             log.info("Promo code {} applied successfully to cart {}. Discount: {}, New total: {}", 
-                    promoCode, cartId, discountAmount, savedCart.getTotalAmount());
+                    promoCode, cartId, savedCart.getDiscountAmount(), savedCart.getTotalAmount());
             
             return cartMapper.toCartResponse(savedCart);
         } catch (FeignException e) {
@@ -422,6 +407,120 @@ public class CartServiceImpl implements CartService {
         }
     }
 
+    @Override
+    public CartResponse addItem(Long cartId, CartItemCreationRequest request, String idempotencyKey) {
+        if (request.getQuantity() < 1) {
+            throw new AppException(ErrorCode.QUANTITY_MUST_BE_AT_LEAST_1);
+        }
+        return cartStore.mutate(() -> {
+            Cart cart = cartStore.findById(cartId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+            if (cartStore.isReplay(cart.getEmail(), idempotencyKey)) {
+                return cartMapper.toCartResponse(cart);
+            }
+
+            CartItem added = toCartItems(List.of(request)).get(0);
+            CartQuote quote = cartQuoteEngine.quote(List.of(added), true);
+            quote.requireNotOwnedBy(List.of(added), cart.getEmail());
+            BigDecimal unitPrice = quote.price(added);
+
+            CartItem line = findLine(cart, request.getVariantId())
+                    .filter(item -> item.getProductId().equals(request.getProductId()))
+                    .orElse(null);
+            BigDecimal delta;
+            if (line == null) {
+                added.setUnitPrice(unitPrice);
+                cart.getItems().add(added);
+                delta = unitPrice.multiply(BigDecimal.valueOf(added.getQuantity()));
+            } else {
+                // Reprice the whole line so a stale cached price does not linger in the total.
+                if (line.getUnitPrice() == null) {
+                    line.setUnitPrice(unitPrice);
+                }
+                BigDecimal previous = lineTotal(line);
+                line.setQuantity(line.getQuantity() + added.getQuantity());
+                line.setUnitPrice(unitPrice);
+                delta = lineTotal(line).subtract(previous);
+            }
+            cart.setTotalAmount(currentTotal(cart).add(delta));
+
+            log.info("Added {} x {} - {} to cart {}", added.getQuantity(), added.getProductId(), added.getVariantId(), cartId);
+            return cartMapper.toCartResponse(
+                    cartStore.saveLine(cart, request.getProductId(), request.getVariantId(), idempotencyKey));
+        });
+    }
+
+    @Override
+    public CartResponse updateItemQuantity(Long cartId, String variantId, CartItemQuantityRequest request,
+                                           String idempotencyKey) {
+        if (request.getQuantity() < 1) {
+            throw new AppException(ErrorCode.QUANTITY_MUST_BE_AT_LEAST_1);
+        }
+        return cartStore.mutate(() -> {
+            Cart cart = cartStore.findById(cartId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+            if (cartStore.isReplay(cart.getEmail(), idempotencyKey)) {
+                return cartMapper.toCartResponse(cart);
+            }
+            CartItem line = findLine(cart, variantId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
+
+            if (line.getUnitPrice() == null) {
+                line.setUnitPrice(cartQuoteEngine.quote(List.of(line), false).price(line));
+            }
+            BigDecimal previous = lineTotal(line);
+            line.setQuantity(request.getQuantity());
+            cart.setTotalAmount(currentTotal(cart).add(lineTotal(line)).subtract(previous));
+
+            log.info("Set quantity of {} in cart {} to {}", variantId, cartId, request.getQuantity());
+            return cartMapper.toCartResponse(cartStore.saveLine(cart, line.getProductId(), variantId, idempotencyKey));
+        });
+    }
+
+    @Override
+    public CartResponse removeItem(Long cartId, String variantId, String idempotencyKey) {
+        return cartStore.mutate(() -> {
+            Cart cart = cartStore.findById(cartId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
+            if (cartStore.isReplay(cart.getEmail(), idempotencyKey)) {
+                return cartMapper.toCartResponse(cart);
+            }
+            CartItem line = findLine(cart, variantId)
+                    .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
+
+            cart.getItems().remove(line);
+            log.info("Removed {} from cart {}", variantId, cartId);
+            if (cart.getItems().isEmpty()) {
+                cart.setTotalAmount(BigDecimal.ZERO.subtract(
+                        cart.getDiscountAmount() != null ? cart.getDiscountAmount() : BigDecimal.ZERO));
+            } else if (line.getUnitPrice() == null) {
+                cart.setTotalAmount(cartQuoteEngine.quote(cart.getItems(), false).reprice(cart.getItems())
+                        .subtract(cart.getDiscountAmount() != null ? cart.getDiscountAmount() : BigDecimal.ZERO));
+                return cartMapper.toCartResponse(cartStore.save(cart, idempotencyKey));
+            } else {
+                cart.setTotalAmount(currentTotal(cart).subtract(lineTotal(line)));
+            }
+            return cartMapper.toCartResponse(cartStore.saveLine(cart, line.getProductId(), variantId, idempotencyKey));
+        });
+    }
+
+    private static Optional<CartItem> findLine(Cart cart, String variantId) {
+        if (cart.getItems() == null) {
+            cart.setItems(new ArrayList<>());
+        }
+        return cart.getItems().stream()
+                .filter(item -> variantId.equals(item.getVariantId()))
+                .findFirst();
+    }
+
+    private static BigDecimal lineTotal(CartItem line) {
+        return line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+    }
+
+    private static BigDecimal currentTotal(Cart cart) {
+        return cart.getTotalAmount() != null ? cart.getTotalAmount() : BigDecimal.ZERO;
+    }
+
     private ErrorCode mapPromotionServiceError(FeignException e) {
         try {
             String content = e.contentUTF8();
@@ -467,94 +566,13 @@ public class CartServiceImpl implements CartService {
         return ErrorCode.SERVICE_UNAVAILABLE;
     }
 
-    private BigDecimal getProductPrice(CartItem item) {
-        try {
-            var response = productClient.getProductPriceById(item.getProductId(), item.getVariantId());
-            if (response == null || response.getResult() == null) {
-                log.error("Product price not found for productId: {}, variantId: {}", item.getProductId(), item.getVariantId());
-                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
-            }
-            return BigDecimal.valueOf(response.getResult());
-        } catch (FeignException e) {
-            if (e.status() == 404) {
-                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
-            }
-            log.error("Error fetching product price for productId: {}, variantId: {}: {}", 
-                    item.getProductId(), item.getVariantId(), e.getMessage());
-            throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
-        } catch (AppException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error fetching product price for productId: {}, variantId: {}: {}", 
-                    item.getProductId(), item.getVariantId(), e.getMessage());
-            throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
-        }
-    }
-
-
-    private void validateProductIds(List<com.phuc.cart.dto.request.CartItemCreationRequest> items) {
-        for (com.phuc.cart.dto.request.CartItemCreationRequest item : items) {
-            try {
-                log.info("Validating productId: {} with variantId: {}", item.getProductId(), item.getVariantId());
-                var response = productClient.existsProduct(item.getProductId(), item.getVariantId());
-                if (response == null || !response.getResult().isExists()) {
-                    throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
-                }
-                log.info("ProductId {} with variantId {} validated successfully", item.getProductId(), item.getVariantId());
-            } catch (FeignException e) {
-                if (e.status() == 404) {
-                    throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
-                }
-                log.error("Error validating productId {} with variantId {}: {}", item.getProductId(), item.getVariantId(), e.getMessage());
-                throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
-            } catch (AppException e) {
-                throw e;
-            } catch (Exception e) {
-                log.error("Error validating productId {} with variantId {}: {}", item.getProductId(), item.getVariantId(), e.getMessage());
-                throw new AppException(ErrorCode.PRODUCT_SERVICE_UNAVAILABLE);
-            }
-        }
-    }
-
-    private void validateUserNotBuyingOwnProducts(List<com.phuc.cart.dto.request.CartItemCreationRequest> items, String userEmail) {
-        for (com.phuc.cart.dto.request.CartItemCreationRequest item : items) {
-            try {
-                log.info("Validating user {} is not buying own product: {}", userEmail, item.getProductId());
-                
-                ApiResponse<String> shopIdResponse = productClient.getShopIdByProductId(item.getProductId());
-                if (shopIdResponse == null || shopIdResponse.getResult() == null || shopIdResponse.getResult().isBlank()) {
-                    log.warn("Could not get shopId for productId: {}. Skipping own product validation.", item.getProductId());
-                    continue;
-                }
-                
-                String shopId = shopIdResponse.getResult();
-                log.info("Product {} belongs to shop {}", item.getProductId(), shopId);
-                
-                ApiResponse<String> ownerResponse = shopClient.getOwnerUsernameByShopId(shopId);
-                if (ownerResponse == null || ownerResponse.getResult() == null || ownerResponse.getResult().isBlank()) {
-                    log.warn("Could not get owner email for shopId: {}. Skipping own product validation.", shopId);
-                    continue;
-                }
-                
-                String ownerEmail = ownerResponse.getResult();
-                log.info("Shop {} is owned by {}", shopId, ownerEmail);
-                
-                if (userEmail != null && userEmail.equalsIgnoreCase(ownerEmail)) {
-                    log.error("User {} is trying to add their own product {} from shop {} to cart", 
-                            userEmail, item.getProductId(), shopId);
-                    throw new AppException(ErrorCode.CANNOT_ADD_OWN_PRODUCT);
-                }
-                
-                log.info("User {} validated successfully - not buying own product", userEmail);
-            } catch (AppException e) {
-                throw e;
-            } catch (FeignException e) {
-                log.warn("Error validating own product check for productId {}: {}. Skipping validation.", 
-                        item.getProductId(), e.getMessage());
-            } catch (Exception e) {
-                log.warn("Unexpected error validating own product check for productId {}: {}. Skipping validation.", 
-                        item.getProductId(), e.getMessage());
-            }
-        }
+    private List<CartItem> toCartItems(List<com.phuc.cart.dto.request.CartItemCreationRequest> items) {
+        return items.stream()
+                .map(itemReq -> CartItem.builder()
+                        .productId(itemReq.getProductId())
+                        .variantId(itemReq.getVariantId())
+                        .quantity(itemReq.getQuantity())
+                        .build())
+                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 }
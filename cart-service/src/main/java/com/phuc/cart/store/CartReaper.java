@@ -0,0 +1,171 @@
+package com.phuc.cart.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes carts nobody has changed for {@code cart.reaper.idle-ttl}, and carts that are no
+ * longer active, so {@code carts} and {@code cart_items} only hold carts in use. Each run
+ * walks {@code carts} by id from where the previous run stopped, one batch per transaction,
+ * copying carts to {@code cart_archive} first unless {@code cart.reaper.archive} is off.
+ * Their Redis copies are dropped afterwards.
+ * <p>
+ * {@code cart.reaper.carts} counts removed carts and {@code cart.reaper.lag} reports how long
+ * past the TTL the oldest cart of the last run had been idle.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CartReaper {
+
+    static final String LOCK_KEY = "cart-reaper:lock";
+    static final String CURSOR_KEY = "cart-reaper:cursor";
+
+    static final String SELECT_BATCH = """
+            SELECT cart_id, email, updated_at FROM carts
+            WHERE cart_id > ? AND (updated_at < ? OR NOT active)
+            ORDER BY cart_id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    static final String ARCHIVE_BATCH = """
+            INSERT INTO cart_archive (cart_id, email, total_amount, promo_code, discount_amount, items,
+                                      created_at, updated_at, archived_at)
+            SELECT c.cart_id, c.email, c.total_amount, c.promo_code, c.discount_amount,
+                   (SELECT jsonb_agg(jsonb_build_array(i.product_id, i.variant_id, i.quantity, i.unit_price))
+                    FROM cart_items i WHERE i.cart_id = c.cart_id),
+                   c.created_at, c.updated_at, now()
+            FROM carts c
+            WHERE c.cart_id = ANY (?)
+            ON CONFLICT (cart_id) DO NOTHING
+            """;
+
+    StringRedisTemplate stringRedisTemplate;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    CartStore cartStore;
+    String token = UUID.randomUUID().toString();
+    Duration idleTtl;
+    int batchSize;
+    int maxBatches;
+    boolean archive;
+    Counter reaped;
+    Timer batchTimer;
+    AtomicLong lagSeconds = new AtomicLong();
+
+    public CartReaper(StringRedisTemplate stringRedisTemplate,
+                      JdbcTemplate jdbcTemplate,
+                      TransactionTemplate transactionTemplate,
+                      CartStore cartStore,
+                      MeterRegistry meterRegistry,
+                      @Value("${cart.reaper.idle-ttl:30d}") Duration idleTtl,
+                      @Value("${cart.reaper.batch-size:500}") int batchSize,
+                      @Value("${cart.reaper.max-batches:100}") int maxBatches,
+                      @Value("${cart.reaper.archive:true}") boolean archive) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cartStore = cartStore;
+        this.idleTtl = idleTtl;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.archive = archive;
+        this.reaped = Counter.builder("cart.reaper.carts")
+                .tag("outcome", archive ? "archived" : "deleted")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.reaper.batch").register(meterRegistry);
+        Gauge.builder("cart.reaper.lag", lagSeconds, AtomicLong::get)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.reaper.interval:5m}", initialDelayString = "${cart.reaper.initial-delay:1m}")
+    public void reap() {
+        // One instance sweeps at a time; the lock outlives a run that stalls on a batch.
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, Duration.ofMinutes(10)))) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(idleTtl);
+            String stored = stringRedisTemplate.opsForValue().get(CURSOR_KEY);
+            long cursor = stored == null ? 0 : Long.parseLong(stored);
+            long total = 0;
+            long lag = 0;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                long after = cursor;
+                List<ReapedCart> carts = batchTimer.record(() -> reapBatch(after, cutoff));
+                if (carts == null || carts.isEmpty()) {
+                    cursor = 0;
+                    break;
+                }
+                carts.forEach(cart -> cartStore.evict(cart.cartId(), cart.email()));
+                reaped.increment(carts.size());
+                total += carts.size();
+                cursor = carts.get(carts.size() - 1).cartId();
+                for (ReapedCart cart : carts) {
+                    if (cart.updatedAt() != null) {
+                        lag = Math.max(lag, Duration.between(cart.updatedAt(), cutoff).toSeconds());
+                    }
+                }
+                if (carts.size() < batchSize) {
+                    cursor = 0;
+                    break;
+                }
+            }
+            stringRedisTemplate.opsForValue().set(CURSOR_KEY, String.valueOf(cursor));
+            lagSeconds.set(lag);
+            if (total > 0) {
+                log.info("Reaped {} idle carts ({})", total, archive ? "archived" : "deleted");
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Cart reaper run failed: {}", ex.getMessage());
+        } finally {
+            if (token.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        }
+    }
+
+    private List<ReapedCart> reapBatch(long after, LocalDateTime cutoff) {
+        return transactionTemplate.execute(status -> {
+            List<ReapedCart> carts = jdbcTemplate.query(SELECT_BATCH,
+                    (rs, row) -> new ReapedCart(rs.getLong("cart_id"), rs.getString("email"),
+                            rs.getTimestamp("updated_at") == null ? null : rs.getTimestamp("updated_at").toLocalDateTime()),
+                    after, Timestamp.valueOf(cutoff), batchSize);
+            if (carts.isEmpty()) {
+                return carts;
+            }
+            PreparedStatementSetter ids = ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint",
+                    carts.stream().map(ReapedCart::cartId).toArray()));
+            if (archive) {
+                jdbcTemplate.update(ARCHIVE_BATCH, ids);
+            }
+            jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ANY (?)", ids);
+            jdbcTemplate.update("DELETE FROM carts WHERE cart_id = ANY (?)", ids);
+            return carts;
+        });
+    }
+
+    record ReapedCart(long cartId, String email, LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,676 @@
+package com.phuc.cart.store;
+
+import com.phuc.cart.entity.Cart;
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.exception.AppException;
+import com.phuc.cart.exception.ErrorCode;
+import com.phuc.cart.repository.CartRepository;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Active-cart tier. Each cart lives in a Redis hash ({@code cart:<email>}) and every
+ * mutation is appended to the {@code cart-changelog} stream in the same script. A
+ * consumer group drains the log on a schedule, coalesces entries per cart and writes the
+ * latest state to Postgres; entries left unacknowledged by a crashed instance are claimed
+ * by another after {@code cart.write-behind.claim-idle}. Entries of a cart Postgres rejects
+ * outright are moved to {@code cart-changelog-dead} for an operator, and the cart stays cached.
+ * <p>
+ * Lines are stored one per field, {@code line:<productId>:<variantId>} holding
+ * {@code quantity|unitPrice|position}, so a single-line change rewrites one field and is
+ * written back as one {@code cart_items} row. New carts are inserted into Postgres
+ * straight away so they get their identity id.
+ * <p>
+ * Writes are optimistic: the hash carries a {@code version} that a write must still match,
+ * and the last {@code cart.store.idempotency-keys} request keys in {@code requests}, so a
+ * repeated request is acknowledged without being applied twice.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CartStore {
+
+    static final String KEY_PREFIX = "cart:";
+    static final String ID_KEY_PREFIX = "cart-id:";
+    static final String CHANGELOG_KEY = "cart-changelog";
+    static final String DEAD_LETTER_KEY = "cart-changelog-dead";
+    static final String WRITER_GROUP = "cart-writers";
+    static final String EMAIL_FIELD = "email";
+    static final String LINE_FIELD = "line";
+    static final String LINE_PREFIX = "line:";
+    static final String NEXT_POSITION_FIELD = "nextPosition";
+    static final String MODE_FILL = "fill";
+    static final String MODE_PUT = "put";
+    static final String MODE_WRITE = "write";
+    static final String REQUESTS_FIELD = "requests";
+    static final long REPLAYED = 2;
+    static final long CONFLICT = -1;
+    static final Pattern REQUEST_KEY = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    static final String REMEMBER_FUNCTION = """
+            local function seen(ring, key)
+                return key ~= '' and ring and string.find(' ' .. ring .. ' ', ' ' .. key .. ' ', 1, true) ~= nil
+            end
+            local function remember(ring, key, size)
+                local keys = {}
+                if ring then
+                    for k in string.gmatch(ring, '%S+') do
+                        keys[#keys + 1] = k
+                    end
+                end
+                if key ~= '' then
+                    keys[#keys + 1] = key
+                end
+                if #keys == 0 then
+                    return nil
+                end
+                return table.concat(keys, ' ', math.max(1, #keys - size + 1), #keys)
+            end
+            """;
+
+    /**
+     * KEYS: cart hash, id key, changelog. ARGV: ttl millis, email, mode, changelog max
+     * length, version, request key, remembered keys, then field/value pairs starting with
+     * cartId. Only a write is logged and checked against the cached version; a fill leaves
+     * an existing cart alone. A cart whose email changed is removed from its old key.
+     * Returns 1 when applied, 0 for a skipped fill, 2 for a repeated request key and -1 when
+     * the cart changed since it was read or is no longer cached, as a write must not bring
+     * back a cart that was evicted or reaped in the meantime.
+     */
+    static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(REMEMBER_FUNCTION + """
+            if ARGV[3] == 'fill' and redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            local current = redis.call('HMGET', KEYS[1], 'version', 'requests')
+            local version = ARGV[5]
+            if ARGV[3] == 'write' then
+                if redis.call('EXISTS', KEYS[1]) == 0 then
+                    return -1
+                end
+                if seen(current[2], ARGV[6]) then
+                    return 2
+                end
+                if (current[1] or '') ~= ARGV[5] then
+                    return -1
+                end
+                version = tostring((tonumber(ARGV[5]) or 0) + 1)
+            end
+            local previous = redis.call('GET', KEYS[2])
+            if previous and previous ~= ARGV[2] and redis.call('HGET', 'cart:' .. previous, 'cartId') == ARGV[9] then
+                redis.call('DEL', 'cart:' .. previous)
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], 'version', version, unpack(ARGV, 8))
+            local requests = remember(current[2], ARGV[6], tonumber(ARGV[7]))
+            if requests then
+                redis.call('HSET', KEYS[1], 'requests', requests)
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[1])
+            if ARGV[3] == 'write' then
+                redis.call('XADD', KEYS[3], 'MAXLEN', '~', ARGV[4], '*', 'email', ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: cart hash, id key, changelog. ARGV: ttl millis, email, changelog max length,
+     * line field, quantity (empty removes the line), unit price, total, updatedAt, version,
+     * request key, remembered keys. Returns as {@link #SAVE_SCRIPT}.
+     */
+    static final RedisScript<Long> SAVE_LINE_SCRIPT = new DefaultRedisScript<>(REMEMBER_FUNCTION + """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            local current = redis.call('HMGET', KEYS[1], 'version', 'requests')
+            if seen(current[2], ARGV[10]) then
+                return 2
+            end
+            if (current[1] or '') ~= ARGV[9] then
+                return -1
+            end
+            if ARGV[5] == '' then
+                redis.call('HDEL', KEYS[1], ARGV[4])
+            else
+                local position
+                local existing = redis.call('HGET', KEYS[1], ARGV[4])
+                if existing then
+                    position = string.match(existing, '([^|]*)$')
+                else
+                    position = redis.call('HINCRBY', KEYS[1], 'nextPosition', 1)
+                end
+                redis.call('HSET', KEYS[1], ARGV[4], ARGV[5] .. '|' .. ARGV[6] .. '|' .. position)
+            end
+            redis.call('HSET', KEYS[1], 'totalAmount', ARGV[7], 'updatedAt', ARGV[8],
+                'version', tostring((tonumber(ARGV[9]) or 0) + 1))
+            local requests = remember(current[2], ARGV[10], tonumber(ARGV[11]))
+            if requests then
+                redis.call('HSET', KEYS[1], 'requests', requests)
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            redis.call('XADD', KEYS[3], 'MAXLEN', '~', ARGV[3], '*', 'email', ARGV[2], 'line', ARGV[4])
+            return 1
+            """, Long.class);
+
+    /** KEYS: cart hash, id key. ARGV: cartId. Leaves a newer cart cached under the same email alone. */
+    static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'cartId') == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+            end
+            return redis.call('DEL', KEYS[2])
+            """, Long.class);
+
+    StringRedisTemplate stringRedisTemplate;
+    CartRepository cartRepository;
+    TransactionTemplate transactionTemplate;
+    JdbcTemplate jdbcTemplate;
+    String consumerName = UUID.randomUUID().toString();
+    Duration ttl;
+    int batchSize;
+    Duration claimIdle;
+    long changelogMaxLength;
+    int idempotencyKeys;
+    int maxAttempts;
+
+    @NonFinal
+    volatile boolean groupReady;
+
+    public CartStore(StringRedisTemplate stringRedisTemplate,
+                     CartRepository cartRepository,
+                     TransactionTemplate transactionTemplate,
+                     JdbcTemplate jdbcTemplate,
+                     @Value("${cart.store.ttl:1d}") Duration ttl,
+                     @Value("${cart.write-behind.batch-size:500}") int batchSize,
+                     @Value("${cart.write-behind.claim-idle:30s}") Duration claimIdle,
+                     @Value("${cart.write-behind.changelog-max-length:1000000}") long changelogMaxLength,
+                     @Value("${cart.store.idempotency-keys:16}") int idempotencyKeys,
+                     @Value("${cart.store.max-attempts:3}") int maxAttempts) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.claimIdle = claimIdle;
+        this.changelogMaxLength = changelogMaxLength;
+        this.idempotencyKeys = idempotencyKeys;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Runs a read-modify-save of a cart, re-running it on a fresh read when another request
+     * saved the cart in between, up to {@code cart.store.max-attempts} times.
+     */
+    public <T> T mutate(Supplier<T> mutation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return mutation.get();
+            } catch (AppException ex) {
+                if (ex.getErrorCode() != ErrorCode.CART_MODIFIED || attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Cart changed concurrently, retrying (attempt {} of {})", attempt + 1, maxAttempts);
+            }
+        }
+    }
+
+    /** Whether {@code requestKey} is among the requests already applied to the cart of {@code email}. */
+    public boolean isReplay(String email, String requestKey) {
+        if (requestKey == null) {
+            return false;
+        }
+        Object requests = stringRedisTemplate.opsForHash().get(key(email), REQUESTS_FIELD);
+        return requests != null && (" " + requests + " ").contains(" " + checkRequestKey(requestKey) + " ");
+    }
+
+    public Optional<Cart> findByEmail(String email) {
+        Objects.requireNonNull(email, "email must not be null");
+        Optional<Cart> cached = readCached(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<Cart> stored = cartRepository.findByEmailAndActiveTrue(email);
+        stored.ifPresent(this::fill);
+        return stored;
+    }
+
+    public Optional<Cart> findById(Long cartId) {
+        Objects.requireNonNull(cartId, "cartId must not be null");
+        String email = stringRedisTemplate.opsForValue().get(idKey(cartId));
+        if (email != null) {
+            Optional<Cart> cached = readCached(email).filter(cart -> cartId.equals(cart.getCartId()));
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        Optional<Cart> stored = cartRepository.findById(cartId);
+        stored.ifPresent(this::fill);
+        return stored;
+    }
+
+    /**
+     * Saves the cart to Redis and logs the change for write-behind. A cart without an id is
+     * inserted into Postgres first.
+     */
+    public Cart save(Cart cart) {
+        return save(cart, null);
+    }
+
+    /**
+     * As {@link #save(Cart)}, recording {@code requestKey}. Returns the cart as stored, which
+     * is the earlier result when the key was already applied; throws
+     * {@link ErrorCode#CART_MODIFIED} when the cart changed since it was read or dropped out
+     * of Redis, so {@link #mutate} re-reads it.
+     */
+    public Cart save(Cart cart, String requestKey) {
+        Objects.requireNonNull(cart, "cart must not be null");
+        if (cart.getCartId() == null) {
+            Cart created;
+            try {
+                created = cartRepository.save(cart);
+            } catch (DataIntegrityViolationException ex) {
+                // Another request created this user's active cart first; a retry merges into it.
+                throw new AppException(ErrorCode.CART_MODIFIED);
+            }
+            write(created, MODE_PUT, requestKey);
+            return created;
+        }
+        cart.setUpdatedAt(LocalDateTime.now());
+        return applied(cart, write(cart, MODE_WRITE, requestKey));
+    }
+
+    /**
+     * Saves one line of {@code cart} together with its total. The line is taken from
+     * {@code cart.getItems()}; if it is no longer there it is removed.
+     */
+    public Cart saveLine(Cart cart, String productId, String variantId) {
+        return saveLine(cart, productId, variantId, null);
+    }
+
+    /** As {@link #saveLine(Cart, String, String)}, recording {@code requestKey} as {@link #save(Cart, String)} does. */
+    public Cart saveLine(Cart cart, String productId, String variantId, String requestKey) {
+        Objects.requireNonNull(cart, "cart must not be null");
+        Objects.requireNonNull(cart.getCartId(), "cartId must not be null");
+        cart.setUpdatedAt(LocalDateTime.now());
+        Optional<CartItem> line = cart.getItems().stream()
+                .filter(item -> productId.equals(item.getProductId()) && variantId.equals(item.getVariantId()))
+                .findFirst();
+
+        Long saved = stringRedisTemplate.execute(SAVE_LINE_SCRIPT,
+                List.of(key(cart.getEmail()), idKey(cart.getCartId()), CHANGELOG_KEY),
+                String.valueOf(ttl.toMillis()),
+                cart.getEmail(),
+                String.valueOf(changelogMaxLength),
+                lineField(productId, variantId),
+                line.map(item -> item.getQuantity().toString()).orElse(""),
+                line.map(item -> plain(item.getUnitPrice())).orElse(""),
+                plain(cart.getTotalAmount()),
+                cart.getUpdatedAt().toString(),
+                version(cart),
+                requestKey == null ? "" : checkRequestKey(requestKey),
+                String.valueOf(idempotencyKeys));
+        return applied(cart, saved);
+    }
+
+    private Cart applied(Cart cart, Long result) {
+        if (result != null && result == CONFLICT) {
+            throw new AppException(ErrorCode.CART_MODIFIED);
+        }
+        if (result != null && result == REPLAYED) {
+            log.info("Request already applied to cart {}, returning its current state", cart.getCartId());
+            return readCached(cart.getEmail()).orElse(cart);
+        }
+        cart.setVersion(cart.getVersion() == null ? 1 : cart.getVersion() + 1);
+        return cart;
+    }
+
+    public void delete(Cart cart) {
+        Objects.requireNonNull(cart, "cart must not be null");
+        cartRepository.deleteById(cart.getCartId());
+        stringRedisTemplate.delete(List.of(key(cart.getEmail()), idKey(cart.getCartId())));
+    }
+
+    /** Drops the cached copy of a cart removed from Postgres by other means. */
+    public void evict(Long cartId, String email) {
+        stringRedisTemplate.execute(EVICT_SCRIPT, List.of(key(email), idKey(cartId)), cartId.toString());
+    }
+
+    /** Writes the cached state of one cart to Postgres now, e.g. before checkout. */
+    public void flush(String email) {
+        Optional<Cart> cached = readCached(Objects.requireNonNull(email, "email must not be null"));
+        cached.ifPresent(this::writeCart);
+    }
+
+    private void writeCart(Cart snapshot) {
+        transactionTemplate.executeWithoutResult(status -> cartRepository.findById(snapshot.getCartId())
+                .ifPresentOrElse(cart -> {
+                    cart.setEmail(snapshot.getEmail());
+                    cart.setItems(new ArrayList<>(snapshot.getItems()));
+                    cart.setTotalAmount(snapshot.getTotalAmount());
+                    cart.setPromoCode(snapshot.getPromoCode());
+                    cart.setDiscountAmount(snapshot.getDiscountAmount());
+                }, () -> log.debug("Cart {} was deleted before its changes were written", snapshot.getCartId())));
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.interval:2s}")
+    public void writeBehind() {
+        try {
+            ensureWriterGroup();
+            List<MapRecord<String, Object, Object>> records = new ArrayList<>(claimAbandoned());
+            List<MapRecord<String, Object, Object>> fresh = stringRedisTemplate.opsForStream().read(
+                    Consumer.from(WRITER_GROUP, consumerName),
+                    StreamReadOptions.empty().count(batchSize),
+                    StreamOffset.create(CHANGELOG_KEY, ReadOffset.lastConsumed()));
+            if (fresh != null) {
+                records.addAll(fresh);
+            }
+            if (records.isEmpty()) {
+                return;
+            }
+
+            Map<String, Set<String>> changes = coalesce(records);
+            Set<String> failed = new HashSet<>();
+            Map<String, String> rejected = new HashMap<>();
+            for (Map.Entry<String, Set<String>> change : changes.entrySet()) {
+                String email = change.getKey();
+                try {
+                    Optional<Cart> cached = readCached(email);
+                    if (cached.isEmpty()) {
+                        continue;
+                    }
+                    if (change.getValue() == null) {
+                        writeCart(cached.get());
+                    } else {
+                        writeLines(cached.get(), change.getValue());
+                    }
+                } catch (DataIntegrityViolationException ex) {
+                    // Retrying cannot help, e.g. the cart moved to an email that has an active cart.
+                    log.error("Postgres rejects the cached changes of {}, moving them to {}: {}",
+                            email, DEAD_LETTER_KEY, ex.getMessage());
+                    rejected.put(email, String.valueOf(ex.getMostSpecificCause().getMessage()));
+                } catch (RuntimeException ex) {
+                    failed.add(email);
+                    log.error("Failed to write cart of {} to Postgres, will retry: {}", email, ex.getMessage());
+                }
+            }
+
+            for (MapRecord<String, Object, Object> record : records) {
+                String error = rejected.get(String.valueOf(record.getValue().get(EMAIL_FIELD)));
+                if (error != null) {
+                    deadLetter(record, error);
+                }
+            }
+            RecordId[] written = records.stream()
+                    .filter(record -> !failed.contains(String.valueOf(record.getValue().get(EMAIL_FIELD))))
+                    .map(MapRecord::getId)
+                    .toArray(RecordId[]::new);
+            if (written.length > 0) {
+                stringRedisTemplate.opsForStream().acknowledge(CHANGELOG_KEY, WRITER_GROUP, written);
+            }
+            log.debug("Wrote {} carts from {} changelog entries", changes.size() - failed.size(), records.size());
+        } catch (RuntimeException ex) {
+            log.warn("Cart write-behind run failed: {}", ex.getMessage());
+        }
+    }
+
+    /** Per cart, the changed line fields, or null when a whole-cart write is pending. */
+    static Map<String, Set<String>> coalesce(List<MapRecord<String, Object, Object>> records) {
+        Map<String, Set<String>> changes = new LinkedHashMap<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            String email = String.valueOf(record.getValue().get(EMAIL_FIELD));
+            Object line = record.getValue().get(LINE_FIELD);
+            if (line == null) {
+                changes.put(email, null);
+            } else if (!changes.containsKey(email) || changes.get(email) != null) {
+                changes.computeIfAbsent(email, ignored -> new LinkedHashSet<>()).add(line.toString());
+            }
+        }
+        return changes;
+    }
+
+    private void deadLetter(MapRecord<String, Object, Object> record, String error) {
+        Map<String, String> entry = new LinkedHashMap<>();
+        record.getValue().forEach((field, value) -> entry.put(field.toString(), String.valueOf(value)));
+        entry.put("changelogId", record.getId().getValue());
+        entry.put("error", error);
+        stringRedisTemplate.opsForStream().add(DEAD_LETTER_KEY, entry,
+                XAddOptions.maxlen(changelogMaxLength).approximateTrimming(true));
+    }
+
+    /** Writes only the changed {@code cart_items} rows and the cart totals. */
+    private void writeLines(Cart snapshot, Set<String> lineFields) {
+        Map<String, CartItem> lines = new LinkedHashMap<>();
+        snapshot.getItems().forEach(item -> lines.put(lineField(item.getProductId(), item.getVariantId()), item));
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE carts SET total_amount = ?, updated_at = ?, version = version + 1 WHERE cart_id = ?",
+                    snapshot.getTotalAmount(), Timestamp.valueOf(snapshot.getUpdatedAt()), snapshot.getCartId());
+            if (updated == 0) {
+                log.debug("Cart {} was deleted before its changes were written", snapshot.getCartId());
+                return;
+            }
+            for (String field : lineFields) {
+                String[] ids = lineIds(field);
+                CartItem line = lines.get(field);
+                if (line == null) {
+                    jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ? AND product_id = ? AND variant_id = ?",
+                            snapshot.getCartId(), ids[0], ids[1]);
+                    continue;
+                }
+                int changed = jdbcTemplate.update(
+                        "UPDATE cart_items SET quantity = ?, unit_price = ? WHERE cart_id = ? AND product_id = ? AND variant_id = ?",
+                        line.getQuantity(), line.getUnitPrice(), snapshot.getCartId(), ids[0], ids[1]);
+                if (changed == 0) {
+                    jdbcTemplate.update(
+                            "INSERT INTO cart_items (cart_id, product_id, variant_id, quantity, unit_price) VALUES (?, ?, ?, ?, ?)",
+                            snapshot.getCartId(), ids[0], ids[1], line.getQuantity(), line.getUnitPrice());
+                }
+            }
+        });
+    }
+
+    /** Takes over entries another consumer read but never acknowledged, e.g. before a crash. */
+    private List<MapRecord<String, Object, Object>> claimAbandoned() {
+        RecordId[] abandoned = stringRedisTemplate.opsForStream()
+                .pending(CHANGELOG_KEY, WRITER_GROUP, Range.unbounded(), batchSize)
+                .stream()
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (abandoned.length == 0) {
+            return List.of();
+        }
+        log.info("Claiming {} abandoned cart changelog entries", abandoned.length);
+        return stringRedisTemplate.opsForStream().claim(CHANGELOG_KEY, WRITER_GROUP, consumerName, claimIdle, abandoned);
+    }
+
+    private void ensureWriterGroup() {
+        if (groupReady) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> createWriterGroup(connection));
+        } catch (RedisSystemException ex) {
+            if (ex.getMessage() == null || !ex.getMessage().contains("BUSYGROUP")) {
+                throw ex;
+            }
+        }
+        groupReady = true;
+    }
+
+    private static String createWriterGroup(RedisConnection connection) {
+        return connection.streamCommands().xGroupCreate(CHANGELOG_KEY.getBytes(StandardCharsets.UTF_8),
+                WRITER_GROUP, ReadOffset.from("0"), true);
+    }
+
+    private Optional<Cart> readCached(String email) {
+        Map<Object, Object> hash = stringRedisTemplate.opsForHash().entries(key(email));
+        if (hash.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            List<Map.Entry<Long, CartItem>> lines = new ArrayList<>();
+            for (Map.Entry<Object, Object> field : hash.entrySet()) {
+                String name = field.getKey().toString();
+                if (name.startsWith(LINE_PREFIX)) {
+                    String[] ids = lineIds(name);
+                    String[] value = field.getValue().toString().split("\\|", -1);
+                    lines.add(Map.entry(Long.valueOf(value[2]), CartItem.builder()
+                            .productId(ids[0])
+                            .variantId(ids[1])
+                            .quantity(Integer.valueOf(value[0]))
+                            .unitPrice(decimal(value[1]))
+                            .build()));
+                }
+            }
+            lines.sort(Map.Entry.comparingByKey());
+            return Optional.of(Cart.builder()
+                    .cartId(Long.valueOf(hash.get("cartId").toString()))
+                    .email(email)
+                    .items(new ArrayList<>(lines.stream().map(Map.Entry::getValue).toList()))
+                    .totalAmount(decimal(hash.get("totalAmount")))
+                    .promoCode(hash.containsKey("promoCode") ? hash.get("promoCode").toString() : null)
+                    .discountAmount(Optional.ofNullable(decimal(hash.get("discountAmount"))).orElse(BigDecimal.ZERO))
+                    .createdAt(timestamp(hash.get("createdAt")))
+                    .updatedAt(timestamp(hash.get("updatedAt")))
+                    .version(Optional.ofNullable(decimal(hash.get("version"))).map(BigDecimal::longValueExact).orElse(null))
+                    .build());
+        } catch (RuntimeException ex) {
+            log.warn("Dropping unreadable cached cart of {}: {}", email, ex.getMessage());
+            stringRedisTemplate.delete(key(email));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Caches a cart read from Postgres. {@code cart:<email>} holds the owner's active cart,
+     * so an inactive cart found by id is returned but never cached over it.
+     */
+    private void fill(Cart cart) {
+        if (Boolean.TRUE.equals(cart.getActive())) {
+            write(cart, MODE_FILL);
+        }
+    }
+
+    private Long write(Cart cart, String mode) {
+        return write(cart, mode, null);
+    }
+
+    private Long write(Cart cart, String mode, String requestKey) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("cartId", cart.getCartId().toString());
+        List<CartItem> items = cart.getItems() != null ? cart.getItems() : List.of();
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            fields.put(lineField(item.getProductId(), item.getVariantId()),
+                    item.getQuantity() + "|" + plain(item.getUnitPrice()) + "|" + i);
+        }
+        fields.put(NEXT_POSITION_FIELD, String.valueOf(items.size()));
+        putIfPresent(fields, "totalAmount", cart.getTotalAmount() != null ? cart.getTotalAmount().toPlainString() : null);
+        putIfPresent(fields, "promoCode", cart.getPromoCode());
+        putIfPresent(fields, "discountAmount", cart.getDiscountAmount() != null ? cart.getDiscountAmount().toPlainString() : null);
+        putIfPresent(fields, "createdAt", cart.getCreatedAt() != null ? cart.getCreatedAt().toString() : null);
+        putIfPresent(fields, "updatedAt", cart.getUpdatedAt() != null ? cart.getUpdatedAt().toString() : null);
+
+        List<String> args = new ArrayList<>(List.of(String.valueOf(ttl.toMillis()), cart.getEmail(), mode,
+                String.valueOf(changelogMaxLength), version(cart),
+                requestKey == null ? "" : checkRequestKey(requestKey), String.valueOf(idempotencyKeys)));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        return stringRedisTemplate.execute(SAVE_SCRIPT,
+                List.of(key(cart.getEmail()), idKey(cart.getCartId()), CHANGELOG_KEY), args.toArray());
+    }
+
+    private static void putIfPresent(Map<String, String> fields, String field, String value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value == null || value.toString().isEmpty() ? null : new BigDecimal(value.toString());
+    }
+
+    private static String version(Cart cart) {
+        return cart.getVersion() == null ? "" : cart.getVersion().toString();
+    }
+
+    private static String checkRequestKey(String requestKey) {
+        if (!REQUEST_KEY.matcher(requestKey).matches()) {
+            throw new AppException(ErrorCode.INVALID_IDEMPOTENCY_KEY);
+        }
+        return requestKey;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+
+    static String[] lineIds(String field) {
+        String ids = field.substring(LINE_PREFIX.length());
+        int separator = ids.indexOf(':');
+        return new String[]{ids.substring(0, separator), ids.substring(separator + 1)};
+    }
+
+    private static LocalDateTime timestamp(Object value) {
+        return value == null ? null : LocalDateTime.parse(value.toString());
+    }
+
+    static String key(String email) {
+        return KEY_PREFIX + email;
+    }
+
+    static String lineField(String productId, String variantId) {
+        return LINE_PREFIX + productId + ":" + variantId;
+    }
+
+    static String idKey(Long cartId) {
+        return ID_KEY_PREFIX + cartId;
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.phuc.cart.quote;
+
+import com.phuc.cart.cache.ShopOwnerCache;
+import com.phuc.cart.dto.ApiResponse;
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.exception.AppException;
+import com.phuc.cart.exception.ErrorCode;
+import com.phuc.cart.httpclient.ProductClient;
+import com.phuc.cart.httpclient.ShopClient;
+import com.phuc.cart.httpclient.request.ProductLookupRequest;
+import com.phuc.cart.httpclient.response.ProductLookupResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartQuoteEngineTest {
+
+    final ProductClient productClient = mock(ProductClient.class);
+    final ShopClient shopClient = mock(ShopClient.class);
+    final ShopOwnerCache shopOwnerCache = new ShopOwnerCache(new SimpleMeterRegistry(), 100,
+            Duration.ofMinutes(10), Duration.ofMinutes(1));
+    final CartQuoteEngine engine = new CartQuoteEngine(productClient, shopClient, shopOwnerCache,
+            2, Duration.ofSeconds(2));
+
+    CartQuoteEngineTest() {
+        when(productClient.lookupProducts(any(), any())).thenAnswer(invocation -> {
+            ProductLookupRequest request = invocation.getArgument(1);
+            return ApiResponse.<List<ProductLookupResponse>>builder()
+                    .result(request.getItems().stream()
+                            .map(item -> ProductLookupResponse.builder()
+                                    .productId(item.getProductId())
+                                    .variantId(item.getVariantId())
+                                    .exists(!item.getProductId().equals("missing"))
+                                    .shopId("shop-" + item.getProductId().charAt(0))
+                                    .price(10.0)
+                                    .build())
+                            .toList())
+                    .build();
+        });
+        when(shopClient.getOwnerUsernameByShopId(any(), anyString())).thenAnswer(invocation ->
+                ApiResponse.<String>builder().result(invocation.getArgument(1) + "@example.com").build());
+    }
+
+    @Test
+    void quotesDistinctLinesInBatchesAndOwnersOncePerShop() {
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(item("a" + i, "v", 2));
+            items.add(item("a" + i, "v", 1));
+        }
+
+        CartQuote quote = engine.quote(items, true);
+
+        assertThat(quote.subtotal(items)).isEqualByComparingTo(BigDecimal.valueOf(150));
+        verify(productClient, times(3)).lookupProducts(any(), any());
+        verify(shopClient, times(1)).getOwnerUsernameByShopId(any(), eq("shop-a"));
+        assertThatThrownBy(() -> quote.requireNotOwnedBy(items, "SHOP-A@example.com"))
+                .isInstanceOf(AppException.class)
+                .extracting(ex -> ((AppException) ex).getErrorCode())
+                .isEqualTo(ErrorCode.CANNOT_ADD_OWN_PRODUCT);
+    }
+
+    @Test
+    void servesOwnersFromCacheIncludingShopsWithoutOwner() {
+        when(shopClient.getOwnerUsernameByShopId(any(), eq("shop-n"))).thenReturn(ApiResponse.<String>builder().build());
+        List<CartItem> items = List.of(item("a1", "v", 1), item("n1", "v", 1));
+
+        engine.quote(items, true);
+        CartQuote quote = engine.quote(items, true);
+
+        verify(shopClient, times(1)).getOwnerUsernameByShopId(any(), eq("shop-a"));
+        verify(shopClient, times(1)).getOwnerUsernameByShopId(any(), eq("shop-n"));
+        assertThat(quote.shopOwners()).containsOnlyKeys("shop-a");
+
+        shopOwnerCache.invalidate("shop-a");
+        engine.quote(items, true);
+        verify(shopClient, times(2)).getOwnerUsernameByShopId(any(), eq("shop-a"));
+    }
+
+    @Test
+    void passesTheCallersAuthorizationToEveryCall() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer buyer-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            engine.quote(List.of(item("a1", "v", 1), item("b1", "v", 1), item("c1", "v", 1)), true);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        verify(productClient, times(2)).lookupProducts(eq("Bearer buyer-token"), any());
+        verify(shopClient, times(3)).getOwnerUsernameByShopId(eq("Bearer buyer-token"), anyString());
+    }
+
+    @Test
+    void rejectsMissingProducts() {
+        List<CartItem> items = List.of(item("b1", "v", 1), item("missing", "v", 1));
+
+        CartQuote quote = engine.quote(items, false);
+
+        assertThatThrownBy(() -> quote.requireAvailable(items))
+                .isInstanceOf(AppException.class)
+                .extracting(ex -> ((AppException) ex).getErrorCode())
+                .isEqualTo(ErrorCode.PRODUCT_NOT_FOUND);
+    }
+
+    private static CartItem item(String productId, String variantId, int quantity) {
+        return CartItem.builder().productId(productId).variantId(variantId).quantity(quantity).build();
+    }
+
+}
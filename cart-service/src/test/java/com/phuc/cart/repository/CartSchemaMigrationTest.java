@@ -0,0 +1,80 @@
+package com.phuc.cart.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartSchemaMigrationTest {
+
+    final JdbcTemplate session = mock(JdbcTemplate.class);
+    final CartSchemaMigration migration = new CartSchemaMigration(mock(JdbcTemplate.class));
+
+    @Test
+    void leavesValidIndexesAndActiveCartsAlone() {
+        indexState(CartSchemaMigration.CART_ITEMS_INDEX, List.of(true));
+        indexState(CartSchemaMigration.ACTIVE_EMAIL_INDEX, List.of(true));
+
+        migration.migrate(session);
+
+        verify(session, never()).update(CartSchemaMigration.DEACTIVATE_DUPLICATES);
+        verify(session, never()).execute(startsWith("CREATE INDEX"));
+        verify(session, never()).execute(startsWith("CREATE UNIQUE INDEX"));
+        verify(session, never()).execute(startsWith("DROP INDEX"));
+    }
+
+    @Test
+    void deduplicatesBeforeBuildingAMissingUniqueIndex() {
+        indexState(CartSchemaMigration.CART_ITEMS_INDEX, List.of(true));
+        indexState(CartSchemaMigration.ACTIVE_EMAIL_INDEX, List.of());
+
+        migration.migrate(session);
+
+        InOrder order = inOrder(session);
+        order.verify(session).execute(contains("pg_advisory_lock"));
+        order.verify(session).update(CartSchemaMigration.DEACTIVATE_DUPLICATES);
+        order.verify(session).execute(startsWith("CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS "
+                + CartSchemaMigration.ACTIVE_EMAIL_INDEX));
+        order.verify(session).execute(contains("pg_advisory_unlock"));
+    }
+
+    @Test
+    void rebuildsAnInvalidIndex() {
+        indexState(CartSchemaMigration.CART_ITEMS_INDEX, List.of(false));
+        indexState(CartSchemaMigration.ACTIVE_EMAIL_INDEX, List.of(true));
+
+        migration.migrate(session);
+
+        InOrder order = inOrder(session);
+        order.verify(session).execute("DROP INDEX CONCURRENTLY IF EXISTS " + CartSchemaMigration.CART_ITEMS_INDEX);
+        order.verify(session).execute(startsWith("CREATE INDEX CONCURRENTLY IF NOT EXISTS "
+                + CartSchemaMigration.CART_ITEMS_INDEX));
+        verify(session, never()).update(CartSchemaMigration.DEACTIVATE_DUPLICATES);
+    }
+
+    @Test
+    void releasesTheLockWhenAStepFails() {
+        when(session.queryForList(anyString(), eq(Boolean.class), anyString()))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        assertThatThrownBy(() -> migration.migrate(session)).isInstanceOf(IllegalStateException.class);
+
+        verify(session).execute(contains("pg_advisory_unlock"));
+    }
+
+    private void indexState(String name, List<Boolean> valid) {
+        when(session.queryForList(anyString(), eq(Boolean.class), eq(name))).thenReturn(valid);
+    }
+}
@@ -0,0 +1,192 @@
+package com.phuc.cart.service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phuc.cart.dto.request.CartItemCreationRequest;
+import com.phuc.cart.dto.request.CartItemQuantityRequest;
+import com.phuc.cart.dto.response.CartItemResponse;
+import com.phuc.cart.dto.response.CartResponse;
+import com.phuc.cart.entity.Cart;
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.httpclient.OrderClient;
+import com.phuc.cart.httpclient.PaymentClient;
+import com.phuc.cart.httpclient.PromotionClient;
+import com.phuc.cart.httpclient.response.ProductLookupResponse;
+import com.phuc.cart.mapper.CartMapperImpl;
+import com.phuc.cart.quote.CartQuote;
+import com.phuc.cart.quote.CartQuoteEngine;
+import com.phuc.cart.repository.CartRepository;
+import com.phuc.cart.store.CartStore;
+import com.phuc.cart.store.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartServiceImplTest {
+
+    static final String EMAIL = "buyer@example.com";
+    static final Long CART_ID = 7L;
+    static final String UPDATE_CART = "UPDATE carts SET total_amount = ?, updated_at = ?, version = version + 1 WHERE cart_id = ?";
+    static final String UPDATE_LINE = "UPDATE cart_items SET quantity = ?, unit_price = ? WHERE cart_id = ? AND product_id = ? AND variant_id = ?";
+
+    static EmbeddedRedis embeddedRedis;
+    static StringRedisTemplate redis;
+
+    final CartRepository cartRepository = mock(CartRepository.class);
+    final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    final CartQuoteEngine cartQuoteEngine = mock(CartQuoteEngine.class);
+    final CartStore cartStore = new CartStore(redis, cartRepository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), jdbcTemplate,
+            Duration.ofDays(1), 500, Duration.ofSeconds(30), 1000, 16, 3);
+    final CartServiceImpl service = new CartServiceImpl(cartRepository, cartStore, new CartMapperImpl(),
+            mock(OrderClient.class), mock(PaymentClient.class), mock(PromotionClient.class), cartQuoteEngine,
+            new ObjectMapper());
+
+    @BeforeAll
+    static void startRedis() {
+        embeddedRedis = EmbeddedRedis.start();
+        redis = embeddedRedis.template();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        embeddedRedis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        embeddedRedis.flush();
+        // p1 costs 5.00 now, up from the 4.00 its line was quoted at.
+        when(cartQuoteEngine.quote(any(), anyBoolean())).thenReturn(new CartQuote(Map.of(
+                CartQuote.key("p1", "v1"), lookup("p1", "v1", 5.0),
+                CartQuote.key("p3", "v3"), lookup("p3", "v3", 2.5)), Map.of()));
+        when(cartRepository.findById(CART_ID)).thenReturn(Optional.of(cart()));
+        cartStore.findById(CART_ID);
+    }
+
+    @Test
+    void addsANewLineAtTheEndAndAddsItsTotal() {
+        CartResponse response = service.addItem(CART_ID, item("p3", "v3", 2), null);
+
+        assertThat(response.getItems()).extracting(CartItemResponse::getVariantId).containsExactly("v1", "v2", "v3");
+        assertThat(response.getTotalAmount()).isEqualByComparingTo("15.00");
+        assertThat(reread().getTotalAmount()).isEqualByComparingTo("15.00");
+        assertThat(lastChange()).containsEntry("line", "line:p3:v3");
+    }
+
+    @Test
+    void addingToALineRepricesOnlyThatLine() {
+        CartResponse response = service.addItem(CART_ID, item("p1", "v1", 1), null);
+
+        // 10.00 - 1 x 4.00 + 2 x 5.00
+        assertThat(response.getTotalAmount()).isEqualByComparingTo("16.00");
+        CartItem line = reread().getItems().get(0);
+        assertThat(line.getQuantity()).isEqualTo(2);
+        assertThat(line.getUnitPrice()).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void settingAQuantityKeepsTheLinePositionAndCachedPrice() {
+        CartResponse response = service.updateItemQuantity(CART_ID, "v1", new CartItemQuantityRequest(3), null);
+
+        // 10.00 + (3 - 1) x 4.00, without a product lookup
+        assertThat(response.getTotalAmount()).isEqualByComparingTo("18.00");
+        assertThat(reread().getItems()).extracting(CartItem::getVariantId, CartItem::getQuantity)
+                .containsExactly(tuple("v1", 3), tuple("v2", 2));
+    }
+
+    @Test
+    void removingALineSubtractsItsTotal() {
+        CartResponse response = service.removeItem(CART_ID, "v2", null);
+
+        assertThat(response.getTotalAmount()).isEqualByComparingTo("4.00");
+        assertThat(redis.opsForHash().hasKey("cart:" + EMAIL, "line:p2:v2")).isFalse();
+        assertThat(reread().getItems()).extracting(CartItem::getVariantId).containsExactly("v1");
+    }
+
+    @Test
+    void retriedAddIsAppliedOnce() {
+        service.addItem(CART_ID, item("p3", "v3", 2), "add-p3");
+        CartResponse retried = service.addItem(CART_ID, item("p3", "v3", 2), "add-p3");
+
+        assertThat(retried.getTotalAmount()).isEqualByComparingTo("15.00");
+        assertThat(reread().getItems()).filteredOn(line -> line.getVariantId().equals("v3"))
+                .singleElement().extracting(CartItem::getQuantity).isEqualTo(2);
+    }
+
+    @Test
+    void writesOnlyTheChangedRowsBehind() {
+        service.updateItemQuantity(CART_ID, "v1", new CartItemQuantityRequest(3), null);
+        service.removeItem(CART_ID, "v2", null);
+        service.addItem(CART_ID, item("p3", "v3", 1), null);
+        when(jdbcTemplate.update(eq(UPDATE_CART), any(), any(), eq(CART_ID))).thenReturn(1);
+        when(jdbcTemplate.update(eq(UPDATE_LINE), any(), any(), eq(CART_ID), eq("p1"), eq("v1"))).thenReturn(1);
+
+        cartStore.writeBehind();
+
+        verify(jdbcTemplate).update(eq(UPDATE_CART),
+                eq(new BigDecimal("14.50")), any(), eq(CART_ID));
+        verify(jdbcTemplate).update(eq(UPDATE_LINE),
+                eq(3), eq(new BigDecimal("4.00")), eq(CART_ID), eq("p1"), eq("v1"));
+        verify(jdbcTemplate).update("DELETE FROM cart_items WHERE cart_id = ? AND product_id = ? AND variant_id = ?",
+                CART_ID, "p2", "v2");
+        verify(jdbcTemplate).update(eq("INSERT INTO cart_items (cart_id, product_id, variant_id, quantity, unit_price) VALUES (?, ?, ?, ?, ?)"),
+                eq(CART_ID), eq("p3"), eq("v3"), eq(1), eq(new BigDecimal("2.5")));
+    }
+
+    private Cart reread() {
+        return cartStore.findById(CART_ID).orElseThrow();
+    }
+
+    private Map<Object, Object> lastChange() {
+        List<MapRecord<String, Object, Object>> entries =
+                redis.opsForStream().reverseRange("cart-changelog", Range.unbounded());
+        return entries.get(0).getValue();
+    }
+
+    private static Cart cart() {
+        return Cart.builder()
+                .cartId(CART_ID)
+                .email(EMAIL)
+                .items(new ArrayList<>(List.of(
+                        CartItem.builder().productId("p1").variantId("v1").quantity(1).unitPrice(new BigDecimal("4.00")).build(),
+                        CartItem.builder().productId("p2").variantId("v2").quantity(2).unitPrice(new BigDecimal("3.00")).build())))
+                .totalAmount(new BigDecimal("10.00"))
+                .createdAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .updatedAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .version(0L)
+                .build();
+    }
+
+    private static CartItemCreationRequest item(String productId, String variantId, int quantity) {
+        return CartItemCreationRequest.builder().productId(productId).variantId(variantId).quantity(quantity).build();
+    }
+
+    private static ProductLookupResponse lookup(String productId, String variantId, double price) {
+        return ProductLookupResponse.builder().productId(productId).variantId(variantId).exists(true)
+                .shopId("shop-1").price(price).build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.phuc.cart.store;
+
+import com.phuc.cart.repository.CartRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartReaperTest {
+
+    static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE cart_id = ANY (?)";
+
+    static EmbeddedRedis embeddedRedis;
+    static StringRedisTemplate redis;
+
+    final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    final CartStore cartStore = new CartStore(redis, mock(CartRepository.class), transactionTemplate, jdbcTemplate,
+            Duration.ofDays(1), 500, Duration.ofSeconds(30), 1000, 16, 3);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void startRedis() {
+        embeddedRedis = EmbeddedRedis.start();
+        redis = embeddedRedis.template();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        embeddedRedis.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        embeddedRedis.flush();
+    }
+
+    @Test
+    void archivesIdleCartsInBatchesAndDropsTheirCachedCopies() {
+        batch(0, reaped(1, "a@example.com"), reaped(2, "b@example.com"));
+        batch(2, reaped(3, "c@example.com"));
+        cache(1, "a@example.com");
+        cache(3, "c@example.com");
+
+        reaper(2, 10, true).reap();
+
+        verify(jdbcTemplate, times(2)).update(eq(CartReaper.ARCHIVE_BATCH), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate, times(2)).update(eq(DELETE_ITEMS), any(PreparedStatementSetter.class));
+        assertThat(redis.hasKey(CartStore.key("a@example.com"))).isFalse();
+        assertThat(redis.hasKey(CartStore.idKey(3L))).isFalse();
+        assertThat(redis.opsForValue().get(CartReaper.CURSOR_KEY)).isEqualTo("0");
+        assertThat(meterRegistry.counter("cart.reaper.carts", "outcome", "archived").count()).isEqualTo(3);
+        assertThat(redis.hasKey(CartReaper.LOCK_KEY)).isFalse();
+    }
+
+    @Test
+    void resumesFromWhereACutShortRunStopped() {
+        batch(0, reaped(1, "a@example.com"), reaped(2, "b@example.com"));
+        batch(2, reaped(3, "c@example.com"));
+        CartReaper reaper = reaper(2, 1, true);
+
+        reaper.reap();
+        assertThat(redis.opsForValue().get(CartReaper.CURSOR_KEY)).isEqualTo("2");
+
+        reaper.reap();
+        verify(jdbcTemplate).query(eq(CartReaper.SELECT_BATCH), any(RowMapper.class), eq(2L), any(), eq(2));
+        assertThat(redis.opsForValue().get(CartReaper.CURSOR_KEY)).isEqualTo("0");
+    }
+
+    @Test
+    void deletesWithoutArchivingWhenArchivingIsOff() {
+        batch(0, reaped(1, "a@example.com"));
+
+        reaper(2, 10, false).reap();
+
+        verify(jdbcTemplate, never()).update(eq(CartReaper.ARCHIVE_BATCH), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate).update(eq(DELETE_ITEMS), any(PreparedStatementSetter.class));
+        assertThat(meterRegistry.counter("cart.reaper.carts", "outcome", "deleted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesTheSweepToTheInstanceHoldingTheLock() {
+        redis.opsForValue().set(CartReaper.LOCK_KEY, "another-instance");
+
+        reaper(2, 10, true).reap();
+
+        verify(jdbcTemplate, never()).query(eq(CartReaper.SELECT_BATCH), any(RowMapper.class), anyLong(), any(), any());
+        assertThat(redis.opsForValue().get(CartReaper.LOCK_KEY)).isEqualTo("another-instance");
+    }
+
+    private CartReaper reaper(int batchSize, int maxBatches, boolean archive) {
+        return new CartReaper(redis, jdbcTemplate, transactionTemplate, cartStore, meterRegistry,
+                Duration.ofDays(30), batchSize, maxBatches, archive);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void batch(long after, CartReaper.ReapedCart... carts) {
+        when(jdbcTemplate.query(eq(CartReaper.SELECT_BATCH), any(RowMapper.class), eq(after), any(), any()))
+                .thenReturn(List.of(carts));
+    }
+
+    private void cache(long cartId, String email) {
+        redis.opsForHash().put(CartStore.key(email), "cartId", String.valueOf(cartId));
+        redis.opsForValue().set(CartStore.idKey(cartId), email);
+    }
+
+    private static CartReaper.ReapedCart reaped(long cartId, String email) {
+        return new CartReaper.ReapedCart(cartId, email, LocalDateTime.now().minusDays(40));
+    }
+}
@@ -0,0 +1,289 @@
+package com.phuc.cart.store;
+
+import com.phuc.cart.entity.Cart;
+import com.phuc.cart.entity.CartItem;
+import com.phuc.cart.exception.AppException;
+import com.phuc.cart.exception.ErrorCode;
+import com.phuc.cart.repository.CartRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartStoreTest {
+
+    static final String EMAIL = "buyer@example.com";
+    static final Long CART_ID = 7L;
+
+    static EmbeddedRedis embeddedRedis;
+    static StringRedisTemplate redis;
+
+    final CartRepository cartRepository = mock(CartRepository.class);
+    final CartStore store = new CartStore(redis, cartRepository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(JdbcTemplate.class),
+            Duration.ofDays(1), 500, Duration.ofSeconds(30), 1000, 16, 3);
+
+    @BeforeAll
+    static void startRedis() {
+        embeddedRedis = EmbeddedRedis.start();
+        redis = embeddedRedis.template();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        embeddedRedis.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        embeddedRedis.flush();
+    }
+
+    @Test
+    void splitsLineFieldsAtTheFirstSeparatorAfterTheProductId() {
+        String field = CartStore.lineField("65f1c0ffee", "size:XL");
+
+        assertThat(field).isEqualTo("line:65f1c0ffee:size:XL");
+        assertThat(CartStore.lineIds(field)).containsExactly("65f1c0ffee", "size:XL");
+    }
+
+    @Test
+    void coalescesChangelogEntriesPerCart() {
+        List<MapRecord<String, Object, Object>> records = List.of(
+                entry("a@example.com", "line:p1:v1"),
+                entry("a@example.com", "line:p2:v2"),
+                entry("a@example.com", "line:p1:v1"),
+                entry("b@example.com", "line:p1:v1"),
+                entry("b@example.com", null),
+                entry("b@example.com", "line:p3:v3"),
+                entry("c@example.com", null));
+
+        Map<String, Set<String>> changes = CartStore.coalesce(records);
+
+        assertThat(changes.keySet()).containsExactly("a@example.com", "b@example.com", "c@example.com");
+        assertThat(changes.get("a@example.com")).containsExactly("line:p1:v1", "line:p2:v2");
+        assertThat(changes.get("b@example.com")).isNull();
+        assertThat(changes.get("c@example.com")).isNull();
+    }
+
+    @Test
+    void fillLeavesACachedCartAlone() {
+        when(cartRepository.findByEmailAndActiveTrue(EMAIL)).thenReturn(Optional.of(cart("10.00")));
+        store.findByEmail(EMAIL);
+
+        when(cartRepository.findByEmailAndActiveTrue(EMAIL)).thenReturn(Optional.of(cart("99.00")));
+        Cart cached = store.findByEmail(EMAIL).orElseThrow();
+
+        assertThat(cached.getTotalAmount()).isEqualByComparingTo("10.00");
+        assertThat(cached.getItems()).extracting(CartItem::getProductId).containsExactly("p1", "p2");
+        assertThat(redis.opsForStream().size(CartStore.CHANGELOG_KEY)).isZero();
+    }
+
+    @Test
+    void neverCachesAnInactiveCartFoundById() {
+        Cart inactive = cart("10.00");
+        inactive.setActive(false);
+        when(cartRepository.findById(CART_ID)).thenReturn(Optional.of(inactive));
+
+        assertThat(store.findById(CART_ID)).get().extracting(Cart::getActive).isEqualTo(false);
+        assertThat(redis.hasKey(CartStore.key(EMAIL))).isFalse();
+
+        when(cartRepository.findById(CART_ID)).thenReturn(Optional.of(cart("10.00")));
+        store.findById(CART_ID);
+
+        assertThat(redis.hasKey(CartStore.key(EMAIL))).isTrue();
+    }
+
+    @Test
+    void appliesAWriteAndLogsIt() {
+        Cart cart = cached();
+        cart.setTotalAmount(new BigDecimal("12.50"));
+
+        Cart saved = store.save(cart);
+
+        assertThat(saved.getVersion()).isEqualTo(1L);
+        Cart reread = store.findByEmail(EMAIL).orElseThrow();
+        assertThat(reread.getTotalAmount()).isEqualByComparingTo("12.50");
+        assertThat(reread.getVersion()).isEqualTo(1L);
+        assertThat(redis.opsForStream().size(CartStore.CHANGELOG_KEY)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAWriteFromAStaleRead() {
+        Cart first = cached();
+        Cart second = store.findByEmail(EMAIL).orElseThrow();
+        store.save(first);
+
+        assertThatThrownBy(() -> store.save(second))
+                .isInstanceOfSatisfying(AppException.class,
+                        ex -> assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.CART_MODIFIED));
+        assertThat(redis.opsForStream().size(CartStore.CHANGELOG_KEY)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAWriteToAnEvictedCart() {
+        Cart cart = cached();
+        store.evict(CART_ID, EMAIL);
+
+        assertThatThrownBy(() -> store.save(cart))
+                .isInstanceOfSatisfying(AppException.class,
+                        ex -> assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.CART_MODIFIED));
+        assertThat(redis.hasKey(CartStore.key(EMAIL))).isFalse();
+    }
+
+    @Test
+    void movesACartWhoseEmailChanged() {
+        Cart cart = cached();
+        cart.setEmail("new@example.com");
+        redis.opsForHash().put(CartStore.key("new@example.com"), "cartId", CART_ID.toString());
+        redis.opsForHash().put(CartStore.key("new@example.com"), "version", "0");
+
+        store.save(cart);
+
+        assertThat(redis.hasKey(CartStore.key(EMAIL))).isFalse();
+        assertThat(store.findById(CART_ID)).get().extracting(Cart::getEmail).isEqualTo("new@example.com");
+    }
+
+    @Test
+    void writesTheLatestStateBehindAndAcknowledges() {
+        Cart cart = cached();
+        cart.setTotalAmount(new BigDecimal("30.00"));
+        store.save(cart);
+        cart = store.findByEmail(EMAIL).orElseThrow();
+        cart.setPromoCode("SPRING");
+        store.save(cart);
+        Cart stored = cart("10.00");
+        when(cartRepository.findById(CART_ID)).thenReturn(Optional.of(stored));
+
+        store.writeBehind();
+
+        assertThat(stored.getTotalAmount()).isEqualByComparingTo("30.00");
+        assertThat(stored.getPromoCode()).isEqualTo("SPRING");
+        assertThat(redis.opsForStream().pending(CartStore.CHANGELOG_KEY, CartStore.WRITER_GROUP)
+                .getTotalPendingMessages()).isZero();
+    }
+
+    @Test
+    void deadLettersChangesPostgresRejects() {
+        Cart cart = cached();
+        store.save(cart);
+        when(cartRepository.findById(CART_ID)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        store.writeBehind();
+
+        List<MapRecord<String, Object, Object>> dead = redis.opsForStream()
+                .range(CartStore.DEAD_LETTER_KEY, Range.unbounded());
+        assertThat(dead).hasSize(1);
+        assertThat(dead.get(0).getValue()).containsEntry("email", EMAIL).containsEntry("error", "duplicate key")
+                .containsKey("changelogId");
+        assertThat(redis.opsForStream().pending(CartStore.CHANGELOG_KEY, CartStore.WRITER_GROUP)
+                .getTotalPendingMessages()).isZero();
+        assertThat(redis.hasKey(CartStore.key(EMAIL))).isTrue();
+    }
+
+    @Test
+    void acknowledgesARepeatedRequestWithoutApplyingItAgain() {
+        Cart first = cached();
+        Cart retry = store.findByEmail(EMAIL).orElseThrow();
+        first.setTotalAmount(new BigDecimal("20.00"));
+        store.save(first, "req-1");
+
+        retry.setTotalAmount(new BigDecimal("99.00"));
+        Cart replayed = store.save(retry, "req-1");
+
+        assertThat(replayed.getTotalAmount()).isEqualByComparingTo("20.00");
+        assertThat(replayed.getVersion()).isEqualTo(1L);
+        assertThat(store.isReplay(EMAIL, "req-1")).isTrue();
+        assertThat(store.isReplay(EMAIL, "req-2")).isFalse();
+        assertThat(redis.opsForStream().size(CartStore.CHANGELOG_KEY)).isEqualTo(1);
+    }
+
+    @Test
+    void acknowledgesARepeatedLineRequest() {
+        Cart cart = cached();
+        cart.getItems().get(0).setQuantity(5);
+        store.saveLine(cart, "p1", "v1", "line-1");
+
+        Cart stale = cart("10.00");
+        stale.getItems().get(0).setQuantity(9);
+        Cart replayed = store.saveLine(stale, "p1", "v1", "line-1");
+
+        assertThat(replayed.getItems().get(0).getQuantity()).isEqualTo(5);
+        assertThat(redis.opsForStream().size(CartStore.CHANGELOG_KEY)).isEqualTo(1);
+    }
+
+    @Test
+    void remembersOnlyTheLatestRequestKeys() {
+        cached();
+        for (int i = 0; i <= 16; i++) {
+            store.save(store.findByEmail(EMAIL).orElseThrow(), "req-" + i);
+        }
+
+        assertThat(store.isReplay(EMAIL, "req-0")).isFalse();
+        assertThat(store.isReplay(EMAIL, "req-1")).isTrue();
+        assertThat(store.isReplay(EMAIL, "req-16")).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedRequestKeys() {
+        Cart cart = cached();
+
+        assertThatThrownBy(() -> store.save(cart, "two words"))
+                .isInstanceOfSatisfying(AppException.class,
+                        ex -> assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_IDEMPOTENCY_KEY));
+        assertThatThrownBy(() -> store.saveLine(cart, "p1", "v1", "x".repeat(65)))
+                .isInstanceOf(AppException.class);
+    }
+
+    private Cart cached() {
+        when(cartRepository.findByEmailAndActiveTrue(EMAIL)).thenReturn(Optional.of(cart("10.00")));
+        return store.findByEmail(EMAIL).orElseThrow();
+    }
+
+    static Cart cart(String total) {
+        return Cart.builder()
+                .cartId(CART_ID)
+                .email(EMAIL)
+                .items(new ArrayList<>(List.of(
+                        CartItem.builder().productId("p1").variantId("v1").quantity(1).unitPrice(new BigDecimal("4.00")).build(),
+                        CartItem.builder().productId("p2").variantId("v2").quantity(2).unitPrice(new BigDecimal("3.00")).build())))
+                .totalAmount(new BigDecimal(total))
+                .createdAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .updatedAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .version(0L)
+                .build();
+    }
+
+    private static MapRecord<String, Object, Object> entry(String email, String line) {
+        Map<Object, Object> fields = new LinkedHashMap<>();
+        fields.put(CartStore.EMAIL_FIELD, email);
+        if (line != null) {
+            fields.put(CartStore.LINE_FIELD, line);
+        }
+        return StreamRecords.newRecord().in(CartStore.CHANGELOG_KEY).withId(RecordId.autoGenerate()).ofMap(fields);
+    }
+}
@@ -45,4 +45,8 @@ public class Order {
 
     @Column(columnDefinition = "TEXT")
     String sessionUrl;
+
+    /** Random key of the order's stock hold in product-service; never derived from the order id. */
+    @Column(length = 36, unique = true)
+    String reservationReference;
 }
@@ -2,10 +2,15 @@ package com.phuc.order.httpclient;
 
 import com.phuc.order.configuration.AuthenticationRequestInterceptor;
 import com.phuc.order.dto.ApiResponse;
+import com.phuc.order.httpclient.dto.ProductLookupRequest;
+import com.phuc.order.httpclient.dto.ProductLookupResponse;
+import com.phuc.order.httpclient.dto.ReservationRequest;
+import com.phuc.order.httpclient.dto.ReservationResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(name = "product-service", url = "${product.service.url}", configuration = {AuthenticationRequestInterceptor.class})
@@ -33,4 +38,21 @@ public interface ProductClient {
     ApiResponse<Void> updateStockAndSoldQuantity(@PathVariable String productId,
                                                @PathVariable String variantId,
                                                @RequestBody Integer quantity);
+
+    @PostMapping(value = "/products/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<List<ProductLookupResponse>> lookupProducts(@RequestBody ProductLookupRequest request);
+
+    String INTERNAL_TOKEN_HEADER = "X-Internal-Token";
+
+    @PostMapping(value = "/reservations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<ReservationResponse> reserveStock(@RequestBody ReservationRequest request,
+                                                  @RequestHeader(INTERNAL_TOKEN_HEADER) String internalToken);
+
+    @PostMapping("/reservations/{reference}/confirm")
+    ApiResponse<ReservationResponse> confirmReservation(@PathVariable String reference,
+                                                        @RequestHeader(INTERNAL_TOKEN_HEADER) String internalToken);
+
+    @PostMapping("/reservations/{reference}/release")
+    ApiResponse<ReservationResponse> releaseReservation(@PathVariable String reference,
+                                                        @RequestHeader(INTERNAL_TOKEN_HEADER) String internalToken);
 }
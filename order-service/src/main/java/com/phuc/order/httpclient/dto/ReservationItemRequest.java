@@ -0,0 +1,17 @@
+package com.phuc.order.httpclient.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationItemRequest {
+
+    String productId;
+    String variantId;
+    Integer quantity;
+
+}
@@ -0,0 +1,18 @@
+package com.phuc.order.httpclient.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationRequest {
+
+    String reference;
+    List<ReservationItemRequest> items;
+
+}
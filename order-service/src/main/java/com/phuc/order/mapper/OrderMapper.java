@@ -19,6 +19,7 @@ public interface OrderMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "sessionUrl", ignore = true)
+    @Mapping(target = "reservationReference", ignore = true)
     Order toOrder(OrderCreationRequest request);
 
     OrderItemResponse toOrderItemResponse(OrderItem orderItem);
@@ -10,6 +10,8 @@ import com.phuc.order.exception.ErrorCode;
 import com.phuc.order.httpclient.PaymentClient;
 import com.phuc.order.httpclient.dto.CreateCheckoutSessionRequest;
 import com.phuc.order.httpclient.ProductClient;
+import com.phuc.order.httpclient.dto.ReservationItemRequest;
+import com.phuc.order.httpclient.dto.ReservationRequest;
 import com.phuc.order.mapper.OrderMapper;
 import com.phuc.order.repository.OrderItemRepository;
 import com.phuc.order.repository.OrderRepository;
@@ -19,7 +21,9 @@ import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -27,6 +31,8 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -34,12 +40,24 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class OrderServiceImpl implements OrderService {
 
+    /** Reference of holds taken before orders carried their own random one. */
+    static final String LEGACY_RESERVATION_REFERENCE_PREFIX = "order-";
+    static final Set<String> RELEASING_STATUSES = Set.of("CANCELLED", "FAILED");
+    static final int CONFIRM_ATTEMPTS = 3;
+    /** product-service answers 404 for an unknown reservation and 410 once it is no longer pending. */
+    static final Set<Integer> RESERVATION_GONE_STATUSES = Set.of(404, 410);
+
     ProductClient productClient;
     PaymentClient paymentClient;
     OrderRepository orderRepository;
     OrderItemRepository orderItemRepository;
     OrderMapper orderMapper;
 
+    /** Shared secret product-service requires on reservation confirm and release. */
+    @NonFinal
+    @Value("${app.internal-token:}")
+    String internalToken;
+
     @Override
     @Transactional
     public OrderResponse createOrder(OrderCreationRequest request) {
@@ -70,6 +88,7 @@ public class OrderServiceImpl implements OrderService {
         order.setTotal(calculatedTotal);
         order.setEmail(email);
         order.setStatus("PENDING");
+        order.setReservationReference(UUID.randomUUID().toString());
         Order savedOrder = orderRepository.save(order);
 
         List<OrderItem> orderItems = request.getItems().stream()
@@ -81,6 +100,7 @@ public class OrderServiceImpl implements OrderService {
                         .build())
                 .toList();
         orderItemRepository.saveAll(orderItems);
+        reserveStock(savedOrder, request.getItems());
 
         log.info("Order created successfully for user: {}, orderId: {}, total: {}", email, savedOrder.getOrderId(), savedOrder.getTotal());
 
@@ -112,6 +132,7 @@ public class OrderServiceImpl implements OrderService {
         order.setTotal(calculatedTotal);
         order.setEmail(email);
         order.setStatus("PENDING");
+        order.setReservationReference(UUID.randomUUID().toString());
         Order savedOrder = orderRepository.save(order);
 
         List<OrderItem> orderItems = request.getItems().stream()
@@ -123,6 +144,7 @@ public class OrderServiceImpl implements OrderService {
                         .build())
                 .toList();
         orderItemRepository.saveAll(orderItems);
+        reserveStock(savedOrder, request.getItems());
 
         log.info("Buy Now order created successfully for user: {}, orderId: {}, total: {}", email, savedOrder.getOrderId(), savedOrder.getTotal());
 
@@ -154,24 +176,12 @@ public class OrderServiceImpl implements OrderService {
         orderRepository.save(order);
         
         if ("PAID".equals(newStatus) && !"PAID".equals(oldStatus)) {
-            log.info("Order {} is now PAID, updating stock and sold quantity", orderId);
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-            if (orderItems != null && !orderItems.isEmpty()) {
-                orderItems.forEach(item -> {
-                    try {
-                        productClient.updateStockAndSoldQuantity(
-                                item.getProductId(), 
-                                item.getVariantId(), 
-                                item.getQuantity()
-                        );
-                        log.info("Stock updated for productId={}, variantId={}, quantity={}", 
-                                item.getProductId(), item.getVariantId(), item.getQuantity());
-                    } catch (FeignException e) {
-                        log.error("Error updating stock for productId={}, variantId={}: {}", 
-                                item.getProductId(), item.getVariantId(), e.getMessage());
-                    }
-                });
+            log.info("Order {} is now PAID, confirming its stock reservation", orderId);
+            if (!confirmReservation(order)) {
+                updateStockAndSoldQuantity(orderId);
             }
+        } else if (RELEASING_STATUSES.contains(newStatus) && !RELEASING_STATUSES.contains(oldStatus)) {
+            releaseReservation(order);
         }
         
         log.info("Order {} status updated from {} to {}", orderId, oldStatus, newStatus);
@@ -275,6 +285,97 @@ public class OrderServiceImpl implements OrderService {
                 .toList();
     }
 
+    private void reserveStock(Order order, List<OrderItemCreationRequest> items) {
+        Long orderId = order.getOrderId();
+        ReservationRequest request = ReservationRequest.builder()
+                .reference(reservationReference(order))
+                .items(items.stream()
+                        .map(item -> ReservationItemRequest.builder()
+                                .productId(item.getProductId())
+                                .variantId(item.getVariantId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .toList())
+                .build();
+        try {
+            productClient.reserveStock(request, internalToken);
+        } catch (FeignException e) {
+            if (e.status() == 404) {
+                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
+            if (e.status() == 400) {
+                log.error("Could not reserve stock for order {}: {}", orderId, e.getMessage());
+                throw new AppException(ErrorCode.OUT_OF_STOCK);
+            }
+            log.error("Error reserving stock for order {}: {}", orderId, e.getMessage());
+            throw new AppException(ErrorCode.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Confirms the order's stock hold. Returns false only when product-service reports the
+     * hold missing or already released, so the caller takes the stock directly instead. Any
+     * other failure may have happened after the confirm committed, so the idempotent confirm
+     * is retried rather than falling back to a second decrement.
+     */
+    private boolean confirmReservation(Order order) {
+        Long orderId = order.getOrderId();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                productClient.confirmReservation(reservationReference(order), internalToken);
+                return true;
+            } catch (FeignException e) {
+                if (RESERVATION_GONE_STATUSES.contains(e.status())) {
+                    log.warn("Stock reservation for order {} is gone, falling back to direct stock update: {}",
+                            orderId, e.getMessage());
+                    return false;
+                }
+                if (attempt >= CONFIRM_ATTEMPTS) {
+                    log.error("Could not confirm stock reservation for order {} after {} attempts: {}",
+                            orderId, attempt, e.getMessage());
+                    throw new AppException(ErrorCode.SERVICE_UNAVAILABLE);
+                }
+                log.warn("Confirming stock reservation for order {} failed (attempt {}), retrying: {}",
+                        orderId, attempt, e.getMessage());
+            }
+        }
+    }
+
+    private void releaseReservation(Order order) {
+        try {
+            productClient.releaseReservation(reservationReference(order), internalToken);
+        } catch (FeignException e) {
+            log.warn("Could not release stock reservation for order {}, it will expire on its own: {}",
+                    order.getOrderId(), e.getMessage());
+        }
+    }
+
+    private void updateStockAndSoldQuantity(Long orderId) {
+        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
+        if (orderItems != null && !orderItems.isEmpty()) {
+            orderItems.forEach(item -> {
+                try {
+                    productClient.updateStockAndSoldQuantity(
+                            item.getProductId(), 
+                            item.getVariantId(), 
+                            item.getQuantity()
+                    );
+                    log.info("Stock updated for productId={}, variantId={}, quantity={}", 
+                            item.getProductId(), item.getVariantId(), item.getQuantity());
+                } catch (FeignException e) {
+                    log.error("Error updating stock for productId={}, variantId={}: {}", 
+                            item.getProductId(), item.getVariantId(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    private String reservationReference(Order order) {
+        return order.getReservationReference() != null
+                ? order.getReservationReference()
+                : LEGACY_RESERVATION_REFERENCE_PREFIX + order.getOrderId();
+    }
+
     private OrderResponse buildOrderResponse(Order order) {
         OrderResponse response = orderMapper.toOrderResponse(order);
         
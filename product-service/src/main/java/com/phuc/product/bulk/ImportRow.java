@@ -0,0 +1,21 @@
+package com.phuc.product.bulk;
+
+import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.exception.ErrorCode;
+
+/**
+ * One product read from an import stream. {@code row} is 1-based: the array index for JSON,
+ * the first data line of the product for CSV. Rows that could not be parsed carry an
+ * {@code error} instead of a request.
+ */
+public record ImportRow(int row, ProductCreationRequest request, ErrorCode error) {
+
+    public static ImportRow of(int row, ProductCreationRequest request) {
+        return new ImportRow(row, request, null);
+    }
+
+    public static ImportRow failed(int row, ErrorCode error) {
+        return new ImportRow(row, null, error);
+    }
+
+}
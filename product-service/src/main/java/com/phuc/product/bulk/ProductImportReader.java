@@ -0,0 +1,157 @@
+package com.phuc.product.bulk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.dto.request.ProductVariantRequest;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Streams {@link ProductCreationRequest}s out of a JSON array or a CSV file one product at a
+ * time, so an import never holds the whole payload in memory. Reading stops as soon as the
+ * row consumer returns {@code false}.
+ * <p>
+ * CSV files need a header row with {@code productKey,name,description,categoryId,price,stock,attributes}.
+ * Each line is one variant; consecutive lines with the same {@code productKey} form one product.
+ * Attributes are written as {@code key=value;key=value}.
+ * <p>
+ * Earlier rows may already be imported by the time the payload turns out to be malformed,
+ * so a break after the start is reported as an {@link ErrorCode#INVALID_REQUEST_FORMAT} row
+ * where it happened and reading stops there.
+ */
+public final class ProductImportReader {
+
+    static final String PRODUCT_KEY = "productKey";
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private ProductImportReader() {
+    }
+
+    public static void readJson(InputStream input, ObjectMapper objectMapper, Predicate<ImportRow> rows) throws IOException {
+        Objects.requireNonNull(input, "input must not be null");
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new AppException(ErrorCode.INVALID_REQUEST_FORMAT);
+            }
+            int row = 1;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                    JsonNode node = parser.readValueAsTree();
+                    ImportRow read;
+                    try {
+                        read = ImportRow.of(row, objectMapper.treeToValue(node, ProductCreationRequest.class));
+                    } catch (IOException | IllegalArgumentException ex) {
+                        read = ImportRow.failed(row, ErrorCode.INVALID_IMPORT_ROW);
+                    }
+                    if (!rows.test(read)) {
+                        return;
+                    }
+                    row++;
+                }
+                if (token != JsonToken.END_ARRAY) {
+                    rows.test(ImportRow.failed(row, ErrorCode.INVALID_REQUEST_FORMAT));
+                }
+            } catch (JsonProcessingException ex) {
+                rows.test(ImportRow.failed(row, ErrorCode.INVALID_REQUEST_FORMAT));
+            }
+        }
+    }
+
+    public static void readCsv(InputStream input, Predicate<ImportRow> rows) throws IOException {
+        Objects.requireNonNull(input, "input must not be null");
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        try (MappingIterator<Map<String, String>> lines = CSV_MAPPER.readerForMapOf(String.class).with(schema).readValues(input)) {
+            int line = 0;
+            int groupRow = 0;
+            String groupKey = null;
+            ProductCreationRequest current = null;
+            ErrorCode currentError = null;
+            try {
+                while (lines.hasNextValue()) {
+                    Map<String, String> values = lines.nextValue();
+                    line++;
+                    String key = values.get(PRODUCT_KEY);
+                    if (key == null || !key.equals(groupKey)) {
+                        if (!emit(rows, groupRow, current, currentError)) {
+                            return;
+                        }
+                        groupKey = key;
+                        groupRow = line;
+                        current = ProductCreationRequest.builder()
+                                .name(blankToNull(values.get("name")))
+                                .description(blankToNull(values.get("description")))
+                                .categoryId(blankToNull(values.get("categoryId")))
+                                .variants(new ArrayList<>())
+                                .build();
+                        currentError = null;
+                    }
+                    try {
+                        current.getVariants().add(toVariant(values));
+                    } catch (IllegalArgumentException ex) {
+                        currentError = ErrorCode.INVALID_IMPORT_ROW;
+                    }
+                }
+            } catch (JsonProcessingException | RuntimeJsonMappingException ex) {
+                // The product being read may be missing variants, so it is reported instead.
+                rows.test(ImportRow.failed(current == null ? line + 1 : groupRow, ErrorCode.INVALID_REQUEST_FORMAT));
+                return;
+            }
+            emit(rows, groupRow, current, currentError);
+        }
+    }
+
+    private static boolean emit(Predicate<ImportRow> rows, int row, ProductCreationRequest request, ErrorCode error) {
+        if (request == null) {
+            return true;
+        }
+        return rows.test(error == null ? ImportRow.of(row, request) : ImportRow.failed(row, error));
+    }
+
+    private static ProductVariantRequest toVariant(Map<String, String> values) {
+        String price = blankToNull(values.get("price"));
+        String stock = blankToNull(values.get("stock"));
+        return ProductVariantRequest.builder()
+                .price(price == null ? null : Double.valueOf(price))
+                .stock(stock == null ? null : Integer.valueOf(stock))
+                .attributes(parseAttributes(values.get("attributes")))
+                .build();
+    }
+
+    static Map<String, Object> parseAttributes(String value) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        if (value == null || value.isBlank()) {
+            return attributes;
+        }
+        for (String pair : value.split(";")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Malformed attribute: " + pair);
+            }
+            attributes.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+        }
+        return attributes;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+}
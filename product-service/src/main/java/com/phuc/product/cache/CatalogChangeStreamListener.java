@@ -0,0 +1,288 @@
+package com.phuc.product.cache;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.phuc.product.entity.Product;
+import com.phuc.product.service.ProductSearchService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tails the {@code products} and {@code categories} change streams and applies each batch
+ * of events to Redis, the local product cache, the search index and the category caches,
+ * so writes that bypass the service (other replicas, scripts, manual fixes) are picked up
+ * too. Updates touching only stock counters are skipped: the stock paths evict what they
+ * change, and a hot SKU would otherwise flush its product on every sale.
+ * <p>
+ * Every replica tails both streams for its own L1 and search index, so the last applied
+ * resume token is stored per collection and {@code product.change-stream.instance-id};
+ * give each replica a stable id (e.g. its pod name) so a restart continues where it stopped.
+ */
+@Slf4j
+@Component
+public class CatalogChangeStreamListener {
+
+    static final String TOKEN_COLLECTION = "change_stream_tokens";
+    static final String PRODUCTS = "products";
+    static final String CATEGORIES = "categories";
+
+    /** Fields whose updates alone do not change anything the caches or search index hold. */
+    static final Set<String> COUNTER_FIELDS = Set.of("stock", "reserved", "soldQuantity", "totalSold", "updatedAt");
+
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int HISTORY_LOST = 286;
+    private static final int FATAL_ERROR = 280;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductCache productCache;
+    private final ProductSearchService productSearchService;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration maxAwait;
+    private final String instanceId;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    public CatalogChangeStreamListener(MongoTemplate mongoTemplate,
+                                       ProductCache productCache,
+                                       ProductSearchService productSearchService,
+                                       CacheManager cacheManager,
+                                       @Value("${product.change-stream.enabled:true}") boolean enabled,
+                                       @Value("${product.change-stream.batch-size:100}") int batchSize,
+                                       @Value("${product.change-stream.max-await:500ms}") Duration maxAwait,
+                                       @Value("${product.change-stream.instance-id:${HOSTNAME:local}}") String instanceId) {
+        this.mongoTemplate = mongoTemplate;
+        this.productCache = productCache;
+        this.productSearchService = productSearchService;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAwait = maxAwait;
+        this.instanceId = instanceId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Catalog change stream disabled");
+            return;
+        }
+        running = true;
+        workers.add(Thread.ofVirtual().name("change-stream-" + PRODUCTS).start(() -> tail(PRODUCTS, this::applyProductChanges)));
+        workers.add(Thread.ofVirtual().name("change-stream-" + CATEGORIES).start(() -> tail(CATEGORIES, this::applyCategoryChanges)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void tail(String collection, Consumer<List<ChangeStreamDocument<Document>>> handler) {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open(collection)) {
+                log.info("Tailing {} change stream", collection);
+                List<ChangeStreamDocument<Document>> batch = new ArrayList<>(batchSize);
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event != null) {
+                        batch.add(event);
+                    }
+                    if (!batch.isEmpty() && (event == null || batch.size() >= batchSize)) {
+                        handler.accept(batch);
+                        saveResumeToken(collection, batch.get(batch.size() - 1).getResumeToken());
+                        batch.clear();
+                    }
+                }
+            } catch (MongoCommandException ex) {
+                if (ex.getErrorCode() == NOT_A_REPLICA_SET) {
+                    log.warn("Change streams need a replica set; {} changes are only applied by the write paths", collection);
+                    return;
+                }
+                if (ex.getErrorCode() == HISTORY_LOST || ex.getErrorCode() == FATAL_ERROR) {
+                    log.warn("Resume token for {} is no longer usable, restarting from now: {}", collection, ex.getMessage());
+                    clearResumeToken(collection);
+                } else {
+                    log.warn("{} change stream failed: {}", collection, ex.getMessage());
+                }
+                pause();
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("{} change stream failed: {}", collection, ex.getMessage(), ex);
+                pause();
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(String collection) {
+        var stream = mongoTemplate.getCollection(collection).watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .batchSize(batchSize)
+                .maxAwaitTime(maxAwait.toMillis(), TimeUnit.MILLISECONDS);
+        BsonDocument token = loadResumeToken(collection);
+        return (token == null ? stream : stream.resumeAfter(token)).cursor();
+    }
+
+    private void applyProductChanges(List<ChangeStreamDocument<Document>> events) {
+        Set<String> changed = new LinkedHashSet<>();
+        Map<String, Product> refreshed = new LinkedHashMap<>();
+        Set<String> deleted = new LinkedHashSet<>();
+        for (ChangeStreamDocument<Document> event : events) {
+            String productId = documentId(event);
+            if (productId == null || isCounterUpdate(event)) {
+                continue;
+            }
+            Document fullDocument = event.getFullDocument();
+            switch (event.getOperationType()) {
+                case INSERT, UPDATE, REPLACE -> {
+                    changed.add(productId);
+                    if (fullDocument != null) {
+                        refreshed.put(productId, mongoTemplate.getConverter().read(Product.class, fullDocument));
+                        deleted.remove(productId);
+                    } else {
+                        // Deleted again before the lookup ran.
+                        refreshed.remove(productId);
+                        deleted.add(productId);
+                    }
+                }
+                case DELETE -> {
+                    changed.add(productId);
+                    refreshed.remove(productId);
+                    deleted.add(productId);
+                }
+                default -> {
+                }
+            }
+        }
+        productCache.evictChanged(changed);
+        refreshed.values().forEach(productSearchService::index);
+        deleted.forEach(productSearchService::remove);
+        log.debug("Applied {} product changes ({} refreshed, {} deleted)", events.size(), refreshed.size(), deleted.size());
+    }
+
+    /** Whether {@code event} is an update that only moved stock counters. */
+    static boolean isCounterUpdate(ChangeStreamDocument<Document> event) {
+        UpdateDescription update = event.getUpdateDescription();
+        if (event.getOperationType() != OperationType.UPDATE || update == null || update.getUpdatedFields() == null) {
+            return false;
+        }
+        if ((update.getRemovedFields() != null && !update.getRemovedFields().isEmpty())
+                || (update.getTruncatedArrays() != null && !update.getTruncatedArrays().isEmpty())) {
+            return false;
+        }
+        return update.getUpdatedFields().keySet().stream()
+                .allMatch(field -> COUNTER_FIELDS.contains(field.substring(field.lastIndexOf('.') + 1)));
+    }
+
+    private void applyCategoryChanges(List<ChangeStreamDocument<Document>> events) {
+        Set<String> categoryIds = new LinkedHashSet<>();
+        Set<String> shopIds = new LinkedHashSet<>();
+        for (ChangeStreamDocument<Document> event : events) {
+            String categoryId = documentId(event);
+            if (categoryId != null) {
+                categoryIds.add(categoryId);
+            }
+            // Deletes carry no document; deleteCategory already evicted the shop's list.
+            if (event.getFullDocument() != null && event.getFullDocument().getString("shopId") != null) {
+                shopIds.add(event.getFullDocument().getString("shopId"));
+            }
+        }
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+        evict("categoryById", categoryIds);
+        evict("categoriesByShop", shopIds);
+        evict("categories", Set.of("all"));
+    }
+
+    private void evict(String cacheName, Set<String> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            keys.forEach(cache::evict);
+        }
+    }
+
+    private static String documentId(ChangeStreamDocument<Document> event) {
+        BsonDocument documentKey = event.getDocumentKey();
+        BsonValue id = documentKey == null ? null : documentKey.get("_id");
+        if (id instanceof BsonObjectId objectId) {
+            return objectId.getValue().toHexString();
+        }
+        if (id instanceof BsonString string) {
+            return string.getValue();
+        }
+        return null;
+    }
+
+    private MongoCollection<BsonDocument> tokens() {
+        return mongoTemplate.getDb().getCollection(TOKEN_COLLECTION, BsonDocument.class);
+    }
+
+    private String tokenId(String collection) {
+        return collection + ":" + instanceId;
+    }
+
+    private BsonDocument loadResumeToken(String collection) {
+        BsonDocument stored = tokens().find(Filters.eq("_id", tokenId(collection))).first();
+        return stored == null ? null : stored.getDocument("token", null);
+    }
+
+    private void saveResumeToken(String collection, BsonDocument token) {
+        if (token == null) {
+            return;
+        }
+        BsonDocument stored = new BsonDocument("_id", new BsonString(tokenId(collection)))
+                .append("token", token)
+                .append("updatedAt", new BsonDateTime(System.currentTimeMillis()));
+        tokens().replaceOne(Filters.eq("_id", tokenId(collection)), stored, new ReplaceOptions().upsert(true));
+    }
+
+    private void clearResumeToken(String collection) {
+        tokens().deleteOne(Filters.eq("_id", tokenId(collection)));
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_DELAY);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
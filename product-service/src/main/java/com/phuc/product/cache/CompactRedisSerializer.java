@@ -0,0 +1,150 @@
+package com.phuc.product.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.phuc.product.dto.response.CategoryResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes the hot cache types as untyped Smile behind a two-byte header
+ * (format version, type tag). Any other value, and anything written by the
+ * previous JSON serializer, goes through the JSON delegate. Entries with a
+ * version this node does not know are treated as cache misses.
+ * <p>
+ * Both formats are always read, but Smile is only written when
+ * {@code compactWrites} is set: replicas without this class cannot read it, so
+ * the flag is turned on once every replica runs a version that reads Smile.
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    static final int HEADER_LENGTH = 2;
+
+    /** JSON never starts with a control character, so header bytes below this are ours. */
+    private static final int HEADER_LIMIT = 0x20;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RedisSerializer<Object> fallback;
+    private final ObjectMapper smileMapper;
+    private final JavaType[] types;
+    private final boolean compactWrites;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback, boolean compactWrites) {
+        this.fallback = Objects.requireNonNull(fallback, "fallback must not be null");
+        this.compactWrites = compactWrites;
+        this.smileMapper = SmileMapper.builder()
+                .addModule(new JavaTimeModule())
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        CachedType[] cachedTypes = CachedType.values();
+        this.types = new JavaType[cachedTypes.length + 1];
+        for (CachedType type : cachedTypes) {
+            types[type.tag] = type.resolve(smileMapper);
+        }
+    }
+
+    @Override
+    public byte[] serialize(@Nullable Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        CachedType type = compactWrites ? CachedType.of(value) : null;
+        if (type == null) {
+            return fallback.serialize(value);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            out.write(FORMAT_VERSION);
+            out.write(type.tag);
+            smileMapper.writerFor(types[type.tag]).writeValue(out, value);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + type + " as Smile", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(@Nullable byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] >= HEADER_LIMIT) {
+            return fallback.deserialize(bytes);
+        }
+        int tag = bytes.length >= HEADER_LENGTH ? bytes[1] : -1;
+        if (bytes[0] != FORMAT_VERSION || tag <= 0 || tag >= types.length) {
+            log.debug("Ignoring cache entry with unsupported header {}/{}", bytes[0], tag);
+            return null;
+        }
+        try {
+            return smileMapper.readValue(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, types[tag]);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read Smile cache entry", e);
+        }
+    }
+
+    /** Tags are persisted in Redis: never renumber, only append. */
+    enum CachedType {
+        PRODUCT(1),
+        PRODUCT_VARIANT(2),
+        CATEGORY(3),
+        CATEGORY_LIST(4),
+        PRODUCT_SUMMARY(5);
+
+        final int tag;
+
+        CachedType(int tag) {
+            this.tag = tag;
+        }
+
+        JavaType resolve(ObjectMapper mapper) {
+            return switch (this) {
+                case PRODUCT -> mapper.constructType(Product.class);
+                case PRODUCT_VARIANT -> mapper.constructType(ProductVariant.class);
+                case CATEGORY -> mapper.constructType(CategoryResponse.class);
+                case CATEGORY_LIST -> mapper.getTypeFactory().constructCollectionType(List.class, CategoryResponse.class);
+                case PRODUCT_SUMMARY -> mapper.constructType(ProductSummaryResponse.class);
+            };
+        }
+
+        @Nullable
+        static CachedType of(Object value) {
+            if (value instanceof Product) {
+                return PRODUCT;
+            }
+            if (value instanceof ProductVariant) {
+                return PRODUCT_VARIANT;
+            }
+            if (value instanceof CategoryResponse) {
+                return CATEGORY;
+            }
+            if (value instanceof ProductSummaryResponse) {
+                return PRODUCT_SUMMARY;
+            }
+            if (value instanceof List<?> list && list.stream().allMatch(CategoryResponse.class::isInstance)) {
+                return CATEGORY_LIST;
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,487 @@
+package com.phuc.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.phuc.product.dto.response.ProductSummaryResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache for {@link Product} documents: a bounded in-process L1 in front of the
+ * shared Redis {@code product:} keys. Every write or eviction is broadcast on a pub/sub
+ * channel so the other replicas drop their local copy.
+ * <p>
+ * Misses through {@link #getOrLoad} are coalesced per key, and L1 entries are refreshed
+ * in the background slightly before they expire (XFetch), so a hot key going cold
+ * costs one load per replica instead of one per request. A loaded document is only
+ * written to Redis if no write got there first, and with {@code product.cache.fill-ttl},
+ * since a write that evicted the key during the load would otherwise leave the older
+ * document cached for good.
+ * <p>
+ * Variants are also kept in a per-product Redis hash ({@code product:<id>:variants}) and
+ * indexed by id in each L1 entry, so price and stock reads touch a single variant.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductCache implements MessageListener {
+
+    public static final String KEY_PREFIX = "product:";
+    public static final String SUMMARY_KEY_PREFIX = "product-summary:";
+    public static final String VARIANTS_KEY_SUFFIX = ":variants";
+    public static final String INVALIDATION_CHANNEL = "product-cache:invalidate";
+    static final String MESSAGE_SEPARATOR = "|";
+
+    static final byte[] PUT_VARIANT_SCRIPT = """
+            local created = redis.call('EXISTS', KEYS[1]) == 0
+            local set = redis.call('HSETNX', KEYS[1], ARGV[1], ARGV[2])
+            if created then
+                redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return set
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /** Lower bound on the XFetch recompute estimate, as a fraction of the L1 TTL. */
+    static final double MIN_REFRESH_WINDOW = 0.05;
+
+    String instanceId = UUID.randomUUID().toString();
+    Cache<String, Entry> localCache;
+    ConcurrentMap<String, CompletableFuture<Product>> inFlight = new ConcurrentHashMap<>();
+    RedisTemplate<String, Object> redisTemplate;
+    StringRedisTemplate stringRedisTemplate;
+    long expireAfterWriteNanos;
+    double earlyRefreshBeta;
+    Duration fillTtl;
+    Counter remoteHits;
+    Counter remoteMisses;
+    Counter leaderLoads;
+    Counter coalescedLoads;
+    Counter earlyRefreshes;
+
+    public ProductCache(RedisTemplate<String, Object> redisTemplate,
+                        StringRedisTemplate stringRedisTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${product.cache.local.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.local.expire-after-write:60s}") Duration expireAfterWrite,
+                        @Value("${product.cache.local.early-refresh-beta:1.0}") double earlyRefreshBeta,
+                        @Value("${product.cache.fill-ttl:10m}") Duration fillTtl) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.fillTtl = fillTtl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "product.local");
+        this.remoteHits = Counter.builder("product.cache.remote.requests").tag("result", "hit").register(meterRegistry);
+        this.remoteMisses = Counter.builder("product.cache.remote.requests").tag("result", "miss").register(meterRegistry);
+        this.leaderLoads = Counter.builder("product.cache.loads").tag("mode", "leader").register(meterRegistry);
+        this.coalescedLoads = Counter.builder("product.cache.loads").tag("mode", "coalesced").register(meterRegistry);
+        this.earlyRefreshes = Counter.builder("product.cache.early.refreshes").register(meterRegistry);
+    }
+
+    /**
+     * Returns the product from L1, then Redis, then {@code loader}. Concurrent misses on the
+     * same id wait for a single in-flight load; loader failures are rethrown to every waiter.
+     */
+    public Product getOrLoad(String productId, Function<String, Product> loader) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        Objects.requireNonNull(loader, "loader must not be null");
+        Entry entry = localCache.getIfPresent(productId);
+        if (entry != null) {
+            if (shouldRefreshEarly(entry)) {
+                refreshAsync(productId, loader);
+            }
+            return entry.product();
+        }
+        try {
+            return load(productId, loader).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public Optional<Product> getLocal(String productId) {
+        Entry entry = localCache.getIfPresent(Objects.requireNonNull(productId, "productId must not be null"));
+        return entry == null ? Optional.empty() : Optional.of(entry.product());
+    }
+
+    /**
+     * Looks up a variant of a cached product through the L1 variant index, falling back to
+     * a scan when {@code product} is not the instance held in L1.
+     */
+    public Optional<ProductVariant> findVariant(Product product, String variantId) {
+        Objects.requireNonNull(product, "product must not be null");
+        Entry entry = product.getId() == null ? null : localCache.getIfPresent(product.getId());
+        if (entry != null && entry.product() == product) {
+            return entry.variant(variantId);
+        }
+        return scanVariants(product, variantId);
+    }
+
+    /**
+     * Reads one variant from the Redis variant hash. An empty result means "not cached",
+     * not "no such variant".
+     */
+    public Optional<ProductVariant> getRemoteVariant(String productId, String variantId) {
+        Objects.requireNonNull(variantId, "variantId must not be null");
+        Object cached = redisTemplate.opsForHash().get(variantsKey(productId), variantId);
+        return cached instanceof ProductVariant variant ? Optional.of(variant) : Optional.empty();
+    }
+
+    /**
+     * Caches a single variant read from Mongo without overwriting a newer entry. A hash this
+     * creates expires after {@code product.cache.fill-ttl}, as a write may have evicted the
+     * product after the read.
+     */
+    @SuppressWarnings("unchecked")
+    public void putRemoteVariant(String productId, ProductVariant variant) {
+        Objects.requireNonNull(variant, "variant must not be null");
+        byte[] key = ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(variantsKey(productId));
+        byte[] field = ((RedisSerializer<String>) redisTemplate.getHashKeySerializer()).serialize(variant.getVariantId());
+        byte[] value = ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(variant);
+        byte[] ttl = String.valueOf(fillTtl.toMillis()).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(PUT_VARIANT_SCRIPT, ReturnType.INTEGER, 1, key, field, value, ttl));
+    }
+
+    public Optional<ProductSummaryResponse> getSummary(String productId) {
+        Object cached = redisTemplate.opsForValue().get(summaryKey(productId));
+        return cached instanceof ProductSummaryResponse summary ? Optional.of(summary) : Optional.empty();
+    }
+
+    /** Fills the summary of a read with {@code fillTtl}, so a fill racing an eviction cannot outlive it for long. */
+    public void putSummary(ProductSummaryResponse summary) {
+        Objects.requireNonNull(summary, "summary must not be null");
+        redisTemplate.opsForValue().setIfAbsent(summaryKey(summary.getId()), summary, fillTtl);
+    }
+
+    public Map<String, Product> getAll(Collection<String> productIds) {
+        Objects.requireNonNull(productIds, "productIds must not be null");
+        Map<String, Product> products = new HashMap<>();
+        localCache.getAllPresent(productIds).forEach((productId, entry) -> products.put(productId, entry.product()));
+
+        List<String> remoteIds = productIds.stream()
+                .filter(productId -> !products.containsKey(productId))
+                .toList();
+        if (remoteIds.isEmpty()) {
+            return products;
+        }
+
+        List<Object> cached = redisTemplate.opsForValue().multiGet(remoteIds.stream().map(ProductCache::key).toList());
+        if (cached != null) {
+            for (Object value : cached) {
+                if (value instanceof Product product) {
+                    products.put(product.getId(), product);
+                    localCache.put(product.getId(), Entry.of(product, 0));
+                }
+            }
+        }
+        long hits = remoteIds.stream().filter(products::containsKey).count();
+        remoteHits.increment(hits);
+        remoteMisses.increment(remoteIds.size() - hits);
+        return products;
+    }
+
+    public boolean contains(String productId) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        return localCache.getIfPresent(productId) != null
+                || Boolean.TRUE.equals(redisTemplate.hasKey(key(productId)));
+    }
+
+    public void put(Product product) {
+        Objects.requireNonNull(product, "product must not be null");
+        String productId = Objects.requireNonNull(product.getId(), "product id must not be null");
+        redisTemplate.opsForValue().set(key(productId), product);
+        redisTemplate.delete(summaryKey(productId));
+        writeVariants(List.of(product));
+        inFlight.remove(productId);
+        localCache.put(productId, Entry.of(product, 0));
+        publishInvalidation(productId);
+    }
+
+    /**
+     * Caches products just read from Mongo. Nothing changed, so nothing is invalidated or
+     * published; Redis keys are only created where missing and expire after
+     * {@code product.cache.fill-ttl}, in case a write evicted them after the read.
+     */
+    public void fill(Collection<Product> products) {
+        Objects.requireNonNull(products, "products must not be null");
+        if (products.isEmpty()) {
+            return;
+        }
+        List<Product> ordered = List.copyOf(products);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(@NonNull RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                ordered.forEach(product -> redis.opsForValue().setIfAbsent(key(product.getId()), product, fillTtl));
+                return null;
+            }
+        });
+        List<Product> filled = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (results != null && i < results.size() && Boolean.TRUE.equals(results.get(i))) {
+                filled.add(ordered.get(i));
+            }
+            localCache.asMap().putIfAbsent(ordered.get(i).getId(), Entry.of(ordered.get(i), 0));
+        }
+        if (!filled.isEmpty()) {
+            writeVariants(filled, fillTtl);
+        }
+    }
+
+    /**
+     * Writes new products to Redis in one round trip. They cannot be in any replica's L1 yet,
+     * so nothing is invalidated or published.
+     */
+    public void warm(Collection<Product> products) {
+        Objects.requireNonNull(products, "products must not be null");
+        if (products.isEmpty()) {
+            return;
+        }
+        Map<String, Object> entries = new HashMap<>();
+        products.forEach(product -> entries.put(key(product.getId()), product));
+        redisTemplate.opsForValue().multiSet(entries);
+        writeVariants(products);
+    }
+
+    public void evict(String productId) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        redisTemplate.delete(List.of(key(productId), summaryKey(productId), variantsKey(productId)));
+        invalidateLocal(productId);
+        publishInvalidation(productId);
+    }
+
+    /**
+     * Drops products changed outside this replica from Redis and L1; the next read loads
+     * the current document. Nothing is published, since every replica tails the same
+     * change stream.
+     */
+    public void evictChanged(Collection<String> productIds) {
+        Objects.requireNonNull(productIds, "productIds must not be null");
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<String> staleKeys = new ArrayList<>();
+        for (String productId : productIds) {
+            staleKeys.add(key(productId));
+            staleKeys.add(summaryKey(productId));
+            staleKeys.add(variantsKey(productId));
+        }
+        redisTemplate.delete(staleKeys);
+        productIds.forEach(this::invalidateLocal);
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(MESSAGE_SEPARATOR);
+        if (separator < 0) {
+            log.warn("Ignoring malformed product cache invalidation message: {}", body);
+            return;
+        }
+        if (!instanceId.equals(body.substring(0, separator))) {
+            invalidateLocal(body.substring(separator + 1));
+        }
+    }
+
+    public static String key(String productId) {
+        return KEY_PREFIX + Objects.requireNonNull(productId, "productId must not be null");
+    }
+
+    public static String summaryKey(String productId) {
+        return SUMMARY_KEY_PREFIX + Objects.requireNonNull(productId, "productId must not be null");
+    }
+
+    public static String variantsKey(String productId) {
+        return key(productId) + VARIANTS_KEY_SUFFIX;
+    }
+
+    private CompletableFuture<Product> load(String productId, Function<String, Product> loader) {
+        CompletableFuture<Product> pending = new CompletableFuture<>();
+        CompletableFuture<Product> existing = inFlight.putIfAbsent(productId, pending);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return existing;
+        }
+        leaderLoads.increment();
+        long start = System.nanoTime();
+        try {
+            Product product = readRemote(productId).orElseGet(() -> {
+                Product loaded = loader.apply(productId);
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key(productId), loaded, fillTtl))) {
+                    writeVariants(List.of(loaded), fillTtl);
+                }
+                return loaded;
+            });
+            // An invalidation while loading removes the in-flight entry; don't repopulate L1 then.
+            if (inFlight.remove(productId, pending)) {
+                localCache.put(productId, Entry.of(product, System.nanoTime() - start));
+            }
+            pending.complete(product);
+        } catch (RuntimeException ex) {
+            inFlight.remove(productId, pending);
+            pending.completeExceptionally(ex);
+        }
+        return pending;
+    }
+
+    private Optional<Product> readRemote(String productId) {
+        Object cached = redisTemplate.opsForValue().get(key(productId));
+        if (cached instanceof Product product) {
+            remoteHits.increment();
+            return Optional.of(product);
+        }
+        remoteMisses.increment();
+        return Optional.empty();
+    }
+
+    private void writeVariants(Collection<Product> products) {
+        writeVariants(products, null);
+    }
+
+    /**
+     * Replaces the variant hash of each product, pipelined into one round trip. A
+     * {@code ttl} is given to hashes filled from a read rather than written by an update.
+     */
+    private void writeVariants(Collection<Product> products, @Nullable Duration ttl) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(@NonNull RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                for (Product product : products) {
+                    String variantsKey = variantsKey(product.getId());
+                    redis.delete(variantsKey);
+                    if (product.getVariants() != null && !product.getVariants().isEmpty()) {
+                        Map<String, Object> variants = new HashMap<>();
+                        product.getVariants().stream()
+                                .filter(variant -> variant.getVariantId() != null)
+                                .forEach(variant -> variants.putIfAbsent(variant.getVariantId(), variant));
+                        redis.opsForHash().putAll(variantsKey, variants);
+                        if (ttl != null) {
+                            redis.expire(variantsKey, ttl);
+                        }
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    private static Optional<ProductVariant> scanVariants(Product product, String variantId) {
+        if (product.getVariants() == null) {
+            return Optional.empty();
+        }
+        return product.getVariants().stream()
+                .filter(variant -> variantId.equals(variant.getVariantId()))
+                .findFirst();
+    }
+
+    private boolean shouldRefreshEarly(Entry entry) {
+        long window = Math.max(entry.loadNanos(), (long) (expireAfterWriteNanos * MIN_REFRESH_WINDOW));
+        double jitter = -window * earlyRefreshBeta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.nanoTime() + jitter >= entry.loadedAt() + expireAfterWriteNanos;
+    }
+
+    private void refreshAsync(String productId, Function<String, Product> loader) {
+        if (inFlight.containsKey(productId)) {
+            return;
+        }
+        earlyRefreshes.increment();
+        Thread.ofVirtual().name("product-cache-refresh").start(() ->
+                load(productId, loader).exceptionally(ex -> {
+                    log.debug("Early refresh of product {} failed: {}", productId, ex.getMessage());
+                    return null;
+                }));
+    }
+
+    private void invalidateLocal(String productId) {
+        inFlight.remove(productId);
+        localCache.invalidate(productId);
+    }
+
+    private void publishInvalidation(String productId) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + MESSAGE_SEPARATOR + productId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to publish product cache invalidation for {}: {}", productId, ex.getMessage());
+        }
+    }
+
+    /**
+     * An L1 entry. {@code variantIndex} maps variant id to list position and is built once
+     * when the entry is created; a lookup re-checks the id at that position in case the
+     * list was changed in place.
+     */
+    record Entry(Product product, Map<String, Integer> variantIndex, long loadedAt, long loadNanos) {
+
+        static Entry of(Product product, long loadNanos) {
+            Map<String, Integer> index = new HashMap<>();
+            List<ProductVariant> variants = product.getVariants();
+            if (variants != null) {
+                for (int i = 0; i < variants.size(); i++) {
+                    if (variants.get(i).getVariantId() != null) {
+                        index.putIfAbsent(variants.get(i).getVariantId(), i);
+                    }
+                }
+            }
+            return new Entry(product, Map.copyOf(index), System.nanoTime(), loadNanos);
+        }
+
+        Optional<ProductVariant> variant(String variantId) {
+            Integer position = variantIndex.get(variantId);
+            List<ProductVariant> variants = product.getVariants();
+            if (position != null && variants != null && position < variants.size()
+                    && variantId.equals(variants.get(position).getVariantId())) {
+                return Optional.of(variants.get(position));
+            }
+            return scanVariants(product, variantId);
+        }
+    }
+
+}
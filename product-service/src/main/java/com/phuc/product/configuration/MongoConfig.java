@@ -1,8 +1,138 @@
 package com.phuc.product.configuration;
 
+import com.phuc.product.entity.Category;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.Reservation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.bson.Document;
+import org.springframework.data.util.Pair;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Slf4j
 @Configuration
 @EnableMongoAuditing
-public class MongoConfig {}
+@RequiredArgsConstructor
+public class MongoConfig {
+
+    static final int BACKFILL_BATCH_SIZE = 500;
+    static final Duration RESERVATION_RETENTION = Duration.ofDays(1);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initProductIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+        for (String scope : List.of("shopId", "categoryId")) {
+            indexOps.createIndex(new Index().on(scope, Sort.Direction.ASC).on("minPrice", Sort.Direction.ASC));
+            indexOps.createIndex(new Index().on(scope, Sort.Direction.ASC).on("totalSold", Sort.Direction.DESC));
+            indexOps.createIndex(new Index().on(scope, Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC));
+        }
+        indexOps.createIndex(new Index().on("minPrice", Sort.Direction.ASC));
+        indexOps.createIndex(new Index().on("totalSold", Sort.Direction.DESC));
+        indexOps.createIndex(new Index().on("createdAt", Sort.Direction.DESC));
+
+        backfillProductSummaries();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateCategoryMembership() {
+        Query pending = Query.query(Criteria.where("productCount").exists(false));
+        pending.fields().include("_id");
+        List<String> categoryIds = mongoTemplate.find(pending, Category.class).stream()
+                .map(Category::getId)
+                .toList();
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("categoryId").in(categoryIds)),
+                Aggregation.group("categoryId").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, Product.class, Document.class)) {
+            counts.put(result.getString("_id"), ((Number) result.get("count")).longValue());
+        }
+
+        List<Pair<Query, UpdateDefinition>> updates = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        for (String categoryId : categoryIds) {
+            updates.add(Pair.of(
+                    Query.query(Criteria.where("_id").is(categoryId)),
+                    new Update()
+                            .set("productCount", counts.getOrDefault(categoryId, 0L))
+                            .unset("productIds")));
+            if (updates.size() == BACKFILL_BATCH_SIZE) {
+                flush(updates, Category.class);
+            }
+        }
+        flush(updates, Category.class);
+        log.info("Migrated product membership for {} categories", categoryIds.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initReservationIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Reservation.class);
+        indexOps.createIndex(new Index().on("status", Sort.Direction.ASC).on("expiresAt", Sort.Direction.ASC));
+        // Holds are returned by the sweeper well before Mongo purges the document.
+        indexOps.createIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(RESERVATION_RETENTION));
+    }
+
+    private void backfillProductSummaries() {
+        Query query = Query.query(Criteria.where("totalSold").exists(false));
+        List<Pair<Query, UpdateDefinition>> updates = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        long backfilled = 0;
+
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                ProductSummaryCallback.summarize(product);
+                updates.add(Pair.of(
+                        Query.query(Criteria.where("_id").is(product.getId())),
+                        new Update()
+                                .set("minPrice", product.getMinPrice())
+                                .set("maxPrice", product.getMaxPrice())
+                                .set("totalSold", product.getTotalSold())));
+                if (updates.size() == BACKFILL_BATCH_SIZE) {
+                    backfilled += flush(updates, Product.class);
+                }
+            }
+        }
+        backfilled += flush(updates, Product.class);
+
+        if (backfilled > 0) {
+            log.info("Backfilled price and sales summaries for {} products", backfilled);
+        }
+    }
+
+    private int flush(List<Pair<Query, UpdateDefinition>> updates, Class<?> entityClass) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int size = updates.size();
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass)
+                .updateOne(updates)
+                .execute();
+        updates.clear();
+        return size;
+    }
+
+}
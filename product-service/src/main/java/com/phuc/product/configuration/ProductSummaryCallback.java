@@ -0,0 +1,47 @@
+package com.phuc.product.configuration;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps the denormalized price range and sales total of a {@link Product} in sync with its
+ * variants on every save, so listings can filter and sort on indexed top-level fields.
+ */
+@Component
+public class ProductSummaryCallback implements BeforeConvertCallback<Product> {
+
+    @Override
+    @NonNull
+    public Product onBeforeConvert(@NonNull Product product, @NonNull String collection) {
+        summarize(product);
+        return product;
+    }
+
+    public static void summarize(Product product) {
+        List<ProductVariant> variants = product.getVariants();
+        if (variants == null || variants.isEmpty()) {
+            product.setMinPrice(null);
+            product.setMaxPrice(null);
+            product.setTotalSold(0);
+            return;
+        }
+
+        double minPrice = Double.MAX_VALUE;
+        double maxPrice = 0;
+        int totalSold = 0;
+        for (ProductVariant variant : variants) {
+            minPrice = Math.min(minPrice, variant.getPrice());
+            maxPrice = Math.max(maxPrice, variant.getPrice());
+            totalSold += variant.getSoldQuantity();
+        }
+        product.setMinPrice(minPrice);
+        product.setMaxPrice(maxPrice);
+        product.setTotalSold(totalSold);
+    }
+
+}
@@ -33,12 +33,18 @@ public class SecurityConfig {
             "/*/variant/*/stock-sold"
     };
 
+    private static final String[] INTERNAL_ENDPOINTS = {
+            "/reservations/**"
+    };
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity httpSecurity,
+                                           InternalTokenAuthorizationManager internalToken) throws Exception {
         httpSecurity
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(request -> request
                 .requestMatchers(PUBLIC_ENDPOINTS).permitAll()
+                        .requestMatchers(INTERNAL_ENDPOINTS).access(internalToken)
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                 .jwt(jwtConfigurer -> jwtConfigurer.jwtAuthenticationConverter(jwtAuthenticationConverter()))
@@ -3,24 +3,35 @@ package com.phuc.product.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.phuc.product.dto.ApiResponse;
 import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.dto.request.ProductLookupRequest;
 import com.phuc.product.dto.request.ProductUpdateRequest;
+import com.phuc.product.dto.response.CursorPageResponse;
 import com.phuc.product.dto.response.ExistsResponse;
+import com.phuc.product.dto.response.ProductImportResponse;
+import com.phuc.product.dto.response.ProductLookupResponse;
 import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
 import com.phuc.product.enums.ProductSort;
 import com.phuc.product.exception.AppException;
 import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.service.ProductImportService;
 import com.phuc.product.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Validator;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import java.util.Map;
@@ -31,7 +42,11 @@ import java.util.Map;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ProductController {
 
+        static final String NDJSON_VALUE = "application/x-ndjson";
+        static final String CSV_VALUE = "text/csv";
+
         ProductService productService;
+        ProductImportService productImportService;
         ObjectMapper objectMapper;
         Validator validator;
 
@@ -62,6 +77,20 @@ public class ProductController {
                 }
         }
 
+        @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+        public ApiResponse<ProductImportResponse> importProductsJson(InputStream body) throws IOException {
+                return ApiResponse.<ProductImportResponse>builder()
+                        .result(productImportService.importJson(body))
+                        .build();
+        }
+
+        @PostMapping(value = "/import", consumes = CSV_VALUE)
+        public ApiResponse<ProductImportResponse> importProductsCsv(InputStream body) throws IOException {
+                return ApiResponse.<ProductImportResponse>builder()
+                        .result(productImportService.importCsv(body))
+                        .build();
+        }
+
         @PostMapping(value = "/create-json", consumes = MediaType.APPLICATION_JSON_VALUE)
         public ApiResponse<ProductResponse> createProductJson(
                 @RequestBody @Valid ProductCreationRequest request) {
@@ -122,6 +151,48 @@ public class ProductController {
                         .build();
         }
 
+        @GetMapping("/products/summary")
+        public ApiResponse<Page<ProductSummaryResponse>> getProductSummaries(
+                @RequestParam(required = false) String shopId,
+                @RequestParam(required = false) String categoryId,
+                @RequestParam(defaultValue = "0") int page,
+                @RequestParam(defaultValue = "10") int size,
+                @RequestParam(defaultValue = "DEFAULT") ProductSort productSort,
+                @RequestParam(defaultValue = "asc") String sortDirection,
+                @RequestParam(required = false) Double minPrice,
+                @RequestParam(required = false) Double maxPrice,
+                @RequestParam(defaultValue = "name") String sortBy) {
+                return ApiResponse.<Page<ProductSummaryResponse>>builder()
+                        .result(productService.getProductSummaries(
+                                shopId, categoryId, page, size, sortBy, sortDirection, minPrice, maxPrice, productSort))
+                        .build();
+        }
+
+        @GetMapping("/products/cursor")
+        public ApiResponse<CursorPageResponse<ProductResponse>> getProductsByCursor(
+                @RequestParam(required = false) String shopId,
+                @RequestParam(required = false) String categoryId,
+                @RequestParam(required = false) String cursor,
+                @RequestParam(defaultValue = "10") int size,
+                @RequestParam(defaultValue = "DEFAULT") ProductSort productSort,
+                @RequestParam(defaultValue = "asc") String sortDirection,
+                @RequestParam(required = false) Double minPrice,
+                @RequestParam(required = false) Double maxPrice,
+                @RequestParam(defaultValue = "name") String sortBy,
+                @RequestParam(defaultValue = "false") boolean includeTotal) {
+                return ApiResponse.<CursorPageResponse<ProductResponse>>builder()
+                        .result(productService.getProductsByCursor(
+                                shopId, categoryId, cursor, size, sortBy, sortDirection, minPrice, maxPrice, productSort, includeTotal))
+                        .build();
+        }
+
+        @PostMapping(value = "/products/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+        public ApiResponse<List<ProductLookupResponse>> lookupProducts(@RequestBody @Valid ProductLookupRequest request) {
+                return ApiResponse.<List<ProductLookupResponse>>builder()
+                        .result(productService.lookupProducts(request.getItems()))
+                        .build();
+        }
+
         @GetMapping("/{productId}")
         public ApiResponse<ProductResponse> getProductById(@PathVariable String productId) {
                 return ApiResponse.<ProductResponse>builder()
@@ -129,6 +200,13 @@ public class ProductController {
                         .build();
         }
 
+        @GetMapping("/{productId}/summary")
+        public ApiResponse<ProductSummaryResponse> getProductSummary(@PathVariable String productId) {
+                return ApiResponse.<ProductSummaryResponse>builder()
+                        .result(productService.getProductSummary(productId))
+                        .build();
+        }
+
         @GetMapping("/shop/{shopId}")
         public ApiResponse<List<ProductResponse>> getProductsByShopId(@PathVariable String shopId) {
                 return ApiResponse.<List<ProductResponse>>builder()
@@ -136,6 +214,13 @@ public class ProductController {
                         .build();
         }
 
+        @GetMapping(value = "/shop/{shopId}/export", produces = NDJSON_VALUE)
+        public ResponseEntity<StreamingResponseBody> exportProductsByShopId(@PathVariable String shopId) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                        .body(outputStream -> productService.exportProducts(shopId, outputStream));
+        }
+
         @GetMapping("/{productId}/stock/{variantId}")
         public ApiResponse<Integer> getProductStockById(@PathVariable String productId,
                                                         @PathVariable String variantId) {
@@ -151,6 +236,14 @@ public class ProductController {
                         .build();
         }
 
+        @PreAuthorize("hasRole('ADMIN')")
+        @GetMapping(value = "/export", produces = NDJSON_VALUE)
+        public ResponseEntity<StreamingResponseBody> exportAllProducts() {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                        .body(outputStream -> productService.exportProducts(null, outputStream));
+        }
+
         @GetMapping("/{productId}/price/{variantId}")
         public ApiResponse<Double> getProductPriceById(@PathVariable String productId,
                                                         @PathVariable String variantId) {
@@ -182,9 +275,12 @@ public class ProductController {
         }
 
         @GetMapping("/by-category/{categoryId}")
-        public ApiResponse<List<ProductResponse>> getProductsByCategoryId(@PathVariable String categoryId) {
-                return ApiResponse.<List<ProductResponse>>builder()
-                        .result(productService.getProductsByCategoryId(categoryId))
+        public ApiResponse<Page<ProductResponse>> getProductsByCategoryId(
+                @PathVariable String categoryId,
+                @RequestParam(defaultValue = "0") int page,
+                @RequestParam(defaultValue = "10") int size) {
+                return ApiResponse.<Page<ProductResponse>>builder()
+                        .result(productService.getProductsByCategoryId(categoryId, page, size))
                         .build();
         }
 
@@ -0,0 +1,31 @@
+package com.phuc.product.controller;
+
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.response.ProductSearchResponse;
+import com.phuc.product.service.ProductSearchService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductSearchController {
+
+    ProductSearchService productSearchService;
+
+    @GetMapping("/search")
+    public ApiResponse<ProductSearchResponse> search(@RequestParam("q") String query,
+                                                     @RequestParam(required = false) String categoryId,
+                                                     @RequestParam(required = false) String shopId,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "10") int size) {
+        return ApiResponse.<ProductSearchResponse>builder()
+                .result(productSearchService.search(query, categoryId, shopId, page, size))
+                .build();
+    }
+
+}
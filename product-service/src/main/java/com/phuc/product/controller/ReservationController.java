@@ -0,0 +1,42 @@
+package com.phuc.product.controller;
+
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.request.ReservationRequest;
+import com.phuc.product.dto.response.ReservationResponse;
+import com.phuc.product.service.ReservationService;
+import jakarta.validation.Valid;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reservations")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReservationController {
+
+    ReservationService reservationService;
+
+    @PostMapping
+    public ApiResponse<ReservationResponse> reserve(@RequestBody @Valid ReservationRequest request) {
+        return ApiResponse.<ReservationResponse>builder()
+                .result(reservationService.reserve(request))
+                .build();
+    }
+
+    @PostMapping("/{reference}/confirm")
+    public ApiResponse<ReservationResponse> confirm(@PathVariable String reference) {
+        return ApiResponse.<ReservationResponse>builder()
+                .result(reservationService.confirm(reference))
+                .build();
+    }
+
+    @PostMapping("/{reference}/release")
+    public ApiResponse<ReservationResponse> release(@PathVariable String reference) {
+        return ApiResponse.<ReservationResponse>builder()
+                .result(reservationService.release(reference))
+                .build();
+    }
+
+}
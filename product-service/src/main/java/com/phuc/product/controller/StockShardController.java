@@ -0,0 +1,47 @@
+package com.phuc.product.controller;
+
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.response.StockShardResponse;
+import com.phuc.product.service.StockShardService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin/stock-shards")
+@PreAuthorize("hasRole('ADMIN')")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StockShardController {
+
+    StockShardService stockShardService;
+
+    @GetMapping
+    public ApiResponse<List<StockShardResponse>> getShardedVariants() {
+        return ApiResponse.<List<StockShardResponse>>builder()
+                .result(stockShardService.getShardedVariants())
+                .build();
+    }
+
+    @PostMapping("/{productId}/variants/{variantId}")
+    public ApiResponse<StockShardResponse> enable(@PathVariable String productId,
+                                                  @PathVariable String variantId,
+                                                  @RequestParam(defaultValue = "8") int shards) {
+        return ApiResponse.<StockShardResponse>builder()
+                .result(stockShardService.enable(productId, variantId, shards))
+                .build();
+    }
+
+    @DeleteMapping("/{productId}/variants/{variantId}")
+    public ApiResponse<StockShardResponse> disable(@PathVariable String productId,
+                                                   @PathVariable String variantId) {
+        return ApiResponse.<StockShardResponse>builder()
+                .result(stockShardService.disable(productId, variantId))
+                .build();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.phuc.product.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductLookupItemRequest {
+
+    @NotNull(message = "PRODUCT_ID_IS_REQUIRED")
+    String productId;
+
+    String variantId;
+
+}
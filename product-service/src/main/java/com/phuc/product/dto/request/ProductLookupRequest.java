@@ -0,0 +1,23 @@
+package com.phuc.product.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductLookupRequest {
+
+    @Valid
+    @NotNull(message = "LOOKUP_ITEMS_ARE_REQUIRED")
+    @Size(min = 1, max = 500, message = "LOOKUP_ITEMS_OUT_OF_RANGE")
+    List<ProductLookupItemRequest> items;
+
+}
@@ -0,0 +1,25 @@
+package com.phuc.product.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationItemRequest {
+
+    @NotNull(message = "PRODUCT_ID_IS_REQUIRED")
+    String productId;
+
+    @NotNull(message = "VARIANT_ID_IS_REQUIRED")
+    String variantId;
+
+    @NotNull(message = "QUANTITY_MUST_BE_POSITIVE")
+    @Positive(message = "QUANTITY_MUST_BE_POSITIVE")
+    Integer quantity;
+
+}
@@ -0,0 +1,27 @@
+package com.phuc.product.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationRequest {
+
+    @NotBlank(message = "RESERVATION_REFERENCE_IS_REQUIRED")
+    String reference;
+
+    @Valid
+    @NotEmpty(message = "RESERVATION_ITEMS_ARE_REQUIRED")
+    @Size(max = 100, message = "TOO_MANY_RESERVATION_ITEMS")
+    List<ReservationItemRequest> items;
+
+}
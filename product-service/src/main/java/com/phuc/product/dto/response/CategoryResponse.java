@@ -2,7 +2,6 @@ package com.phuc.product.dto.response;
 
 import lombok.*;
 import lombok.experimental.FieldDefaults;
-import java.util.Set;
 
 @Data
 @Builder
@@ -15,6 +14,6 @@ public class CategoryResponse {
     String shopId;
     String name;
     String description;
-    Set<String> productIds;
+    long productCount;
 
 }
\ No newline at end of file
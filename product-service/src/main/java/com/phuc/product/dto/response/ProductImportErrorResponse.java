@@ -0,0 +1,17 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductImportErrorResponse {
+
+    int row;
+    String code;
+    String message;
+
+}
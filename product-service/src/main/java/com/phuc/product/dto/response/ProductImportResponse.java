@@ -0,0 +1,20 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductImportResponse {
+
+    int total;
+    int imported;
+    int failed;
+    List<ProductImportErrorResponse> errors;
+
+}
@@ -0,0 +1,23 @@
+package com.phuc.product.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductLookupResponse {
+
+    String productId;
+    String variantId;
+    boolean exists;
+    String shopId;
+    String name;
+    Double price;
+    Integer stock;
+
+}
@@ -18,8 +18,12 @@ public class ProductResponse {
     String name;
     String description;
     List<ProductVariantResponse> variants;
+    Double minPrice;
+    Double maxPrice;
+    Integer totalSold;
     String categoryId;
     List<String> imageUrls;
+    Integer pendingImageCount;
     LocalDateTime createdAt;
     LocalDateTime updatedAt;
 
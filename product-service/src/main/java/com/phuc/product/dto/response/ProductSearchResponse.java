@@ -0,0 +1,23 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSearchResponse {
+
+    List<ProductResponse> content;
+    long totalElements;
+    int page;
+    int size;
+    Map<String, Long> categoryFacets;
+    Map<String, Long> shopFacets;
+
+}
@@ -0,0 +1,25 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSummaryResponse {
+
+    String id;
+    String shopId;
+    String categoryId;
+    String name;
+    Double minPrice;
+    Double maxPrice;
+    Integer totalSold;
+    String thumbnailUrl;
+    LocalDateTime createdAt;
+
+}
@@ -15,6 +15,7 @@ public class ProductVariantResponse {
     double price;
     int stock;
     int soldQuantity;
+    int reserved;
     Map<String, Object> attributes;
 
 }
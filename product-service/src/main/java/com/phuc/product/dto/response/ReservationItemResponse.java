@@ -0,0 +1,17 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationItemResponse {
+
+    String productId;
+    String variantId;
+    int quantity;
+
+}
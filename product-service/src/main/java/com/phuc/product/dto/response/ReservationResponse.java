@@ -0,0 +1,22 @@
+package com.phuc.product.dto.response;
+
+import com.phuc.product.enums.ReservationStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationResponse {
+
+    String reference;
+    ReservationStatus status;
+    LocalDateTime expiresAt;
+    List<ReservationItemResponse> items;
+
+}
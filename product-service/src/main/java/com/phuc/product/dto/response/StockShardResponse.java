@@ -0,0 +1,20 @@
+package com.phuc.product.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StockShardResponse {
+
+    String productId;
+    String variantId;
+    int shards;
+    long available;
+    long pendingReserved;
+    long pendingSold;
+
+}
@@ -4,8 +4,6 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
-import java.util.HashSet;
-import java.util.Set;
 
 @Getter
 @Setter
@@ -21,6 +19,6 @@ public class Category {
     String shopId;
     String name;
     String description;
-    Set<String> productIds = new HashSet<>();
+    long productCount;
 
 }
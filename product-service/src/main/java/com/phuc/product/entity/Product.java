@@ -33,10 +33,20 @@ public class Product {
 
     List<ProductVariant> variants;
 
+    Double minPrice;
+
+    Double maxPrice;
+
+    Integer totalSold;
+
     String description;
 
     List<String> imageUrls;
 
+    Integer pendingImageCount;
+
+    String imageUploadId;
+
     @CreatedDate
     LocalDateTime createdAt;
 
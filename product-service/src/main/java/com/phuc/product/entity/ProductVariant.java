@@ -24,6 +24,8 @@ public class ProductVariant {
 
     int soldQuantity;
 
+    int reserved;
+
     Map<String, Object> attributes;
 
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.phuc.product.entity;
+
+import com.phuc.product.enums.ReservationStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Document(collection = "reservations")
+public class Reservation {
+
+    @Id
+    String id;
+
+    List<ReservationItem> items;
+
+    ReservationStatus status;
+
+    LocalDateTime expiresAt;
+
+    LocalDateTime createdAt;
+
+}
@@ -0,0 +1,22 @@
+package com.phuc.product.entity;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReservationItem {
+
+    String productId;
+
+    String variantId;
+
+    int quantity;
+
+    boolean held;
+
+}
@@ -0,0 +1,10 @@
+package com.phuc.product.enums;
+
+public enum ReservationStatus {
+
+    PENDING,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED
+
+}
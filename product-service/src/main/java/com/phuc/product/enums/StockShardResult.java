@@ -0,0 +1,9 @@
+package com.phuc.product.enums;
+
+public enum StockShardResult {
+
+    TAKEN,
+    INSUFFICIENT,
+    NOT_SHARDED
+
+}
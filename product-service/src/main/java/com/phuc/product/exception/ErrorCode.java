@@ -48,6 +48,26 @@ public enum ErrorCode {
     AT_LEAST_ONE_ATTRIBUTE_IS_REQUIRED(2019, "At least one attribute is required for the product variant.", HttpStatus.BAD_REQUEST),
     SHOP_ID_IS_REQUIRED(2020, "Shop ID is required. Please provide a valid shop ID.", HttpStatus.BAD_REQUEST),
     INSUFFICIENT_STOCK(2021, "Insufficient stock available for the requested quantity.", HttpStatus.BAD_REQUEST),
+    PRODUCT_ID_IS_REQUIRED(2022, "Product ID is required. Please provide a valid product ID.", HttpStatus.BAD_REQUEST),
+    LOOKUP_ITEMS_ARE_REQUIRED(2023, "At least one product lookup item is required.", HttpStatus.BAD_REQUEST),
+    LOOKUP_ITEMS_OUT_OF_RANGE(2024, "A lookup request must contain between 1 and 500 items.", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR(2025, "The pagination cursor is invalid or does not match the requested sort.", HttpStatus.BAD_REQUEST),
+    UNSUPPORTED_SORT_FIELD(2026, "Cursor pagination only supports sorting by name, price, sales or creation date.", HttpStatus.BAD_REQUEST),
+    RESERVATION_NOT_FOUND(2027, "The specified stock reservation could not be found.", HttpStatus.NOT_FOUND),
+    RESERVATION_NOT_PENDING(2028, "The stock reservation has already been confirmed, released or expired.", HttpStatus.GONE),
+    RESERVATION_REFERENCE_IS_REQUIRED(2029, "Reservation reference is required.", HttpStatus.BAD_REQUEST),
+    RESERVATION_ITEMS_ARE_REQUIRED(2030, "At least one item is required to reserve stock.", HttpStatus.BAD_REQUEST),
+    QUANTITY_MUST_BE_POSITIVE(2031, "Quantity must be a positive number.", HttpStatus.BAD_REQUEST),
+    VARIANT_ID_IS_REQUIRED(2032, "Variant ID is required. Please provide a valid variant ID.", HttpStatus.BAD_REQUEST),
+    IMPORT_ROW_LIMIT_EXCEEDED(2033, "The import exceeds the maximum number of products per request.", HttpStatus.PAYLOAD_TOO_LARGE),
+    INVALID_IMPORT_ROW(2034, "The import row could not be read as a product.", HttpStatus.BAD_REQUEST),
+    STOCK_SHARDS_ALREADY_ENABLED(2035, "Sharded stock is already enabled for this variant.", HttpStatus.CONFLICT),
+    STOCK_SHARDS_NOT_ENABLED(2036, "Sharded stock is not enabled for this variant.", HttpStatus.NOT_FOUND),
+    INVALID_SHARD_COUNT(2037, "Shard count must be between 2 and 64.", HttpStatus.BAD_REQUEST),
+    STOCK_MANAGED_BY_SHARDS(2038, "Stock of this variant is sharded; disable sharded stock before changing it.", HttpStatus.CONFLICT),
+    INVALID_PAGE_REQUEST(2039, "Page must not be negative and page size must be between 1 and 100.", HttpStatus.BAD_REQUEST),
+    TOO_MANY_RESERVATION_ITEMS(2040, "A reservation must not contain more than 100 items.", HttpStatus.BAD_REQUEST),
+    RESERVATION_CONFLICT(2041, "A different stock reservation already exists under this reference.", HttpStatus.CONFLICT),
     ;
 
     int code;
@@ -4,19 +4,20 @@ import com.phuc.product.configuration.AuthenticationRequestInterceptor;
 import com.phuc.product.dto.ApiResponse;
 import com.phuc.product.httpclient.response.FileResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
-
 @FeignClient(name = "file-service", url = "${file.service.url}", configuration = AuthenticationRequestInterceptor.class)
 public interface FileClient {
 
     @PostMapping(
-        value = "/files/upload-multiple",
+        value = "/files/upload",
         consumes = "multipart/form-data",
        produces = "application/json"
     )
-    ApiResponse<List<FileResponse>> uploadMultipleFiles(@RequestPart("files") List<MultipartFile> files);
+    ApiResponse<FileResponse> uploadFile(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                         @RequestPart("file") MultipartFile file);
 }
\ No newline at end of file
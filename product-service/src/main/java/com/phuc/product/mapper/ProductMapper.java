@@ -4,12 +4,14 @@ import com.phuc.product.dto.request.ProductCreationRequest;
 import com.phuc.product.dto.request.ProductUpdateRequest;
 import com.phuc.product.dto.request.ProductVariantRequest;
 import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
 import com.phuc.product.entity.Product;
 import com.phuc.product.entity.ProductVariant;
 
 import java.util.List;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
 @Mapper(componentModel = "spring")
@@ -23,6 +25,12 @@ public interface ProductMapper {
 
       List<ProductResponse> toProductResponses(List<Product> products);
 
+      @Mapping(target = "thumbnailUrl",
+              expression = "java(product.getImageUrls() == null || product.getImageUrls().isEmpty() ? null : product.getImageUrls().get(0))")
+      ProductSummaryResponse toProductSummaryResponse(Product product);
+
+      List<ProductSummaryResponse> toProductSummaryResponses(List<Product> products);
+
       List<ProductVariant> toVariants(List<ProductVariantRequest> variantRequests);
 
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.phuc.product.mapper;
+
+import com.phuc.product.dto.response.ReservationResponse;
+import com.phuc.product.entity.Reservation;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ReservationMapper {
+
+      @Mapping(source = "id", target = "reference")
+      ReservationResponse toReservationResponse(Reservation reservation);
+
+}
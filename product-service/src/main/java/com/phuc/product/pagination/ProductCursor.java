@@ -0,0 +1,105 @@
+package com.phuc.product.pagination;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Opaque keyset position in a product listing: the sort key of the last returned product
+ * plus its id as a tie-breaker. Encoded as URL-safe Base64 so clients treat it as a token.
+ */
+public record ProductCursor(String sortField, Sort.Direction direction, Object value, String id) {
+
+    public static final Set<String> SORT_FIELDS = Set.of("name", "minPrice", "totalSold", "createdAt");
+
+    static final String SEPARATOR = "|";
+    static final String PRESENT = "v";
+    static final String ABSENT = "n";
+
+    public ProductCursor {
+        Objects.requireNonNull(sortField, "sortField must not be null");
+        Objects.requireNonNull(direction, "direction must not be null");
+        Objects.requireNonNull(id, "id must not be null");
+        if (!SORT_FIELDS.contains(sortField)) {
+            throw new AppException(ErrorCode.UNSUPPORTED_SORT_FIELD);
+        }
+    }
+
+    public static ProductCursor after(Product product, String sortField, Sort.Direction direction) {
+        Object value = switch (sortField) {
+            case "name" -> product.getName();
+            case "minPrice" -> product.getMinPrice();
+            case "totalSold" -> product.getTotalSold();
+            case "createdAt" -> product.getCreatedAt();
+            default -> throw new AppException(ErrorCode.UNSUPPORTED_SORT_FIELD);
+        };
+        return new ProductCursor(sortField, direction, value, product.getId());
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            String sortField = parts[0];
+            Sort.Direction direction = Sort.Direction.fromString(parts[1]);
+            Object value = parts[3].startsWith(PRESENT) ? parseValue(sortField, parts[3].substring(1)) : null;
+            return new ProductCursor(sortField, direction, value, parts[2]);
+        } catch (IllegalArgumentException ex) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public String encode() {
+        String encodedValue = value == null ? ABSENT : PRESENT + value;
+        String raw = sortField + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean matches(String sortField, Sort.Direction direction) {
+        return this.sortField.equals(sortField) && this.direction == direction;
+    }
+
+    /**
+     * Documents strictly after this position for the sort {@code (sortField, _id)} in
+     * {@link #direction}. Missing sort keys order before every value in ascending order.
+     */
+    public Criteria toCriteria() {
+        boolean ascending = direction.isAscending();
+        Criteria idAfter = ascending ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id);
+
+        if (value == null) {
+            Criteria sameKey = new Criteria().andOperator(Criteria.where(sortField).is(null), idAfter);
+            return ascending
+                    ? new Criteria().orOperator(sameKey, Criteria.where(sortField).ne(null))
+                    : sameKey;
+        }
+
+        Criteria keyAfter = ascending ? Criteria.where(sortField).gt(value) : Criteria.where(sortField).lt(value);
+        Criteria sameKey = new Criteria().andOperator(Criteria.where(sortField).is(value), idAfter);
+        return ascending
+                ? new Criteria().orOperator(keyAfter, sameKey)
+                : new Criteria().orOperator(keyAfter, sameKey, Criteria.where(sortField).is(null));
+    }
+
+    private static Object parseValue(String sortField, String value) {
+        return switch (sortField) {
+            case "name" -> value;
+            case "minPrice" -> Double.valueOf(value);
+            case "totalSold" -> Integer.valueOf(value);
+            case "createdAt" -> LocalDateTime.parse(value);
+            default -> throw new AppException(ErrorCode.UNSUPPORTED_SORT_FIELD);
+        };
+    }
+
+}
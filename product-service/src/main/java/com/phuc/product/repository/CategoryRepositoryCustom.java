@@ -0,0 +1,15 @@
+package com.phuc.product.repository;
+
+import com.phuc.product.entity.Category;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CategoryRepositoryCustom {
+
+    Optional<Category> incrementProductCount(String categoryId, long delta);
+
+    List<Category> incrementProductCounts(Map<String, Long> deltas);
+
+}
@@ -0,0 +1,57 @@
+package com.phuc.product.repository;
+
+import com.phuc.product.entity.Category;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Category membership lives on {@code Product.categoryId}; the category only keeps a
+ * counter, adjusted in place so product writes never rewrite the category document. Each
+ * adjustment returns the touched categories with their {@code shopId}, so the service layer
+ * can evict the cache entries showing the old count.
+ */
+@RequiredArgsConstructor
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Category> incrementProductCount(String categoryId, long delta) {
+        Query query = Query.query(Criteria.where("_id").is(categoryId));
+        query.fields().include("shopId");
+        return Optional.ofNullable(mongoTemplate.findAndModify(query,
+                new Update().inc("productCount", delta),
+                FindAndModifyOptions.options().returnNew(true),
+                Category.class));
+    }
+
+    @Override
+    public List<Category> incrementProductCounts(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+        List<Pair<Query, UpdateDefinition>> updates = deltas.entrySet().stream()
+                .map(entry -> Pair.<Query, UpdateDefinition>of(
+                        Query.query(Criteria.where("_id").is(entry.getKey())),
+                        new Update().inc("productCount", entry.getValue())))
+                .toList();
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Category.class)
+                .updateOne(updates)
+                .execute();
+        Query query = Query.query(Criteria.where("_id").in(deltas.keySet()));
+        query.fields().include("shopId");
+        return mongoTemplate.find(query, Category.class);
+    }
+
+}
@@ -4,10 +4,8 @@ import com.phuc.product.entity.Product;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
 
     List<Product> findByShopId(String shopId);
 
-    List<Product> findByCategoryId(String categoryId);
-    
 }
@@ -0,0 +1,32 @@
+package com.phuc.product.repository;
+
+import com.phuc.product.entity.Product;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Optional;
+
+public interface ProductRepositoryCustom {
+
+    boolean decrementStock(String productId, String variantId, int quantity, boolean recordSale);
+
+    boolean incrementStock(String productId, String variantId, int quantity);
+
+    boolean holdStock(String productId, String variantId, int quantity);
+
+    boolean commitHeldStock(String productId, String variantId, int quantity);
+
+    boolean releaseHeldStock(String productId, String variantId, int quantity);
+
+    boolean existsVariant(String productId, String variantId);
+
+    boolean applyStockDelta(String productId, String variantId, long stockDelta, long reservedDelta, long soldDelta);
+
+    Optional<Product> findSummaryById(String productId);
+
+    Optional<Product> findWithVariant(String productId, String variantId);
+
+    Query withSummaryFields(Query query);
+
+    boolean completeImageSlot(String productId, String uploadId, int slot, String imageUrl);
+
+}
@@ -0,0 +1,168 @@
+package com.phuc.product.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.phuc.product.entity.Product;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Stock mutations executed as single conditional updates inside MongoDB, so concurrent
+ * checkouts never overwrite each other and only the touched variant fields are written.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    static final String VARIANT_FILTER = "v";
+
+    MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean decrementStock(String productId, String variantId, int quantity, boolean recordSale) {
+        Query query = Query.query(Criteria.where("_id").is(productId)
+                .and("variants").elemMatch(Criteria.where("variantId").is(variantId).and("stock").gte(quantity)));
+
+        Update update = new Update()
+                .inc(variantField("stock"), -quantity)
+                .set("updatedAt", LocalDateTime.now())
+                .filterArray(Criteria.where(VARIANT_FILTER + ".variantId").is(variantId));
+        if (recordSale) {
+            update.inc(variantField("soldQuantity"), quantity).inc("totalSold", quantity);
+        }
+
+        return isModified(mongoTemplate.updateFirst(query, update, Product.class));
+    }
+
+    @Override
+    public boolean incrementStock(String productId, String variantId, int quantity) {
+        Query query = Query.query(Criteria.where("_id").is(productId).and("variants.variantId").is(variantId));
+
+        Update update = new Update()
+                .inc(variantField("stock"), quantity)
+                .set("updatedAt", LocalDateTime.now())
+                .filterArray(Criteria.where(VARIANT_FILTER + ".variantId").is(variantId));
+
+        return isModified(mongoTemplate.updateFirst(query, update, Product.class));
+    }
+
+    @Override
+    public boolean applyStockDelta(String productId, String variantId, long stockDelta, long reservedDelta, long soldDelta) {
+        Query query = Query.query(Criteria.where("_id").is(productId).and("variants.variantId").is(variantId));
+
+        Update update = new Update()
+                .inc(variantField("stock"), stockDelta)
+                .inc(variantField("reserved"), reservedDelta)
+                .inc(variantField("soldQuantity"), soldDelta)
+                .inc("totalSold", soldDelta)
+                .set("updatedAt", LocalDateTime.now())
+                .filterArray(Criteria.where(VARIANT_FILTER + ".variantId").is(variantId));
+
+        return isModified(mongoTemplate.updateFirst(query, update, Product.class));
+    }
+
+    @Override
+    public boolean holdStock(String productId, String variantId, int quantity) {
+        Update update = new Update()
+                .inc(variantField("stock"), -quantity)
+                .inc(variantField("reserved"), quantity);
+        return updateVariantGuarded(productId, variantId, "stock", quantity, update);
+    }
+
+    @Override
+    public boolean commitHeldStock(String productId, String variantId, int quantity) {
+        Update update = new Update()
+                .inc(variantField("reserved"), -quantity)
+                .inc(variantField("soldQuantity"), quantity)
+                .inc("totalSold", quantity);
+        return updateVariantGuarded(productId, variantId, "reserved", quantity, update);
+    }
+
+    @Override
+    public boolean releaseHeldStock(String productId, String variantId, int quantity) {
+        Update update = new Update()
+                .inc(variantField("reserved"), -quantity)
+                .inc(variantField("stock"), quantity);
+        return updateVariantGuarded(productId, variantId, "reserved", quantity, update);
+    }
+
+    @Override
+    public boolean existsVariant(String productId, String variantId) {
+        return mongoTemplate.exists(
+                Query.query(Criteria.where("_id").is(productId).and("variants.variantId").is(variantId)),
+                Product.class);
+    }
+
+    @Override
+    public Optional<Product> findSummaryById(String productId) {
+        Query query = withSummaryFields(Query.query(Criteria.where("_id").is(productId)));
+        return Optional.ofNullable(mongoTemplate.findOne(query, Product.class));
+    }
+
+    @Override
+    public Optional<Product> findWithVariant(String productId, String variantId) {
+        Query query = Query.query(Criteria.where("_id").is(productId));
+        query.fields()
+                .include("shopId")
+                .elemMatch("variants", Criteria.where("variantId").is(variantId));
+        return Optional.ofNullable(mongoTemplate.findOne(query, Product.class));
+    }
+
+    @Override
+    public Query withSummaryFields(Query query) {
+        query.fields()
+                .include("shopId", "categoryId", "name", "minPrice", "maxPrice", "totalSold", "createdAt")
+                .slice("imageUrls", 1);
+        return query;
+    }
+
+    @Override
+    public boolean completeImageSlot(String productId, String uploadId, int slot, String imageUrl) {
+        Criteria batch = Criteria.where("_id").is(productId).and("imageUploadId").is(uploadId);
+        Update update = new Update()
+                .inc("pendingImageCount", -1)
+                .set("updatedAt", LocalDateTime.now());
+        if (imageUrl != null) {
+            update.set("imageUrls." + slot, imageUrl);
+        }
+        Query query = Query.query(batch);
+        query.fields().include("pendingImageCount");
+        Product updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updated == null) {
+            return false;
+        }
+        if (updated.getPendingImageCount() != null && updated.getPendingImageCount() <= 0) {
+            // Failed slots stay null until the whole batch is done, so indexes don't shift underneath it.
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(productId).and("imageUploadId").is(uploadId)),
+                    new Update().pull("imageUrls", null).unset("imageUploadId").set("pendingImageCount", 0),
+                    Product.class);
+        }
+        return true;
+    }
+
+    private boolean updateVariantGuarded(String productId, String variantId, String guardField, int minimum, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(productId)
+                .and("variants").elemMatch(Criteria.where("variantId").is(variantId).and(guardField).gte(minimum)));
+        update.set("updatedAt", LocalDateTime.now())
+                .filterArray(Criteria.where(VARIANT_FILTER + ".variantId").is(variantId));
+        return isModified(mongoTemplate.updateFirst(query, update, Product.class));
+    }
+
+    private String variantField(String field) {
+        return "variants.$[" + VARIANT_FILTER + "]." + field;
+    }
+
+    private boolean isModified(UpdateResult result) {
+        return result.getModifiedCount() > 0;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.phuc.product.repository;
+
+import com.phuc.product.entity.Reservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ReservationRepository extends MongoRepository<Reservation, String> {
+}
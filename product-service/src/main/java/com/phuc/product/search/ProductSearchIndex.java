@@ -0,0 +1,323 @@
+package com.phuc.product.search;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, description and variant attribute values,
+ * ranked with BM25. Name tokens are counted twice so title matches outrank description
+ * matches. The last query token is also expanded as a prefix for search-as-you-type.
+ *
+ * <p>Documents get an internal int id. Replacing or removing a product drops its postings
+ * straight away and frees its id, which the next new document reuses, so churn does not
+ * grow the document table. Each document remembers its position in every posting list, so
+ * dropping it costs one swap per term rather than a scan of the list.
+ *
+ * <p>A bulk {@link #load} between {@link #beginLoad} and {@link #endLoad} skips products
+ * removed after the load began, since the scan feeding it may still see them.
+ */
+public class ProductSearchIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final int NAME_BOOST = 2;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    static final double PREFIX_WEIGHT = 0.5;
+
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+    final NavigableMap<String, Postings> postings = new TreeMap<>();
+    final Map<String, Integer> docIds = new HashMap<>();
+    final List<IndexedDocument> documents = new ArrayList<>();
+    final Deque<Integer> freeIds = new ArrayDeque<>();
+    long totalLength;
+    int liveDocuments;
+    Set<String> removedDuringLoad;
+
+    public void upsert(Product product) {
+        upsert(product, false);
+    }
+
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            removedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes a product read by a bulk scan, unless it was removed since the scan began. */
+    public void load(Product product) {
+        upsert(product, true);
+    }
+
+    public void endLoad() {
+        lock.writeLock().lock();
+        try {
+            removedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsert(Product product, boolean fromLoad) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = 0;
+        for (String token : SearchTokenizer.tokenize(product.getName())) {
+            termFrequencies.merge(token, NAME_BOOST, Integer::sum);
+            length += NAME_BOOST;
+        }
+        for (String token : SearchTokenizer.tokenize(product.getDescription())) {
+            termFrequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+        if (product.getVariants() != null) {
+            for (ProductVariant variant : product.getVariants()) {
+                if (variant.getAttributes() == null) {
+                    continue;
+                }
+                for (Object value : variant.getAttributes().values()) {
+                    for (String token : SearchTokenizer.tokenize(value == null ? null : value.toString())) {
+                        termFrequencies.merge(token, 1, Integer::sum);
+                        length++;
+                    }
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (removedDuringLoad != null) {
+                if (fromLoad && removedDuringLoad.contains(product.getId())) {
+                    return;
+                }
+                if (!fromLoad) {
+                    removedDuringLoad.remove(product.getId());
+                }
+            }
+            Integer existing = docIds.get(product.getId());
+            if (existing != null) {
+                IndexedDocument current = documents.get(existing);
+                if (isOlder(product.getUpdatedAt(), current.updatedAt())) {
+                    return;
+                }
+                removeDocument(existing);
+            }
+
+            String[] terms = termFrequencies.keySet().toArray(String[]::new);
+            int[] positions = new int[terms.length];
+            IndexedDocument document = new IndexedDocument(product.getId(), product.getShopId(),
+                    product.getCategoryId(), length, terms, positions, product.getUpdatedAt());
+            Integer freeId = freeIds.poll();
+            int docId;
+            if (freeId == null) {
+                docId = documents.size();
+                documents.add(document);
+            } else {
+                docId = freeId;
+                documents.set(docId, document);
+            }
+            docIds.put(product.getId(), docId);
+            for (int t = 0; t < terms.length; t++) {
+                positions[t] = postings.computeIfAbsent(terms[t], term -> new Postings())
+                        .add(docId, termFrequencies.get(terms[t]), t);
+            }
+            totalLength += length;
+            liveDocuments++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            if (removedDuringLoad != null) {
+                removedDuringLoad.add(productId);
+            }
+            Integer docId = docIds.remove(productId);
+            if (docId != null) {
+                removeDocument(docId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(String text, String categoryId, String shopId, int offset, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return new SearchResult(0, List.of(), Map.of(), Map.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0) {
+                return new SearchResult(0, List.of(), Map.of(), Map.of());
+            }
+            double averageLength = (double) totalLength / liveDocuments;
+            Map<Integer, Double> scores = new HashMap<>();
+
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                Postings exact = postings.get(token);
+                if (exact != null) {
+                    accumulate(exact, 1.0, categoryId, shopId, averageLength, scores);
+                }
+                if (i == tokens.size() - 1) {
+                    int expansions = 0;
+                    for (Map.Entry<String, Postings> entry
+                            : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                        if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        accumulate(entry.getValue(), PREFIX_WEIGHT, categoryId, shopId, averageLength, scores);
+                    }
+                }
+            }
+
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            Map<String, Long> shopCounts = new LinkedHashMap<>();
+            Comparator<Map.Entry<Integer, Double>> byScore = Map.Entry.comparingByValue();
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(byScore);
+            int window = offset + limit;
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                IndexedDocument document = documents.get(entry.getKey());
+                if (document.categoryId() != null) {
+                    categoryCounts.merge(document.categoryId(), 1L, Long::sum);
+                }
+                if (document.shopId() != null) {
+                    shopCounts.merge(document.shopId(), 1L, Long::sum);
+                }
+                if (window > 0) {
+                    top.offer(entry);
+                    if (top.size() > window) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(byScore.reversed());
+            List<SearchHit> hits = ranked.stream()
+                    .skip(offset)
+                    .map(entry -> new SearchHit(documents.get(entry.getKey()).productId(), entry.getValue()))
+                    .toList();
+            return new SearchResult(scores.size(), hits, categoryCounts, shopCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(Postings termPostings, double weight, String categoryId, String shopId,
+                            double averageLength, Map<Integer, Double> scores) {
+        double idf = Math.log(1 + (liveDocuments - termPostings.size + 0.5) / (termPostings.size + 0.5));
+        for (int i = 0; i < termPostings.size; i++) {
+            int docId = termPostings.docIds[i];
+            IndexedDocument document = documents.get(docId);
+            if ((categoryId != null && !categoryId.equals(document.categoryId()))
+                    || (shopId != null && !shopId.equals(document.shopId()))) {
+                continue;
+            }
+            int frequency = termPostings.frequencies[i];
+            double norm = frequency + K1 * (1 - B + B * document.length() / averageLength);
+            scores.merge(docId, weight * idf * frequency * (K1 + 1) / norm, Double::sum);
+        }
+    }
+
+    private void removeDocument(int docId) {
+        IndexedDocument document = documents.set(docId, null);
+        if (document == null) {
+            return;
+        }
+        String[] terms = document.terms();
+        for (int t = 0; t < terms.length; t++) {
+            Postings termPostings = postings.get(terms[t]);
+            int position = document.positions()[t];
+            if (termPostings.removeAt(position)) {
+                documents.get(termPostings.docIds[position]).positions()[termPostings.termIndexes[position]] = position;
+            }
+            if (termPostings.size == 0) {
+                postings.remove(terms[t]);
+            }
+        }
+        freeIds.push(docId);
+        totalLength -= document.length();
+        liveDocuments--;
+    }
+
+    private static boolean isOlder(LocalDateTime candidate, LocalDateTime current) {
+        return candidate != null && current != null && candidate.isBefore(current);
+    }
+
+    /** {@code positions[t]} is where this document sits in the postings of {@code terms[t]}. */
+    record IndexedDocument(String productId, String shopId, String categoryId, int length, String[] terms,
+                           int[] positions, LocalDateTime updatedAt) {
+    }
+
+    static final class Postings {
+
+        int[] docIds = new int[4];
+        int[] frequencies = new int[4];
+        /** Index of this term within the owning document's {@code terms}. */
+        int[] termIndexes = new int[4];
+        int size;
+
+        /** Appends an entry and returns its position. */
+        int add(int docId, int frequency, int termIndex) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+                termIndexes = Arrays.copyOf(termIndexes, size * 2);
+            }
+            docIds[size] = docId;
+            frequencies[size] = frequency;
+            termIndexes[size] = termIndex;
+            return size++;
+        }
+
+        /**
+         * Removes the entry at {@code position} by moving the last entry into its place, since
+         * order carries no meaning. Returns whether an entry was moved, so its owner can be told.
+         */
+        boolean removeAt(int position) {
+            size--;
+            if (position == size) {
+                return false;
+            }
+            docIds[position] = docIds[size];
+            frequencies[position] = frequencies[size];
+            termIndexes[position] = termIndexes[size];
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,4 @@
+package com.phuc.product.search;
+
+public record SearchHit(String productId, double score) {
+}
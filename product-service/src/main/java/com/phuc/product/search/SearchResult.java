@@ -0,0 +1,7 @@
+package com.phuc.product.search;
+
+import java.util.List;
+import java.util.Map;
+
+public record SearchResult(long total, List<SearchHit> hits, Map<String, Long> categoryCounts, Map<String, Long> shopCounts) {
+}
@@ -4,6 +4,7 @@ import com.phuc.product.dto.request.CategoryCreationRequest;
 import com.phuc.product.dto.request.CategoryUpdateRequest;
 import com.phuc.product.dto.response.CategoryResponse;
 import java.util.List;
+import java.util.Map;
 
 public interface CategoryService {
 
@@ -19,4 +20,8 @@ public interface CategoryService {
 
     List<CategoryResponse> getCategoriesByShopId(String shopId);
 
+    void adjustProductCount(String categoryId, long delta);
+
+    void adjustProductCounts(Map<String, Long> deltas);
+
 }
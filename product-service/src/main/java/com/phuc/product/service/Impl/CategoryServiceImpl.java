@@ -21,10 +21,12 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
@@ -36,12 +38,11 @@ public class CategoryServiceImpl implements CategoryService {
     CategoryRepository categoryRepository;
     CategoryMapper categoryMapper;
     ShopClient shopClient;
+    CacheManager cacheManager;
 
     @Override
     @Transactional
-    @CacheEvict(value = {"categories", "categoryById", "categoriesByShop"}, allEntries = true)
     public CategoryResponse createCategory(CategoryCreationRequest request) {
-        log.info("[CACHE EVICT] Clearing all category caches - creating new category");
         String email = getCurrentEmail();
         ShopResponse shopResponse = getShopByOwnerEmail(email);
 
@@ -49,15 +50,14 @@ public class CategoryServiceImpl implements CategoryService {
         category.setShopId(shopResponse.getId());
 
         Category savedCategory = categoryRepository.save(category);
+        evictCategoryLists(savedCategory.getShopId());
         return categoryMapper.toCategoryResponse(savedCategory);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = {"categories", "categoryById", "categoriesByShop"}, allEntries = true)
     @CachePut(value = "categoryById", key = "#categoryId")
     public CategoryResponse updateCategory(String categoryId, CategoryUpdateRequest request) {
-        log.info("🗑️ [CACHE EVICT] Clearing all category caches - updating category {}", categoryId);
         String email = getCurrentEmail();
         ShopResponse shopResponse = getShopByOwnerEmail(email);
 
@@ -66,14 +66,13 @@ public class CategoryServiceImpl implements CategoryService {
         categoryMapper.updateCategory(category, request);
 
         Category updatedCategory = categoryRepository.save(category);
+        evictCategoryLists(updatedCategory.getShopId());
         return categoryMapper.toCategoryResponse(updatedCategory);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = {"categories", "categoryById", "categoriesByShop"}, allEntries = true)
     public void deleteCategory(String categoryId) {
-        log.info("🗑️ [CACHE EVICT] Clearing all category caches - deleting category {}", categoryId);
         String email = getCurrentEmail();
         ShopResponse shopResponse = getShopByOwnerEmail(email);
 
@@ -81,10 +80,12 @@ public class CategoryServiceImpl implements CategoryService {
         validateCategoryOwnership(category, shopResponse.getId());
 
         categoryRepository.deleteById(categoryId);
+        evictCache("categoryById", categoryId);
+        evictCategoryLists(category.getShopId());
     }
 
     @Override
-    @Cacheable(value = "categories", key = "'all'")
+    @Cacheable(value = "categories", key = "'all'", sync = true)
     public List<CategoryResponse> getAllCategories() {
         log.info("🔍 [CACHE MISS] Querying all categories from MongoDB");
         List<CategoryResponse> responses = categoryMapper.toCategoryResponses(categoryRepository.findAll());
@@ -93,7 +94,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    @Cacheable(value = "categoryById", key = "#categoryId")
+    @Cacheable(value = "categoryById", key = "#categoryId", sync = true)
     public CategoryResponse getCategoryById(String categoryId) {
         log.info("🔍 [CACHE MISS] Querying category from MongoDB - categoryId={}", categoryId);
         CategoryResponse response = categoryMapper.toCategoryResponse(findCategoryById(categoryId));
@@ -102,7 +103,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    @Cacheable(value = "categoriesByShop", key = "#shopId")
+    @Cacheable(value = "categoriesByShop", key = "#shopId", sync = true)
     public List<CategoryResponse> getCategoriesByShopId(String shopId) {
         log.info("🔍 [CACHE MISS] Querying categories from MongoDB - shopId={}", shopId);
         List<CategoryResponse> responses = categoryMapper.toCategoryResponses(categoryRepository.findByShopId(shopId));
@@ -110,6 +111,40 @@ public class CategoryServiceImpl implements CategoryService {
         return responses;
     }
 
+    @Override
+    public void adjustProductCount(String categoryId, long delta) {
+        categoryRepository.incrementProductCount(categoryId, delta).ifPresent(category -> {
+            evictCache("categoryById", category.getId());
+            evictCategoryLists(category.getShopId());
+        });
+    }
+
+    @Override
+    public void adjustProductCounts(Map<String, Long> deltas) {
+        List<Category> categories = categoryRepository.incrementProductCounts(deltas);
+        categories.forEach(category -> evictCache("categoryById", category.getId()));
+        categories.stream()
+                .map(Category::getShopId)
+                .distinct()
+                .forEach(shopId -> evictCache("categoriesByShop", shopId));
+        if (!categories.isEmpty()) {
+            evictCache("categories", "all");
+        }
+    }
+
+    private void evictCategoryLists(String shopId) {
+        evictCache("categoriesByShop", shopId);
+        evictCache("categories", "all");
+    }
+
+    private void evictCache(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            log.info("🗑️ [CACHE EVICT] {} - key={}", cacheName, key);
+            cache.evict(key);
+        }
+    }
+
     private String getCurrentEmail() {
         return ((Jwt) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getClaim("email");
     }
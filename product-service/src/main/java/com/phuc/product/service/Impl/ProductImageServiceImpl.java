@@ -0,0 +1,130 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.httpclient.FileClient;
+import com.phuc.product.httpclient.response.FileResponse;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.service.ProductImageService;
+import com.phuc.product.upload.ImageUploadBatch;
+import com.phuc.product.upload.SpooledMultipartFile;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads product images to file-service after the product document is saved. Each image
+ * gets its own virtual thread, with a semaphore capping concurrent calls to file-service,
+ * and its URL is written into the reserved slot when the upload finishes.
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductImageServiceImpl implements ProductImageService {
+
+    FileClient fileClient;
+    ProductRepository productRepository;
+    ProductCache productCache;
+    Semaphore permits;
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProductImageServiceImpl(FileClient fileClient,
+                                   ProductRepository productRepository,
+                                   ProductCache productCache,
+                                   @Value("${product.image-upload.max-concurrency:8}") int maxConcurrency) {
+        this.fileClient = fileClient;
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public ImageUploadBatch prepare(List<MultipartFile> images) {
+        Objects.requireNonNull(images, "images must not be null");
+        List<SpooledMultipartFile> spooled = new ArrayList<>(images.size());
+        try {
+            for (MultipartFile image : images) {
+                spooled.add(SpooledMultipartFile.spool(image));
+            }
+        } catch (IOException ex) {
+            spooled.forEach(SpooledMultipartFile::delete);
+            log.error("Failed to spool product images: {}", ex.getMessage(), ex);
+            throw new AppException(ErrorCode.FILE_UPLOAD_FAILED);
+        }
+        return new ImageUploadBatch(UUID.randomUUID().toString(), currentAuthorization(), spooled);
+    }
+
+    @Override
+    public void upload(String productId, ImageUploadBatch batch) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        Objects.requireNonNull(batch, "batch must not be null");
+        for (int slot = 0; slot < batch.size(); slot++) {
+            int index = slot;
+            executor.execute(() -> uploadSlot(productId, batch, index));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Product image uploads still running at shutdown");
+        }
+    }
+
+    private void uploadSlot(String productId, ImageUploadBatch batch, int slot) {
+        SpooledMultipartFile file = batch.files().get(slot);
+        String url = null;
+        try {
+            permits.acquire();
+            try {
+                ApiResponse<FileResponse> response = fileClient.uploadFile(batch.authorization(), file);
+                if (response != null && response.getResult() != null) {
+                    url = response.getResult().getUrl();
+                }
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.error("Upload of image {} for product {} failed: {}", slot, productId, ex.getMessage(), ex);
+        } finally {
+            file.delete();
+        }
+
+        if (url == null) {
+            log.warn("Dropping image slot {} of product {}", slot, productId);
+        }
+        if (productRepository.completeImageSlot(productId, batch.id(), slot, url)) {
+            productCache.evict(productId);
+        }
+    }
+
+    private String currentAuthorization() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+        }
+        return null;
+    }
+
+}
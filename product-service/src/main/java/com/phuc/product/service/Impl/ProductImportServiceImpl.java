@@ -0,0 +1,315 @@
+package com.phuc.product.service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.phuc.product.bulk.ImportRow;
+import com.phuc.product.bulk.ProductImportReader;
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.configuration.ProductSummaryCallback;
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.dto.response.ProductImportErrorResponse;
+import com.phuc.product.dto.response.ProductImportResponse;
+import com.phuc.product.entity.Category;
+import com.phuc.product.entity.Product;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.httpclient.ShopClient;
+import com.phuc.product.httpclient.response.ShopResponse;
+import com.phuc.product.mapper.ProductMapper;
+import com.phuc.product.mapper.ProductVariantMapper;
+import com.phuc.product.repository.CategoryRepository;
+import com.phuc.product.service.CategoryService;
+import com.phuc.product.service.ProductImportService;
+import com.phuc.product.service.ProductSearchService;
+import feign.FeignException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Bulk catalog import. The shop is resolved once per request, categories once per distinct
+ * id, and valid rows are written with unordered bulk inserts of {@code product.import.batch-size}.
+ * Rows that fail validation or the write are reported individually instead of failing the import.
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductImportServiceImpl implements ProductImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    MongoTemplate mongoTemplate;
+    CategoryRepository categoryRepository;
+    CategoryService categoryService;
+    ProductMapper productMapper;
+    ProductVariantMapper productVariantMapper;
+    ProductCache productCache;
+    ProductSearchService productSearchService;
+    ShopClient shopClient;
+    ObjectMapper objectMapper;
+    Validator validator;
+    int batchSize;
+    int maxRows;
+
+    public ProductImportServiceImpl(MongoTemplate mongoTemplate,
+                                    CategoryRepository categoryRepository,
+                                    CategoryService categoryService,
+                                    ProductMapper productMapper,
+                                    ProductVariantMapper productVariantMapper,
+                                    ProductCache productCache,
+                                    ProductSearchService productSearchService,
+                                    ShopClient shopClient,
+                                    ObjectMapper objectMapper,
+                                    Validator validator,
+                                    @Value("${product.import.batch-size:500}") int batchSize,
+                                    @Value("${product.import.max-rows:10000}") int maxRows) {
+        this.mongoTemplate = mongoTemplate;
+        this.categoryRepository = categoryRepository;
+        this.categoryService = categoryService;
+        this.productMapper = productMapper;
+        this.productVariantMapper = productVariantMapper;
+        this.productCache = productCache;
+        this.productSearchService = productSearchService;
+        this.shopClient = shopClient;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public ProductImportResponse importJson(InputStream input) throws IOException {
+        ImportJob job = new ImportJob(getShopByOwnerEmail(getCurrentEmail()));
+        ProductImportReader.readJson(input, objectMapper, job);
+        return job.finish();
+    }
+
+    @Override
+    public ProductImportResponse importCsv(InputStream input) throws IOException {
+        ImportJob job = new ImportJob(getShopByOwnerEmail(getCurrentEmail()));
+        ProductImportReader.readCsv(input, job);
+        return job.finish();
+    }
+
+    private final class ImportJob implements Predicate<ImportRow> {
+
+        final ShopResponse shop;
+        final Map<String, Category> categories = new HashMap<>();
+        final Set<String> missingCategories = new HashSet<>();
+        final List<ImportRow> batch = new ArrayList<>(batchSize);
+        final List<ProductImportErrorResponse> errors = new ArrayList<>();
+        int total;
+        int imported;
+        int failed;
+
+        ImportJob(ShopResponse shop) {
+            this.shop = shop;
+        }
+
+        /** Takes one row, and stops the reader at the first row past {@code product.import.max-rows}. */
+        @Override
+        public boolean test(ImportRow row) {
+            total++;
+            if (total > maxRows) {
+                reject(row.row(), ErrorCode.IMPORT_ROW_LIMIT_EXCEEDED);
+                return false;
+            }
+            if (row.error() != null) {
+                reject(row.row(), row.error());
+                return true;
+            }
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+            return true;
+        }
+
+        ProductImportResponse finish() {
+            flush();
+            // Rows rejected while reading are reported before those of the batch they followed.
+            errors.sort(Comparator.comparingInt(ProductImportErrorResponse::getRow));
+            log.info("Imported {} of {} products for shop {} ({} failed)", imported, total, shop.getId(), failed);
+            return ProductImportResponse.builder()
+                    .total(total)
+                    .imported(imported)
+                    .failed(failed)
+                    .errors(errors)
+                    .build();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            loadCategories();
+
+            List<ImportRow> accepted = new ArrayList<>(batch.size());
+            List<Product> products = new ArrayList<>(batch.size());
+            LocalDateTime now = LocalDateTime.now();
+            for (ImportRow row : batch) {
+                ErrorCode error = validate(row.request());
+                if (error != null) {
+                    reject(row.row(), error);
+                    continue;
+                }
+                accepted.add(row);
+                products.add(toProduct(row.request(), now));
+            }
+            batch.clear();
+            if (!products.isEmpty()) {
+                write(accepted, products);
+            }
+        }
+
+        private void loadCategories() {
+            Set<String> unknown = new HashSet<>();
+            for (ImportRow row : batch) {
+                String categoryId = row.request().getCategoryId();
+                if (categoryId != null && !categories.containsKey(categoryId) && !missingCategories.contains(categoryId)) {
+                    unknown.add(categoryId);
+                }
+            }
+            if (unknown.isEmpty()) {
+                return;
+            }
+            categoryRepository.findAllById(unknown).forEach(category -> categories.put(category.getId(), category));
+            unknown.stream().filter(id -> !categories.containsKey(id)).forEach(missingCategories::add);
+        }
+
+        private ErrorCode validate(ProductCreationRequest request) {
+            request.setShopId(shop.getId());
+            Set<ConstraintViolation<ProductCreationRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                // The first by property path, so the same row always reports the same error.
+                return violations.stream()
+                        .min(Comparator.comparing((ConstraintViolation<ProductCreationRequest> violation) ->
+                                        violation.getPropertyPath().toString())
+                                .thenComparing(ConstraintViolation::getMessage))
+                        .map(violation -> resolveErrorCode(violation.getMessage()))
+                        .orElseThrow();
+            }
+            Category category = categories.get(request.getCategoryId());
+            if (category == null) {
+                return ErrorCode.CATEGORY_NOT_FOUND;
+            }
+            if (!shop.getId().equals(category.getShopId())) {
+                return ErrorCode.UNAUTHORIZED;
+            }
+            return null;
+        }
+
+        private Product toProduct(ProductCreationRequest request, LocalDateTime now) {
+            Product product = productMapper.toProduct(request);
+            product.setId(new ObjectId().toHexString());
+            product.setShopId(shop.getId());
+            product.setCategoryId(request.getCategoryId());
+            product.setVariants(request.getVariants().stream()
+                    .map(productVariantMapper::toProductVariant)
+                    .toList());
+            product.setImageUrls(new ArrayList<>());
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            ProductSummaryCallback.summarize(product);
+            return product;
+        }
+
+        private void write(List<ImportRow> rows, List<Product> products) {
+            Set<Integer> failedIndexes = new HashSet<>();
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)
+                        .insert(products)
+                        .execute();
+            } catch (BulkOperationException ex) {
+                for (BulkWriteError writeError : ex.getErrors()) {
+                    failedIndexes.add(writeError.getIndex());
+                    reject(rows.get(writeError.getIndex()).row(), ErrorCode.DATA_INTEGRITY_VIOLATION);
+                }
+            }
+
+            List<Product> written = new ArrayList<>(products.size());
+            Map<String, Long> categoryCounts = new HashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (!failedIndexes.contains(i)) {
+                    Product product = products.get(i);
+                    written.add(product);
+                    categoryCounts.merge(product.getCategoryId(), 1L, Long::sum);
+                }
+            }
+            if (written.isEmpty()) {
+                return;
+            }
+            categoryService.adjustProductCounts(categoryCounts);
+            try {
+                productCache.warm(written);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to cache {} imported products: {}", written.size(), ex.getMessage());
+            }
+            written.forEach(productSearchService::index);
+            imported += written.size();
+        }
+
+        private void reject(int row, ErrorCode errorCode) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ProductImportErrorResponse.builder()
+                        .row(row)
+                        .code(errorCode.name())
+                        .message(errorCode.getMessage())
+                        .build());
+            }
+        }
+    }
+
+    private static ErrorCode resolveErrorCode(String message) {
+        try {
+            return ErrorCode.valueOf(message);
+        } catch (IllegalArgumentException ex) {
+            return ErrorCode.INVALID_IMPORT_ROW;
+        }
+    }
+
+    private String getCurrentEmail() {
+        Jwt jwt = (Jwt) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return jwt.getClaim("email");
+    }
+
+    private ShopResponse getShopByOwnerEmail(String email) {
+        try {
+            ApiResponse<ShopResponse> response = shopClient.getShopByOwnerEmail(email);
+            return Optional.ofNullable(response.getResult())
+                    .orElseThrow(() -> new AppException(ErrorCode.SHOP_NOT_FOUND));
+        } catch (FeignException.NotFound ex) {
+            log.warn("Shop not found for email {}: {}", email, ex.getMessage());
+            throw new AppException(ErrorCode.SHOP_NOT_FOUND);
+        } catch (FeignException ex) {
+            log.error("Error calling shop service for email {}: {}", email, ex.getMessage(), ex);
+            throw new AppException(ErrorCode.SERVICE_UNAVAILABLE);
+        }
+    }
+
+}
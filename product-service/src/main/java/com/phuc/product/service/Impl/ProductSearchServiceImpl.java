@@ -0,0 +1,105 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSearchResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.mapper.ProductMapper;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.search.ProductSearchIndex;
+import com.phuc.product.search.SearchHit;
+import com.phuc.product.search.SearchResult;
+import com.phuc.product.service.ProductSearchService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProductSearchServiceImpl implements ProductSearchService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    ProductSearchIndex searchIndex = new ProductSearchIndex();
+    MongoTemplate mongoTemplate;
+    ProductRepository productRepository;
+    ProductCache productCache;
+    ProductMapper productMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapIndex() {
+        Thread.ofVirtual().name("product-search-bootstrap").start(() -> {
+            long started = System.currentTimeMillis();
+            searchIndex.beginLoad();
+            try (Stream<Product> products = mongoTemplate.stream(new Query(), Product.class)) {
+                products.forEach(searchIndex::load);
+            } catch (RuntimeException ex) {
+                log.error("Failed to bootstrap product search index: {}", ex.getMessage(), ex);
+                return;
+            } finally {
+                searchIndex.endLoad();
+            }
+            log.info("Product search index built with {} products in {} ms",
+                    searchIndex.size(), System.currentTimeMillis() - started);
+        });
+    }
+
+    @Override
+    public ProductSearchResponse search(String query, String categoryId, String shopId, int page, int size) {
+        Objects.requireNonNull(query, "query must not be null");
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE || (long) page * size > Integer.MAX_VALUE - size) {
+            throw new AppException(ErrorCode.INVALID_PAGE_REQUEST);
+        }
+        SearchResult result = searchIndex.search(query, categoryId, shopId, page * size, size);
+
+        List<String> productIds = result.hits().stream().map(SearchHit::productId).toList();
+        Map<String, Product> products = new HashMap<>(productCache.getAll(productIds));
+        List<String> missingIds = productIds.stream().filter(id -> !products.containsKey(id)).toList();
+        if (!missingIds.isEmpty()) {
+            productRepository.findAllById(missingIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        List<ProductResponse> content = productIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toProductResponse)
+                .toList();
+
+        return ProductSearchResponse.builder()
+                .content(content)
+                .totalElements(result.total())
+                .page(page)
+                .size(size)
+                .categoryFacets(result.categoryCounts())
+                .shopFacets(result.shopCounts())
+                .build();
+    }
+
+    @Override
+    public void index(Product product) {
+        Objects.requireNonNull(product, "product must not be null");
+        searchIndex.upsert(product);
+    }
+
+    @Override
+    public void remove(String productId) {
+        searchIndex.remove(Objects.requireNonNull(productId, "productId must not be null"));
+    }
+
+}
@@ -1,25 +1,39 @@
 package com.phuc.product.service.Impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.phuc.product.cache.ProductCache;
 import com.phuc.product.dto.ApiResponse;
 import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.dto.request.ProductLookupItemRequest;
 import com.phuc.product.dto.request.ProductUpdateRequest;
+import com.phuc.product.dto.response.CursorPageResponse;
 import com.phuc.product.dto.response.ExistsResponse;
+import com.phuc.product.dto.response.ProductLookupResponse;
 import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
 import com.phuc.product.entity.Category;
 import com.phuc.product.entity.Product;
 import com.phuc.product.entity.ProductVariant;
 import com.phuc.product.enums.ProductSort;
+import com.phuc.product.enums.StockShardResult;
 import com.phuc.product.exception.AppException;
 import com.phuc.product.exception.ErrorCode;
-import com.phuc.product.httpclient.FileClient;
 import com.phuc.product.httpclient.ShopClient;
-import com.phuc.product.httpclient.response.FileResponse;
 import com.phuc.product.httpclient.response.ShopResponse;
 import com.phuc.product.mapper.ProductMapper;
 import com.phuc.product.mapper.ProductVariantMapper;
+import com.phuc.product.pagination.ProductCursor;
 import com.phuc.product.repository.CategoryRepository;
 import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.service.CategoryService;
+import com.phuc.product.service.ProductImageService;
+import com.phuc.product.service.ProductSearchService;
 import com.phuc.product.service.ProductService;
+import com.phuc.product.service.StockShardService;
+import com.phuc.product.upload.ImageUploadBatch;
 import feign.FeignException;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -39,10 +53,18 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -50,16 +72,24 @@ import java.util.Optional;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ProductServiceImpl implements ProductService {
 
-    static final String PRODUCT_CACHE_PREFIX = "product:";
+    static final String PRODUCT_COUNT_CACHE_PREFIX = "product-count:";
+    static final Duration PRODUCT_COUNT_CACHE_TTL = Duration.ofMinutes(1);
+    static final int EXPORT_BATCH_SIZE = 500;
+    static final int MAX_CURSOR_PAGE_SIZE = 100;
 
     ProductRepository productRepository;
     ProductMapper productMapper;
     ProductVariantMapper productVariantMapper;
     CategoryRepository categoryRepository;
+    CategoryService categoryService;
     ShopClient shopClient;
     MongoTemplate mongoTemplate;
-    FileClient fileClient;
+    ProductCache productCache;
+    ProductSearchService productSearchService;
+    ProductImageService productImageService;
+    StockShardService stockShardService;
     RedisTemplate<String, Object> redisTemplate;
+    ObjectMapper objectMapper;
 
     @Override
     @Transactional
@@ -73,24 +103,30 @@ public class ProductServiceImpl implements ProductService {
           product.setCategoryId(category.getId());
           product.setShopId(shopResponse.getId());
 
-          if (productImages != null && !productImages.isEmpty()) {
-              List<String> imageUrls = handleImageUpload(productImages);
-              product.setImageUrls(imageUrls);
-          } else {
+          ImageUploadBatch imageUpload = reserveImageSlots(product, productImages);
+          if (imageUpload == null) {
               product.setImageUrls(new ArrayList<>());
           }
 
-          List<ProductVariant> variants = request.getVariants().stream()
-                  .map(productVariantMapper::toProductVariant)
-                  .toList();
-          product.setVariants(variants);
+          try {
+              List<ProductVariant> variants = request.getVariants().stream()
+                      .map(productVariantMapper::toProductVariant)
+                      .toList();
+              product.setVariants(variants);
 
-          product = productRepository.save(product);
+              product = productRepository.save(product);
+          } catch (RuntimeException ex) {
+              discard(imageUpload);
+              throw ex;
+          }
 
-          category.getProductIds().add(product.getId());
-          categoryRepository.save(category);
+          categoryService.adjustProductCount(category.getId(), 1);
 
-          redisTemplate.opsForValue().set("product:" + product.getId(), product);
+          cacheProduct(product);
+          productSearchService.index(product);
+          if (imageUpload != null) {
+              productImageService.upload(product.getId(), imageUpload);
+          }
 
           return productMapper.toProductResponse(product);
     }
@@ -103,27 +139,36 @@ public class ProductServiceImpl implements ProductService {
         String email = getCurrentEmail();
         ShopResponse shopResponse = getShopByOwnerEmail(email);
 
-        Product product = findProductById(productId);
+        Product product = loadProduct(productId);
         Category newCategory = findCategoryById(request.getCategoryId());
         validateCategoryOwnership(newCategory, shopResponse.getId());
 
-        Category oldCategory = findCategoryById(product.getCategoryId());
+        String oldCategoryId = product.getCategoryId();
 
         productMapper.updateProduct(product, request);
         product.setCategoryId(newCategory.getId());
 
-        if (productImages != null && !productImages.isEmpty()) {
-            product.setImageUrls(handleImageUpload(productImages));
-        }
+        ImageUploadBatch imageUpload = reserveImageSlots(product, productImages);
 
-        product = productRepository.save(product);
+        try {
+            product = stockShardService.save(product);
+        } catch (RuntimeException ex) {
+            discard(imageUpload);
+            throw ex;
+        }
 
-        if (!oldCategory.getId().equals(newCategory.getId())) {
-            removeProductFromCategory(product.getId(), oldCategory);
-            addProductToCategory(product.getId(), newCategory);
+        if (!newCategory.getId().equals(oldCategoryId)) {
+            if (oldCategoryId != null) {
+                categoryService.adjustProductCount(oldCategoryId, -1);
+            }
+            categoryService.adjustProductCount(newCategory.getId(), 1);
         }
 
         cacheProduct(product);
+        productSearchService.index(product);
+        if (imageUpload != null) {
+            productImageService.upload(product.getId(), imageUpload);
+        }
 
         return productMapper.toProductResponse(product);
     }
@@ -135,13 +180,14 @@ public class ProductServiceImpl implements ProductService {
         String email = getCurrentEmail();
         ShopResponse shopResponse = getShopByOwnerEmail(email);
 
-        Product product = findProductById(productId);
+        Product product = loadProduct(productId);
         Category category = findCategoryById(product.getCategoryId());
         validateCategoryOwnership(category, shopResponse.getId());
 
-        removeProductFromCategory(productId, category);
         productRepository.deleteById(productId);
+        categoryService.adjustProductCount(category.getId(), -1);
         evictProduct(productId);
+        productSearchService.remove(productId);
     }
 
     @Override
@@ -156,35 +202,13 @@ public class ProductServiceImpl implements ProductService {
             Double maxPrice,
             ProductSort productSort) {
 
-        productSort = Optional.ofNullable(productSort).orElse(ProductSort.DEFAULT);
-        Criteria criteria = new Criteria();
-
-        if (shopId != null) {
-            criteria.and("shopId").is(shopId);
-        }
-        if (categoryId != null) {
-            criteria.and("categoryId").is(categoryId);
-        }
-        if (minPrice != null && maxPrice != null) {
-            criteria.and("price").gte(minPrice).lte(maxPrice);
-        } else if (minPrice != null) {
-            criteria.and("price").gte(minPrice);
-        } else if (maxPrice != null) {
-            criteria.and("price").lte(maxPrice);
-        }
-
-        String resolvedSortBy = Objects.requireNonNull(sortBy, "sortBy must not be null");
-        String resolvedSortDirection = Objects.requireNonNull(sortDirection, "sortDirection must not be null");
-
-        Sort sort = switch (productSort) {
-            case BEST_SELLING -> Sort.by(Sort.Direction.DESC, "soldQuantity");
-            case NEWEST -> Sort.by(Sort.Direction.DESC, "createdAt");
-            default -> Sort.by(Sort.Direction.fromString(resolvedSortDirection), resolvedSortBy);
-        };
+        Criteria criteria = buildProductCriteria(shopId, categoryId, minPrice, maxPrice);
+        Sort.Order order = resolveSortOrder(productSort, sortBy, sortDirection);
+        Sort sort = Sort.by(order);
 
         Query query = Query.query(criteria).with(PageRequest.of(page, size, sort));
         List<Product> products = mongoTemplate.find(query, Product.class);
-        long total = mongoTemplate.count(query.skip(-1).limit(-1), Product.class);
+        long total = countProducts(criteria, shopId, categoryId, minPrice, maxPrice);
 
         List<ProductResponse> responses =
                 Objects.requireNonNull(productMapper.toProductResponses(products), "product responses must not be null");
@@ -192,6 +216,102 @@ public class ProductServiceImpl implements ProductService {
         return new PageImpl<>(responses, PageRequest.of(page, size, sort), total);
     }
 
+    @Override
+    public Page<ProductSummaryResponse> getProductSummaries(
+            String shopId,
+            String categoryId,
+            int page,
+            int size,
+            String sortBy,
+            String sortDirection,
+            Double minPrice,
+            Double maxPrice,
+            ProductSort productSort) {
+
+        Criteria criteria = buildProductCriteria(shopId, categoryId, minPrice, maxPrice);
+        Sort sort = Sort.by(resolveSortOrder(productSort, sortBy, sortDirection));
+
+        Query query = productRepository.withSummaryFields(
+                Query.query(criteria).with(PageRequest.of(page, size, sort)));
+        List<Product> products = mongoTemplate.find(query, Product.class);
+        long total = countProducts(criteria, shopId, categoryId, minPrice, maxPrice);
+
+        return new PageImpl<>(productMapper.toProductSummaryResponses(products), PageRequest.of(page, size, sort), total);
+    }
+
+    @Override
+    public ProductSummaryResponse getProductSummary(String productId) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        Optional<Product> local = productCache.getLocal(productId);
+        if (local.isPresent()) {
+            return productMapper.toProductSummaryResponse(local.get());
+        }
+        return productCache.getSummary(productId).orElseGet(() -> {
+            ProductSummaryResponse summary = productMapper.toProductSummaryResponse(
+                    productRepository.findSummaryById(productId)
+                            .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND)));
+            try {
+                productCache.putSummary(summary);
+            } catch (Exception e) {
+                log.warn("Failed to cache summary for product {}: {}", productId, e.getMessage());
+            }
+            return summary;
+        });
+    }
+
+    @Override
+    public CursorPageResponse<ProductResponse> getProductsByCursor(
+            String shopId,
+            String categoryId,
+            String cursor,
+            int size,
+            String sortBy,
+            String sortDirection,
+            Double minPrice,
+            Double maxPrice,
+            ProductSort productSort,
+            boolean includeTotal) {
+
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new AppException(ErrorCode.INVALID_PAGE_REQUEST);
+        }
+        Criteria filter = buildProductCriteria(shopId, categoryId, minPrice, maxPrice);
+        Sort.Order order = resolveSortOrder(productSort, sortBy, sortDirection);
+        if (!ProductCursor.SORT_FIELDS.contains(order.getProperty())) {
+            throw new AppException(ErrorCode.UNSUPPORTED_SORT_FIELD);
+        }
+
+        Criteria criteria = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor position = ProductCursor.decode(cursor);
+            if (!position.matches(order.getProperty(), order.getDirection())) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            criteria = new Criteria().andOperator(filter, position.toCriteria());
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(order, new Sort.Order(order.getDirection(), "_id")))
+                .limit(size + 1);
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
+        }
+        String nextCursor = hasNext
+                ? ProductCursor.after(products.get(products.size() - 1), order.getProperty(), order.getDirection()).encode()
+                : null;
+
+        return CursorPageResponse.<ProductResponse>builder()
+                .content(productMapper.toProductResponses(products))
+                .size(products.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(includeTotal ? countProducts(filter, shopId, categoryId, minPrice, maxPrice) : null)
+                .build();
+    }
+
     @Override
     public ProductResponse getProductById(String productId) {
         Objects.requireNonNull(productId, "productId must not be null");
@@ -210,54 +330,100 @@ public class ProductServiceImpl implements ProductService {
         return productMapper.toProductResponses(productRepository.findAll());
     }
 
+    @Override
+    public void exportProducts(String shopId, OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(outputStream, "outputStream must not be null");
+        Query query = new Query().cursorBatchSize(EXPORT_BATCH_SIZE);
+        if (shopId != null) {
+            query.addCriteria(Criteria.where("shopId").is(shopId));
+        }
+
+        // The default mapper flushes after every value; batches are flushed below instead.
+        ObjectWriter writer = objectMapper.writerFor(ProductResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long exported = 0;
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Product product : (Iterable<Product>) products::iterator) {
+                writer.writeValue(generator, productMapper.toProductResponse(product));
+                generator.writeRaw('\n');
+                if (++exported % EXPORT_BATCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        log.info("Exported {} products for shop {}", exported, shopId == null ? "<all>" : shopId);
+    }
+
     @Override
     public double getProductPriceById(String productId, String variantId) {
         Objects.requireNonNull(productId, "productId must not be null");
         Objects.requireNonNull(variantId, "variantId must not be null");
-        Product product = findProductById(productId);
-        ProductVariant variant = findVariantById(product, variantId);
-        return variant.getPrice();
+        return findVariantProjection(productId, variantId)
+                .orElseThrow(() -> new AppException(ErrorCode.VARIANT_NOT_FOUND))
+                .getPrice();
     }
 
     @Override
     public int getProductStockById(String productId, String variantId) {
         Objects.requireNonNull(productId, "productId must not be null");
         Objects.requireNonNull(variantId, "variantId must not be null");
-        Product product = findProductById(productId);
-        ProductVariant variant = findVariantById(product, variantId);
-        return variant.getStock();
+        if (stockShardService.isSharded(productId, variantId)) {
+            return (int) stockShardService.getAvailable(productId, variantId);
+        }
+        return findVariantProjection(productId, variantId)
+                .orElseThrow(() -> new AppException(ErrorCode.VARIANT_NOT_FOUND))
+                .getStock();
     }
 
     @Override
     public ExistsResponse existsProduct(String productId, String variantId) {
         Objects.requireNonNull(productId, "productId must not be null");
         Objects.requireNonNull(variantId, "variantId must not be null");
-        Product product = findProductById(productId);
-        boolean variantExists = product.getVariants().stream()
-                .anyMatch(variant -> variant.getVariantId().equals(variantId));
-        return new ExistsResponse(variantExists);
+        return new ExistsResponse(findVariantProjection(productId, variantId).isPresent());
     }
 
     @Override
     public String getShopIdByProductId(String productId) {
         Objects.requireNonNull(productId, "productId must not be null");
-        return findProductById(productId).getShopId();
+        return getProductSummary(productId).getShopId();
+    }
+
+    @Override
+    public List<ProductLookupResponse> lookupProducts(List<ProductLookupItemRequest> items) {
+        Objects.requireNonNull(items, "items must not be null");
+        List<String> productIds = items.stream()
+                .map(ProductLookupItemRequest::getProductId)
+                .distinct()
+                .toList();
+        Map<String, Product> products = findProductsByIds(productIds);
+
+        return items.stream()
+                .map(item -> toLookupResponse(item, products.get(item.getProductId())))
+                .toList();
     }
 
     @Override
     public boolean isProductExist(String productId) {
         final String requiredProductId = Objects.requireNonNull(productId, "productId must not be null");
-        String key = cacheKey(requiredProductId);
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+        if (productCache.contains(requiredProductId)) {
             return true;
         }
         return productRepository.existsById(requiredProductId);
     }
 
     @Override
-    public List<ProductResponse> getProductsByCategoryId(String categoryId) {
+    public Page<ProductResponse> getProductsByCategoryId(String categoryId, int page, int size) {
         String requiredCategoryId = Objects.requireNonNull(categoryId, "categoryId must not be null");
-        return productMapper.toProductResponses(productRepository.findByCategoryId(requiredCategoryId));
+        Category category = findCategoryById(requiredCategoryId);
+
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        List<Product> products = mongoTemplate.find(
+                Query.query(Criteria.where("categoryId").is(requiredCategoryId)).with(pageRequest), Product.class);
+
+        return new PageImpl<>(productMapper.toProductResponses(products), pageRequest, category.getProductCount());
     }
 
     @Override
@@ -266,18 +432,18 @@ public class ProductServiceImpl implements ProductService {
         final String requiredVariantId = Objects.requireNonNull(variantId, "variantId must not be null");
         Objects.requireNonNull(quantity, "quantity must not be null");
         log.info("Reducing stock for product {} variant {} by {}", requiredProductId, requiredVariantId, quantity);
-        Product product = findProductById(requiredProductId);
-        ProductVariant variant = findVariantById(product, requiredVariantId);
 
-        if (variant.getStock() < quantity) {
-            log.error("Insufficient stock for product {} variant {}. Available: {}, requested: {}",
-                    requiredProductId, requiredVariantId, variant.getStock(), quantity);
-            throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
+        StockShardResult sharded = stockShardService.decrement(requiredProductId, requiredVariantId, quantity, false);
+        if (sharded == StockShardResult.INSUFFICIENT) {
+            throw resolveStockUpdateFailure(requiredProductId, requiredVariantId, quantity);
         }
-
-        variant.setStock(variant.getStock() - quantity);
-        final Product updatedProduct = productRepository.save(product);
-        cacheProduct(updatedProduct);
+        if (sharded == StockShardResult.TAKEN) {
+            return;
+        }
+        if (!productRepository.decrementStock(requiredProductId, requiredVariantId, quantity, false)) {
+            throw resolveStockUpdateFailure(requiredProductId, requiredVariantId, quantity);
+        }
+        evictProduct(requiredProductId);
     }
 
     @Override
@@ -286,12 +452,14 @@ public class ProductServiceImpl implements ProductService {
         final String requiredVariantId = Objects.requireNonNull(variantId, "variantId must not be null");
         Objects.requireNonNull(quantity, "quantity must not be null");
         log.info("Restoring stock for product {} variant {} by {}", requiredProductId, requiredVariantId, quantity);
-        Product product = findProductById(requiredProductId);
-        ProductVariant variant = findVariantById(product, requiredVariantId);
 
-        variant.setStock(variant.getStock() + quantity);
-        final Product updatedProduct = productRepository.save(product);
-        cacheProduct(updatedProduct);
+        if (stockShardService.increment(requiredProductId, requiredVariantId, quantity)) {
+            return;
+        }
+        if (!productRepository.incrementStock(requiredProductId, requiredVariantId, quantity)) {
+            throw resolveStockUpdateFailure(requiredProductId, requiredVariantId, quantity);
+        }
+        evictProduct(requiredProductId);
     }
 
     @Override
@@ -300,35 +468,106 @@ public class ProductServiceImpl implements ProductService {
         final String requiredVariantId = Objects.requireNonNull(variantId, "variantId must not be null");
         Objects.requireNonNull(quantity, "quantity must not be null");
         log.info("Updating stock and sold quantity for product {} variant {} by {}", requiredProductId, requiredVariantId, quantity);
-        Product product = findProductById(requiredProductId);
-        ProductVariant variant = findVariantById(product, requiredVariantId);
 
-        if (variant.getStock() < quantity) {
-            log.error("Insufficient stock for product {} variant {}. Available: {}, requested: {}",
-                    requiredProductId, requiredVariantId, variant.getStock(), quantity);
-            throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
+        StockShardResult sharded = stockShardService.decrement(requiredProductId, requiredVariantId, quantity, true);
+        if (sharded == StockShardResult.INSUFFICIENT) {
+            throw resolveStockUpdateFailure(requiredProductId, requiredVariantId, quantity);
+        }
+        if (sharded == StockShardResult.TAKEN) {
+            return;
+        }
+        if (!productRepository.decrementStock(requiredProductId, requiredVariantId, quantity, true)) {
+            throw resolveStockUpdateFailure(requiredProductId, requiredVariantId, quantity);
         }
+        evictProduct(requiredProductId);
+    }
+
+    private Criteria buildProductCriteria(String shopId, String categoryId, Double minPrice, Double maxPrice) {
+        Criteria criteria = new Criteria();
 
-        variant.setStock(variant.getStock() - quantity);
-        variant.setSoldQuantity(variant.getSoldQuantity() + quantity);
-        final Product updatedProduct = productRepository.save(product);
-        cacheProduct(updatedProduct);
+        if (shopId != null) {
+            criteria.and("shopId").is(shopId);
+        }
+        if (categoryId != null) {
+            criteria.and("categoryId").is(categoryId);
+        }
+        if (minPrice != null && maxPrice != null) {
+            criteria.and("minPrice").gte(minPrice).lte(maxPrice);
+        } else if (minPrice != null) {
+            criteria.and("minPrice").gte(minPrice);
+        } else if (maxPrice != null) {
+            criteria.and("minPrice").lte(maxPrice);
+        }
+        return criteria;
     }
 
-    private List<String> handleImageUpload(List<MultipartFile> productImages) {
-        try {
-            ApiResponse<List<FileResponse>> response = fileClient.uploadMultipleFiles(productImages);
-            if (response == null || response.getResult() == null) {
-                log.error("File upload returned no results");
-                throw new AppException(ErrorCode.FILE_UPLOAD_FAILED);
-            }
+    private Sort.Order resolveSortOrder(ProductSort productSort, String sortBy, String sortDirection) {
+        String resolvedSortBy = Objects.requireNonNull(sortBy, "sortBy must not be null");
+        String resolvedSortDirection = Objects.requireNonNull(sortDirection, "sortDirection must not be null");
 
-            return response.getResult().stream()
-                    .map(FileResponse::getUrl)
-                    .toList();
-        } catch (FeignException ex) {
-            log.error("Error uploading files: {}", ex.getMessage(), ex);
-            throw new AppException(ErrorCode.SERVICE_UNAVAILABLE);
+        return switch (Optional.ofNullable(productSort).orElse(ProductSort.DEFAULT)) {
+            case BEST_SELLING -> Sort.Order.desc("totalSold");
+            case NEWEST -> Sort.Order.desc("createdAt");
+            default -> new Sort.Order(Sort.Direction.fromString(resolvedSortDirection), resolveSortField(resolvedSortBy));
+        };
+    }
+
+    private String resolveSortField(String sortBy) {
+        return switch (sortBy) {
+            case "price", "minPrice" -> "minPrice";
+            case "soldQuantity", "totalSold" -> "totalSold";
+            default -> sortBy;
+        };
+    }
+
+    private long countProducts(Criteria criteria, String shopId, String categoryId, Double minPrice, Double maxPrice) {
+        if (shopId == null && categoryId == null && minPrice == null && maxPrice == null) {
+            return mongoTemplate.estimatedCount(Product.class);
+        }
+
+        String key = PRODUCT_COUNT_CACHE_PREFIX + shopId + ":" + categoryId + ":" + minPrice + ":" + maxPrice;
+        Object cached = redisTemplate.opsForValue().get(key);
+        if (cached instanceof Number count) {
+            return count.longValue();
+        }
+
+        long count = mongoTemplate.count(Query.query(criteria), Product.class);
+        redisTemplate.opsForValue().set(key, count, PRODUCT_COUNT_CACHE_TTL);
+        return count;
+    }
+
+    private AppException resolveStockUpdateFailure(String productId, String variantId, int quantity) {
+        if (!productRepository.existsById(productId)) {
+            return new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        if (!productRepository.existsVariant(productId, variantId)) {
+            return new AppException(ErrorCode.VARIANT_NOT_FOUND);
+        }
+        log.error("Insufficient stock for product {} variant {}. Requested: {}", productId, variantId, quantity);
+        return new AppException(ErrorCode.INSUFFICIENT_STOCK);
+    }
+
+    /**
+     * Stages the images and gives the product one null URL slot per image; the slots are
+     * filled in asynchronously once the product has been saved.
+     */
+    private ImageUploadBatch reserveImageSlots(Product product, List<MultipartFile> productImages) {
+        if (productImages == null || productImages.isEmpty()) {
+            return null;
+        }
+        ImageUploadBatch batch = productImageService.prepare(productImages);
+        product.setImageUrls(new ArrayList<>(Collections.nCopies(batch.size(), null)));
+        product.setPendingImageCount(batch.size());
+        product.setImageUploadId(batch.id());
+        return batch;
+    }
+
+    /**
+     * Deletes the staged images of a write that failed before its upload was scheduled.
+     */
+    private void discard(ImageUploadBatch imageUpload) {
+        if (imageUpload != null) {
+            imageUpload.discard();
         }
     }
 
@@ -339,40 +578,75 @@ public class ProductServiceImpl implements ProductService {
 
     private Product findProductById(String productId) {
         final String requiredProductId = Objects.requireNonNull(productId, "productId must not be null");
-        String key = cacheKey(requiredProductId);
-        Object cached = redisTemplate.opsForValue().get(key);
-        if (cached instanceof Product product) {
-            return product;
-        }
+        return productCache.getOrLoad(requiredProductId, this::loadProduct);
+    }
 
-        Product product = productRepository.findById(requiredProductId)
+    private Product loadProduct(String productId) {
+        return productRepository.findById(Objects.requireNonNull(productId, "productId must not be null"))
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-        cacheProduct(product);
-        return product;
+    }
+
+    private Map<String, Product> findProductsByIds(List<String> productIds) {
+        Map<String, Product> products = new HashMap<>(productCache.getAll(productIds));
+
+        LinkedHashSet<String> missingIds = new LinkedHashSet<>(productIds);
+        missingIds.removeAll(products.keySet());
+        if (!missingIds.isEmpty()) {
+            List<Product> loaded = productRepository.findAllById(missingIds);
+            loaded.forEach(product -> products.put(product.getId(), product));
+            productCache.fill(loaded);
+        }
+        return products;
+    }
+
+    private ProductLookupResponse toLookupResponse(ProductLookupItemRequest item, Product product) {
+        ProductLookupResponse.ProductLookupResponseBuilder response = ProductLookupResponse.builder()
+                .productId(item.getProductId())
+                .variantId(item.getVariantId());
+        if (product == null) {
+            return response.exists(false).build();
+        }
+
+        response.shopId(product.getShopId()).name(product.getName());
+        if (item.getVariantId() == null) {
+            return response.exists(true).build();
+        }
+
+        return productCache.findVariant(product, item.getVariantId())
+                .map(variant -> response.exists(true).price(variant.getPrice()).stock(variant.getStock()).build())
+                .orElseGet(() -> response.exists(false).build());
     }
 
     private void cacheProduct(Product product) {
-        Objects.requireNonNull(product, "product must not be null");
-        final String productId = Objects.requireNonNull(product.getId(), "product id must not be null");
-        redisTemplate.opsForValue().set(cacheKey(productId), product);
+        productCache.put(Objects.requireNonNull(product, "product must not be null"));
     }
 
     private void evictProduct(String productId) {
-        String key = cacheKey(Objects.requireNonNull(productId, "productId must not be null"));
-        redisTemplate.delete(key);
+        productCache.evict(Objects.requireNonNull(productId, "productId must not be null"));
     }
 
-    private String cacheKey(String productId) {
-        return PRODUCT_CACHE_PREFIX + Objects.requireNonNull(productId, "productId must not be null");
-    }
+    /**
+     * Resolves one variant from the L1 variant index, then the Redis variant hash, then a
+     * Mongo projection of just that variant.
+     */
+    private Optional<ProductVariant> findVariantProjection(String productId, String variantId) {
+        Optional<Product> local = productCache.getLocal(productId);
+        if (local.isPresent()) {
+            return productCache.findVariant(local.get(), variantId);
+        }
+        Optional<ProductVariant> cached = productCache.getRemoteVariant(productId, variantId);
+        if (cached.isPresent()) {
+            return cached;
+        }
 
-    private ProductVariant findVariantById(Product product, String variantId) {
-        Objects.requireNonNull(product, "product must not be null");
-        Objects.requireNonNull(variantId, "variantId must not be null");
-        return product.getVariants().stream()
-                .filter(variant -> variant.getVariantId().equals(variantId))
-                .findFirst()
-                .orElseThrow(() -> new AppException(ErrorCode.VARIANT_NOT_FOUND));
+        Product product = productRepository.findWithVariant(productId, variantId)
+                .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+        if (product.getVariants() == null || product.getVariants().isEmpty()) {
+            return Optional.empty();
+        }
+        ProductVariant variant = product.getVariants().getFirst();
+        productCache.putRemoteVariant(productId, variant);
+        return Optional.of(variant);
     }
 
     private Category findCategoryById(String categoryId) {
@@ -401,22 +675,5 @@ public class ProductServiceImpl implements ProductService {
             throw new AppException(ErrorCode.SERVICE_UNAVAILABLE);
         }
     }
-
-    private void addProductToCategory(String productId, Category category) {
-        Objects.requireNonNull(productId, "productId must not be null");
-        Objects.requireNonNull(category, "category must not be null");
-        if (!category.getProductIds().contains(productId)) {
-            category.getProductIds().add(productId);
-            categoryRepository.save(category);
-        }
-    }
-
-    private void removeProductFromCategory(String productId, Category category) {
-        Objects.requireNonNull(productId, "productId must not be null");
-        Objects.requireNonNull(category, "category must not be null");
-        if (category.getProductIds().remove(productId)) {
-            categoryRepository.save(category);
-        }
-    }
 }
 
@@ -1,21 +1,24 @@
 package com.phuc.product.service.Impl;
 
+import com.phuc.product.cache.ProductCache;
 import com.phuc.product.dto.request.ProductVariantRequest;
 import com.phuc.product.dto.request.ProductVariantUpdateRequest;
 import com.phuc.product.entity.Product;
 import com.phuc.product.entity.ProductVariant;
+import com.phuc.product.enums.StockShardResult;
 import com.phuc.product.exception.AppException;
 import com.phuc.product.exception.ErrorCode;
 import com.phuc.product.mapper.ProductVariantMapper;
 import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.service.ProductSearchService;
 import com.phuc.product.service.ProductVariantService;
+import com.phuc.product.service.StockShardService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.data.redis.core.RedisTemplate;
 
 @Slf4j
 @Service
@@ -25,8 +28,9 @@ public class ProductVariantServiceImpl implements ProductVariantService {
 
     ProductRepository productRepository;
     ProductVariantMapper productVariantMapper;
-    RedisTemplate<String, Object> redisTemplate;
-    static final String PRODUCT_CACHE_PREFIX = "product:";
+    ProductCache productCache;
+    ProductSearchService productSearchService;
+    StockShardService stockShardService;
 
     @Override
     @Transactional
@@ -36,8 +40,9 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         ProductVariant newVariant = productVariantMapper.toProductVariant(request);
         product.getVariants().add(newVariant);
 
-        Product saved = productRepository.save(product);
+        Product saved = stockShardService.save(product);
         cacheProduct(saved);
+        productSearchService.index(saved);
     }
 
     @Override
@@ -46,30 +51,38 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         Product product = findProductById(productId);
         ProductVariant variant = findProductVariant(product, variantId);
 
+        if (request.getStock() != null && request.getStock() != variant.getStock()
+                && stockShardService.isSharded(productId, variantId)) {
+            throw new AppException(ErrorCode.STOCK_MANAGED_BY_SHARDS);
+        }
         productVariantMapper.updateProductVariant(variant, request);
 
-        Product saved = productRepository.save(product);
+        Product saved = stockShardService.save(product);
         cacheProduct(saved);
+        productSearchService.index(saved);
     }
 
     @Override
     @Transactional
     public void updateStockAndSoldQuantity(String productId, String variantId, int quantity) {
-        Product product = findProductById(productId);
-        ProductVariant variant = findProductVariant(product, variantId);
-
-        int newStock = variant.getStock() - quantity;
-        if (newStock < 0) {
-            log.error("Stock for variant {} of product {} is insufficient. Requested: {}, Available: {}",
-                    variantId, productId, quantity, variant.getStock());
-            throw new AppException(ErrorCode.OUT_OF_STOCK);
+        StockShardResult sharded = stockShardService.decrement(productId, variantId, quantity, true);
+        if (sharded == StockShardResult.TAKEN) {
+            return;
+        }
+        if (sharded == StockShardResult.NOT_SHARDED
+                && productRepository.decrementStock(productId, variantId, quantity, true)) {
+            evictProduct(productId);
+            return;
         }
 
-        variant.setStock(newStock);
-        variant.setSoldQuantity(variant.getSoldQuantity() + quantity);
-
-        Product saved = productRepository.save(product);
-        cacheProduct(saved);
+        if (!productRepository.existsById(productId)) {
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        if (!productRepository.existsVariant(productId, variantId)) {
+            throw new AppException(ErrorCode.VARIANT_NOT_FOUND);
+        }
+        log.error("Stock for variant {} of product {} is insufficient. Requested: {}", variantId, productId, quantity);
+        throw new AppException(ErrorCode.OUT_OF_STOCK);
     }
 
     @Override
@@ -77,17 +90,24 @@ public class ProductVariantServiceImpl implements ProductVariantService {
     public void deleteProductVariant(String productId, String variantId) {
         Product product = findProductById(productId);
         ProductVariant variant = findProductVariant(product, variantId);
+        if (stockShardService.isSharded(productId, variantId)) {
+            throw new AppException(ErrorCode.STOCK_MANAGED_BY_SHARDS);
+        }
 
         product.getVariants().remove(variant);
 
-        Product saved = productRepository.save(product);
+        Product saved = stockShardService.save(product);
         cacheProduct(saved);
+        productSearchService.index(saved);
     }
 
     private void cacheProduct(Product product) {
         if (product == null || product.getId() == null) return;
-        String key = PRODUCT_CACHE_PREFIX + product.getId();
-        redisTemplate.opsForValue().set(key, product);
+        productCache.put(product);
+    }
+
+    private void evictProduct(String productId) {
+        productCache.evict(productId);
     }
 
 
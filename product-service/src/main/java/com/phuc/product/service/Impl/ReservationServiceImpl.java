@@ -0,0 +1,265 @@
+package com.phuc.product.service.Impl;
+
+import com.mongodb.client.result.UpdateResult;
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.request.ReservationRequest;
+import com.phuc.product.dto.response.ReservationResponse;
+import com.phuc.product.entity.Reservation;
+import com.phuc.product.entity.ReservationItem;
+import com.phuc.product.enums.ReservationStatus;
+import com.phuc.product.enums.StockShardResult;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.mapper.ReservationMapper;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.repository.ReservationRepository;
+import com.phuc.product.service.ReservationService;
+import com.phuc.product.service.StockShardService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReservationServiceImpl implements ReservationService {
+
+    static final int SWEEP_BATCH_SIZE = 500;
+
+    ReservationRepository reservationRepository;
+    ProductRepository productRepository;
+    MongoTemplate mongoTemplate;
+    ProductCache productCache;
+    StockShardService stockShardService;
+    ReservationMapper reservationMapper;
+
+    @NonFinal
+    @Value("${product.reservation.ttl:15m}")
+    Duration reservationTtl;
+
+    @Override
+    public ReservationResponse reserve(ReservationRequest request) {
+        Objects.requireNonNull(request, "request must not be null");
+        LocalDateTime now = LocalDateTime.now();
+        List<ReservationItem> items = request.getItems().stream()
+                .map(item -> ReservationItem.builder()
+                        .productId(item.getProductId())
+                        .variantId(item.getVariantId())
+                        .quantity(item.getQuantity())
+                        .build())
+                .toList();
+        Reservation reservation = Reservation.builder()
+                .id(request.getReference())
+                .items(items)
+                .status(ReservationStatus.PENDING)
+                .createdAt(now)
+                .expiresAt(now.plus(reservationTtl))
+                .build();
+
+        try {
+            mongoTemplate.insert(reservation);
+        } catch (DuplicateKeyException ex) {
+            Reservation existing = findReservation(request.getReference());
+            if (!sameItems(existing.getItems(), items)) {
+                log.warn("Reservation {} already exists with different items", request.getReference());
+                throw new AppException(ErrorCode.RESERVATION_CONFLICT);
+            }
+            log.info("Reservation {} already exists, returning it", request.getReference());
+            return reservationMapper.toReservationResponse(existing);
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            ReservationItem item = items.get(i);
+            if (!holdStock(item)) {
+                Reservation failed = transition(reservation.getId(), ReservationStatus.RELEASED, new Criteria());
+                if (failed != null) {
+                    returnHeldStock(failed);
+                }
+                throw resolveHoldFailure(item);
+            }
+            // Marked after the hold succeeds: a crash in between leaks the hold rather than
+            // letting the sweeper return units that were never taken. The mark only lands while
+            // the reservation is still PENDING; once it has expired or been released nobody
+            // else will return this hold, so it is undone here.
+            UpdateResult marked = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(reservation.getId()).and("status").is(ReservationStatus.PENDING)),
+                    new Update().set("items." + i + ".held", true), Reservation.class);
+            if (marked.getMatchedCount() == 0) {
+                returnHold(item, reservation.getId());
+                log.warn("Reservation {} stopped being pending while its stock was being held", reservation.getId());
+                throw new AppException(ErrorCode.RESERVATION_NOT_PENDING);
+            }
+            item.setHeld(true);
+        }
+
+        log.info("Reserved {} items under {} until {}", items.size(), reservation.getId(), reservation.getExpiresAt());
+        return reservationMapper.toReservationResponse(reservation);
+    }
+
+    @Override
+    public ReservationResponse confirm(String reference) {
+        Objects.requireNonNull(reference, "reference must not be null");
+        Reservation reservation = transition(reference, ReservationStatus.CONFIRMED, new Criteria());
+        if (reservation == null) {
+            return alreadyFinished(reference, ReservationStatus.CONFIRMED);
+        }
+
+        for (ReservationItem item : reservation.getItems()) {
+            if (!item.isHeld()) {
+                continue;
+            }
+            if (stockShardService.commitHeld(item.getProductId(), item.getVariantId(), item.getQuantity())) {
+                continue;
+            }
+            if (!productRepository.commitHeldStock(item.getProductId(), item.getVariantId(), item.getQuantity())) {
+                log.error("Reserved stock missing for product {} variant {} while confirming {}",
+                        item.getProductId(), item.getVariantId(), reference);
+            }
+            productCache.evict(item.getProductId());
+        }
+
+        reservation.setStatus(ReservationStatus.CONFIRMED);
+        return reservationMapper.toReservationResponse(reservation);
+    }
+
+    @Override
+    public ReservationResponse release(String reference) {
+        Objects.requireNonNull(reference, "reference must not be null");
+        Reservation reservation = transition(reference, ReservationStatus.RELEASED, new Criteria());
+        if (reservation == null) {
+            return alreadyFinished(reference, ReservationStatus.RELEASED, ReservationStatus.EXPIRED);
+        }
+
+        returnHeldStock(reservation);
+        reservation.setStatus(ReservationStatus.RELEASED);
+        return reservationMapper.toReservationResponse(reservation);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval:30s}")
+    public int expireReservations() {
+        int expired = 0;
+        while (expired < SWEEP_BATCH_SIZE) {
+            Reservation reservation = transition(null, ReservationStatus.EXPIRED,
+                    Criteria.where("expiresAt").lt(LocalDateTime.now()));
+            if (reservation == null) {
+                break;
+            }
+            returnHeldStock(reservation);
+            expired++;
+        }
+        if (expired > 0) {
+            log.info("Expired {} abandoned stock reservations", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Atomically moves one PENDING reservation to {@code target} and returns it as it was
+     * before the move, so exactly one caller applies the matching stock change.
+     */
+    private Reservation transition(String reference, ReservationStatus target, Criteria criteria) {
+        if (reference != null) {
+            criteria.and("_id").is(reference);
+        }
+        criteria.and("status").is(ReservationStatus.PENDING);
+        return mongoTemplate.findAndModify(Query.query(criteria),
+                new Update().set("status", target),
+                FindAndModifyOptions.options().returnNew(false),
+                Reservation.class);
+    }
+
+    private void returnHeldStock(Reservation reservation) {
+        for (ReservationItem item : reservation.getItems()) {
+            if (item.isHeld()) {
+                returnHold(item, reservation.getId());
+            }
+        }
+    }
+
+    private void returnHold(ReservationItem item, String reference) {
+        if (stockShardService.releaseHeld(item.getProductId(), item.getVariantId(), item.getQuantity())) {
+            return;
+        }
+        if (!productRepository.releaseHeldStock(item.getProductId(), item.getVariantId(), item.getQuantity())) {
+            log.error("Reserved stock missing for product {} variant {} while releasing {}",
+                    item.getProductId(), item.getVariantId(), reference);
+        }
+        productCache.evict(item.getProductId());
+    }
+
+    private boolean holdStock(ReservationItem item) {
+        StockShardResult sharded = stockShardService.hold(item.getProductId(), item.getVariantId(), item.getQuantity());
+        if (sharded != StockShardResult.NOT_SHARDED) {
+            return sharded == StockShardResult.TAKEN;
+        }
+        if (!productRepository.holdStock(item.getProductId(), item.getVariantId(), item.getQuantity())) {
+            return false;
+        }
+        productCache.evict(item.getProductId());
+        return true;
+    }
+
+    private ReservationResponse alreadyFinished(String reference, ReservationStatus... accepted) {
+        Reservation reservation = findReservation(reference);
+        for (ReservationStatus status : accepted) {
+            if (reservation.getStatus() == status) {
+                return reservationMapper.toReservationResponse(reservation);
+            }
+        }
+        log.warn("Reservation {} is {} and cannot move to {}", reference, reservation.getStatus(), accepted[0]);
+        throw new AppException(ErrorCode.RESERVATION_NOT_PENDING);
+    }
+
+    /** A retried reserve replays the same lines in the same order; anything else is another caller. */
+    private static boolean sameItems(List<ReservationItem> stored, List<ReservationItem> requested) {
+        if (stored == null || stored.size() != requested.size()) {
+            return false;
+        }
+        for (int i = 0; i < stored.size(); i++) {
+            ReservationItem a = stored.get(i);
+            ReservationItem b = requested.get(i);
+            if (!Objects.equals(a.getProductId(), b.getProductId())
+                    || !Objects.equals(a.getVariantId(), b.getVariantId())
+                    || a.getQuantity() != b.getQuantity()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Reservation findReservation(String reference) {
+        return reservationRepository.findById(reference)
+                .orElseThrow(() -> new AppException(ErrorCode.RESERVATION_NOT_FOUND));
+    }
+
+    private AppException resolveHoldFailure(ReservationItem item) {
+        if (!productRepository.existsById(item.getProductId())) {
+            return new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        if (!productRepository.existsVariant(item.getProductId(), item.getVariantId())) {
+            return new AppException(ErrorCode.VARIANT_NOT_FOUND);
+        }
+        log.warn("Insufficient stock to reserve product {} variant {} quantity {}",
+                item.getProductId(), item.getVariantId(), item.getQuantity());
+        return new AppException(ErrorCode.INSUFFICIENT_STOCK);
+    }
+
+}
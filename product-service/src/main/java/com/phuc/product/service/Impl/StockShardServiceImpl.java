@@ -0,0 +1,548 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.response.StockShardResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import com.phuc.product.enums.StockShardResult;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.service.StockShardService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the stock of a hot variant across several Redis counters so that concurrent
+ * decrements on one SKU stop contending on a single Mongo document. Operations take
+ * from a random shard and move on to the others when it runs dry; the scheduled
+ * reconcile folds the shard totals and pending reserved/sold counts back into
+ * {@link ProductVariant} so Mongo stays the canonical record.
+ * <p>
+ * Keys: {@code stock-shards:skus} maps {@code productId:variantId} to its shard count;
+ * per SKU, {@code shard:<i>} holds available units, {@code reserved} and {@code sold}
+ * hold deltas not yet applied to Mongo, and the {@code synced} hash field records the
+ * shard total last written back.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StockShardServiceImpl implements StockShardService {
+
+    static final String KEY_PREFIX = "stock-shards:";
+    static final String REGISTRY_KEY = KEY_PREFIX + "skus";
+    static final String LOCK_KEY = KEY_PREFIX + "reconcile-lock";
+    static final String SYNCED_FIELD = "synced";
+    static final Duration LOCK_TTL = Duration.ofSeconds(30);
+    static final int LOCK_ATTEMPTS = 50;
+    static final long LOCK_RETRY_MILLIS = 100;
+    static final int MIN_SHARDS = 2;
+    static final int MAX_SHARDS = 64;
+
+    static final long NOT_REGISTERED = -1;
+    static final int SCRIPT_ATTEMPTS = 3;
+
+    /*
+     * Every script first checks that the registry still maps the SKU to the shard count its
+     * keys were built from, so nothing is written to shards disable() has already drained.
+     * SKU-wide scripts take the config, reserved and sold keys followed by the shards.
+     */
+
+    /**
+     * Takes ARGV[3] units starting at shard ARGV[4], or nothing when the shards do not hold
+     * that many together, and adds them to the pending counter KEYS[2] when ARGV[5] is 1.
+     * Returns 1 when taken, 0 when short and -1 when the SKU is not sharded.
+     */
+    static final RedisScript<Long> TAKE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return -1
+            end
+            local shards = #KEYS - 2
+            local quantity = tonumber(ARGV[3])
+            local values = redis.call('MGET', unpack(KEYS, 3))
+            local total = 0
+            for i = 1, shards do
+                total = total + tonumber(values[i] or '0')
+            end
+            if total < quantity then
+                return 0
+            end
+            local remaining = quantity
+            for i = 0, shards - 1 do
+                local index = (tonumber(ARGV[4]) + i) % shards + 1
+                local taken = math.min(tonumber(values[index] or '0'), remaining)
+                if taken > 0 then
+                    redis.call('DECRBY', KEYS[index + 2], taken)
+                    remaining = remaining - taken
+                end
+                if remaining == 0 then
+                    break
+                end
+            end
+            if ARGV[5] == '1' then
+                redis.call('INCRBY', KEYS[2], quantity)
+            end
+            return 1
+            """, Long.class);
+
+    /** Adds ARGV[i + 2] to KEYS[i + 1]. Returns 1, or -1 when the SKU is not sharded. */
+    static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return -1
+            end
+            for i = 2, #KEYS do
+                redis.call('INCRBY', KEYS[i], ARGV[i + 1])
+            end
+            return 1
+            """, Long.class);
+
+    /** Adds the shares ARGV[3..] to the shards and records their total as synced. */
+    static final RedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return 0
+            end
+            local stock = 0
+            for i = 5, #KEYS do
+                redis.call('INCRBY', KEYS[i], ARGV[i - 2])
+                stock = stock + tonumber(ARGV[i - 2])
+            end
+            redis.call('HSET', KEYS[2], 'synced', stock)
+            return 1
+            """, Long.class);
+
+    /**
+     * Unregisters the SKU and deletes all of its keys. Returns the shard total, the synced
+     * total and the pending reserved and sold counts, or nil when the SKU is not sharded.
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return nil
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            local remaining = 0
+            for i = 5, #KEYS do
+                remaining = remaining + tonumber(redis.call('GET', KEYS[i]) or '0')
+            end
+            local synced = tonumber(redis.call('HGET', KEYS[2], 'synced') or '0')
+            local reserved = tonumber(redis.call('GET', KEYS[3]) or '0')
+            local sold = tonumber(redis.call('GET', KEYS[4]) or '0')
+            redis.call('DEL', unpack(KEYS, 2))
+            return {remaining, synced, reserved, sold}
+            """, List.class);
+
+    /** Puts back what DRAIN_SCRIPT took, unless the SKU has been sharded again since. */
+    static final RedisScript<Long> UNDRAIN_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HSETNX', KEYS[1], ARGV[1], ARGV[2]) == 0 then
+                return 0
+            end
+            redis.call('INCRBY', KEYS[5], ARGV[3])
+            redis.call('HSET', KEYS[2], 'synced', ARGV[4])
+            redis.call('INCRBY', KEYS[3], ARGV[5])
+            redis.call('INCRBY', KEYS[4], ARGV[6])
+            return 1
+            """, Long.class);
+
+    /**
+     * Moves synced to the current shard total and drains the pending counters in one step.
+     * Returns the stock, reserved and sold deltas, or nil when the SKU is not sharded or its
+     * shards are still being filled.
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> RECONCILE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return nil
+            end
+            local synced = redis.call('HGET', KEYS[2], 'synced')
+            if not synced then
+                return nil
+            end
+            local available = 0
+            for i = 5, #KEYS do
+                available = available + tonumber(redis.call('GET', KEYS[i]) or '0')
+            end
+            redis.call('HSET', KEYS[2], 'synced', available)
+            local reserved = tonumber(redis.call('GET', KEYS[3]) or '0')
+            local sold = tonumber(redis.call('GET', KEYS[4]) or '0')
+            redis.call('DEL', KEYS[3], KEYS[4])
+            return {available - tonumber(synced), reserved, sold}
+            """, List.class);
+
+    /** Gives back the deltas RECONCILE_SCRIPT took. Returns 0 when the SKU is not sharded. */
+    static final RedisScript<Long> UNRECONCILE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return 0
+            end
+            redis.call('HINCRBY', KEYS[2], 'synced', -tonumber(ARGV[3]))
+            redis.call('INCRBY', KEYS[3], ARGV[4])
+            redis.call('INCRBY', KEYS[4], ARGV[5])
+            return 1
+            """, Long.class);
+
+    StringRedisTemplate stringRedisTemplate;
+    ProductRepository productRepository;
+    ProductCache productCache;
+
+    @Override
+    public boolean isSharded(String productId, String variantId) {
+        return shardCount(productId, variantId) > 0;
+    }
+
+    @Override
+    public long getAvailable(String productId, String variantId) {
+        return available(productId, variantId, shardCount(productId, variantId));
+    }
+
+    @Override
+    public StockShardResult decrement(String productId, String variantId, int quantity, boolean recordSale) {
+        return take(productId, variantId, "sold", quantity, recordSale);
+    }
+
+    @Override
+    public boolean increment(String productId, String variantId, int quantity) {
+        return onShards(productId, variantId, shards -> run(ADD_SCRIPT,
+                List.of(REGISTRY_KEY, shardKey(productId, variantId, randomShard(shards))),
+                sku(productId, variantId), shards, quantity)) != NOT_REGISTERED;
+    }
+
+    @Override
+    public StockShardResult hold(String productId, String variantId, int quantity) {
+        return take(productId, variantId, "reserved", quantity, true);
+    }
+
+    @Override
+    public boolean commitHeld(String productId, String variantId, int quantity) {
+        return onShards(productId, variantId, shards -> run(ADD_SCRIPT,
+                List.of(REGISTRY_KEY, pendingKey(productId, variantId, "reserved"), pendingKey(productId, variantId, "sold")),
+                sku(productId, variantId), shards, -quantity, quantity)) != NOT_REGISTERED;
+    }
+
+    @Override
+    public boolean releaseHeld(String productId, String variantId, int quantity) {
+        return onShards(productId, variantId, shards -> run(ADD_SCRIPT,
+                List.of(REGISTRY_KEY, shardKey(productId, variantId, randomShard(shards)), pendingKey(productId, variantId, "reserved")),
+                sku(productId, variantId), shards, quantity, -quantity)) != NOT_REGISTERED;
+    }
+
+    @Override
+    public Product save(Product product) {
+        List<ProductVariant> sharded = product.getVariants() == null ? List.of() : product.getVariants().stream()
+                .filter(variant -> isSharded(product.getId(), variant.getVariantId()))
+                .toList();
+        if (sharded.isEmpty()) {
+            return productRepository.save(product);
+        }
+        // Under the reconcile lock Mongo's counters cannot move, so copying them in keeps
+        // every delta already written back.
+        AtomicReference<Product> saved = new AtomicReference<>();
+        withLock(() -> {
+            Map<String, ProductVariant> current = productRepository.findById(product.getId())
+                    .map(Product::getVariants)
+                    .orElse(List.of())
+                    .stream()
+                    .collect(Collectors.toMap(ProductVariant::getVariantId, Function.identity()));
+            for (ProductVariant variant : sharded) {
+                ProductVariant stored = current.get(variant.getVariantId());
+                if (stored != null) {
+                    variant.setStock(stored.getStock());
+                    variant.setReserved(stored.getReserved());
+                    variant.setSoldQuantity(stored.getSoldQuantity());
+                }
+            }
+            saved.set(productRepository.save(product));
+        });
+        return saved.get();
+    }
+
+    @Override
+    public StockShardResponse enable(String productId, String variantId, int shards) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        Objects.requireNonNull(variantId, "variantId must not be null");
+        if (shards < MIN_SHARDS || shards > MAX_SHARDS) {
+            throw new AppException(ErrorCode.INVALID_SHARD_COUNT);
+        }
+        String sku = sku(productId, variantId);
+        // Registered before the shards are filled: operations in between find empty shards
+        // and fail, rather than still writing to Mongo after its stock was copied.
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForHash().putIfAbsent(REGISTRY_KEY, sku, String.valueOf(shards)))) {
+            throw new AppException(ErrorCode.STOCK_SHARDS_ALREADY_ENABLED);
+        }
+
+        int stock;
+        try {
+            stock = findVariant(productId, variantId).getStock();
+        } catch (AppException ex) {
+            stringRedisTemplate.opsForHash().delete(REGISTRY_KEY, sku);
+            throw ex;
+        }
+        List<Object> args = new ArrayList<>(List.of(sku, shards));
+        for (int i = 0; i < shards; i++) {
+            args.add(stock / shards + (i < stock % shards ? 1 : 0));
+        }
+        if (run(FILL_SCRIPT, skuKeys(productId, variantId, shards), args.toArray()) != 1) {
+            throw new AppException(ErrorCode.STOCK_SHARDS_NOT_ENABLED);
+        }
+
+        log.info("Enabled {} stock shards for product {} variant {} holding {} units", shards, productId, variantId, stock);
+        return toResponse(productId, variantId, shards);
+    }
+
+    @Override
+    public StockShardResponse disable(String productId, String variantId) {
+        Objects.requireNonNull(productId, "productId must not be null");
+        Objects.requireNonNull(variantId, "variantId must not be null");
+        int shards = shardCount(productId, variantId);
+        if (shards == 0) {
+            throw new AppException(ErrorCode.STOCK_SHARDS_NOT_ENABLED);
+        }
+
+        withLock(() -> {
+            List<String> keys = skuKeys(productId, variantId, shards);
+            List<Long> drained = runForDeltas(DRAIN_SCRIPT, keys, sku(productId, variantId), shards);
+            if (drained == null) {
+                throw new AppException(ErrorCode.STOCK_SHARDS_NOT_ENABLED);
+            }
+            long remaining = drained.get(0);
+            long synced = drained.get(1);
+            try {
+                applyDeltas(productId, variantId, remaining - synced, drained.get(2), drained.get(3));
+            } catch (RuntimeException ex) {
+                if (run(UNDRAIN_SCRIPT, keys, sku(productId, variantId), shards,
+                        remaining, synced, drained.get(2), drained.get(3)) != 1) {
+                    log.error("Product {} variant {} was sharded again before its drained stock could be put back: "
+                            + "stock {}, reserved {}, sold {}", productId, variantId, remaining - synced,
+                            drained.get(2), drained.get(3));
+                }
+                throw ex;
+            }
+        });
+
+        log.info("Disabled stock shards for product {} variant {}", productId, variantId);
+        return StockShardResponse.builder().productId(productId).variantId(variantId).build();
+    }
+
+    @Override
+    public List<StockShardResponse> getShardedVariants() {
+        List<StockShardResponse> responses = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(REGISTRY_KEY).entrySet()) {
+            String[] sku = entry.getKey().toString().split(":", 2);
+            responses.add(toResponse(sku[0], sku[1], Integer.parseInt(entry.getValue().toString())));
+        }
+        return responses;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${product.stock-shards.reconcile-interval:1s}")
+    public void reconcile() {
+        Map<Object, Object> registry = stringRedisTemplate.opsForHash().entries(REGISTRY_KEY);
+        if (registry.isEmpty()) {
+            return;
+        }
+        tryLock(() -> registry.forEach((key, shards) -> {
+            String[] sku = key.toString().split(":", 2);
+            try {
+                reconcile(sku[0], sku[1], Integer.parseInt(shards.toString()));
+            } catch (RuntimeException ex) {
+                log.error("Failed to reconcile stock shards for product {} variant {}", sku[0], sku[1], ex);
+            }
+        }));
+    }
+
+    /**
+     * Writes the change since the last reconcile to Mongo. The deltas are taken from Redis
+     * in one script and given back if the write fails, so none is applied twice or dropped.
+     */
+    private void reconcile(String productId, String variantId, int shards) {
+        List<String> keys = skuKeys(productId, variantId, shards);
+        List<Long> deltas = runForDeltas(RECONCILE_SCRIPT, keys, sku(productId, variantId), shards);
+        if (deltas == null) {
+            return;
+        }
+        try {
+            applyDeltas(productId, variantId, deltas.get(0), deltas.get(1), deltas.get(2));
+        } catch (RuntimeException ex) {
+            if (run(UNRECONCILE_SCRIPT, keys, sku(productId, variantId), shards,
+                    deltas.get(0), deltas.get(1), deltas.get(2)) != 1) {
+                log.error("Product {} variant {} was unsharded before its deltas could be put back: "
+                        + "stock {}, reserved {}, sold {}", productId, variantId, deltas.get(0), deltas.get(1), deltas.get(2));
+            }
+            throw ex;
+        }
+    }
+
+    private void applyDeltas(String productId, String variantId, long stockDelta, long reservedDelta, long soldDelta) {
+        if (stockDelta == 0 && reservedDelta == 0 && soldDelta == 0) {
+            return;
+        }
+        if (!productRepository.applyStockDelta(productId, variantId, stockDelta, reservedDelta, soldDelta)) {
+            log.warn("Product {} variant {} no longer exists, dropping its stock shard deltas", productId, variantId);
+        }
+        productCache.evict(productId);
+    }
+
+    /** Takes {@code quantity} units across the shards, counting them in {@code counter}. */
+    private StockShardResult take(String productId, String variantId, String counter, int quantity, boolean record) {
+        long result = onShards(productId, variantId, shards -> {
+            List<String> keys = new ArrayList<>(shards + 2);
+            keys.add(REGISTRY_KEY);
+            keys.add(pendingKey(productId, variantId, counter));
+            for (int i = 0; i < shards; i++) {
+                keys.add(shardKey(productId, variantId, i));
+            }
+            return run(TAKE_SCRIPT, keys, sku(productId, variantId), shards, quantity,
+                    randomShard(shards), record ? 1 : 0);
+        });
+        if (result == NOT_REGISTERED) {
+            return StockShardResult.NOT_SHARDED;
+        }
+        return result == 1 ? StockShardResult.TAKEN : StockShardResult.INSUFFICIENT;
+    }
+
+    /**
+     * Runs a script against the SKU's current shard count, retrying when the shards were
+     * disabled and enabled again with another count in between.
+     */
+    private long onShards(String productId, String variantId, IntFunction<Long> operation) {
+        for (int attempt = 0; attempt < SCRIPT_ATTEMPTS; attempt++) {
+            int shards = shardCount(productId, variantId);
+            if (shards == 0) {
+                return NOT_REGISTERED;
+            }
+            long result = operation.apply(shards);
+            if (result != NOT_REGISTERED) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Stock shards for product " + productId + " variant " + variantId
+                + " kept changing");
+    }
+
+    private long run(RedisScript<Long> script, List<String> keys, Object... args) {
+        Long result = stringRedisTemplate.execute(script, keys, Arrays.stream(args).map(String::valueOf).toArray());
+        return result == null ? 0 : result;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<Long> runForDeltas(RedisScript<List> script, List<String> keys, Object... args) {
+        List result = stringRedisTemplate.execute(script, keys, Arrays.stream(args).map(String::valueOf).toArray());
+        return result == null || result.isEmpty() ? null : (List<Long>) result;
+    }
+
+    private long available(String productId, String variantId, int shards) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(IntStream.range(0, shards)
+                .mapToObj(i -> shardKey(productId, variantId, i))
+                .toList());
+        return values == null ? 0 : values.stream().mapToLong(StockShardServiceImpl::parse).sum();
+    }
+
+    private StockShardResponse toResponse(String productId, String variantId, int shards) {
+        return StockShardResponse.builder()
+                .productId(productId)
+                .variantId(variantId)
+                .shards(shards)
+                .available(available(productId, variantId, shards))
+                .pendingReserved(parse(stringRedisTemplate.opsForValue().get(pendingKey(productId, variantId, "reserved"))))
+                .pendingSold(parse(stringRedisTemplate.opsForValue().get(pendingKey(productId, variantId, "sold"))))
+                .build();
+    }
+
+    private ProductVariant findVariant(String productId, String variantId) {
+        Product product = productRepository.findWithVariant(productId, variantId)
+                .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+        if (product.getVariants() == null || product.getVariants().isEmpty()) {
+            throw new AppException(ErrorCode.VARIANT_NOT_FOUND);
+        }
+        return product.getVariants().getFirst();
+    }
+
+    private void withLock(Runnable action) {
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+            if (tryLock(action)) {
+                return;
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IllegalStateException("Timed out waiting for the stock shard reconcile lock");
+    }
+
+    private boolean tryLock(Runnable action) {
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL))) {
+            return false;
+        }
+        try {
+            action.run();
+        } finally {
+            if (token.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        }
+        return true;
+    }
+
+    private int shardCount(String productId, String variantId) {
+        Object shards = stringRedisTemplate.opsForHash().get(REGISTRY_KEY, sku(productId, variantId));
+        return shards == null ? 0 : Integer.parseInt(shards.toString());
+    }
+
+    private static int randomShard(int shards) {
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+
+    private static long parse(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static String sku(String productId, String variantId) {
+        return productId + ":" + variantId;
+    }
+
+    private static String configKey(String productId, String variantId) {
+        return KEY_PREFIX + sku(productId, variantId);
+    }
+
+    private static List<String> skuKeys(String productId, String variantId, int shards) {
+        List<String> keys = new ArrayList<>(List.of(REGISTRY_KEY, configKey(productId, variantId),
+                pendingKey(productId, variantId, "reserved"), pendingKey(productId, variantId, "sold")));
+        for (int i = 0; i < shards; i++) {
+            keys.add(shardKey(productId, variantId, i));
+        }
+        return keys;
+    }
+
+    private static String shardKey(String productId, String variantId, int shard) {
+        return configKey(productId, variantId) + ":shard:" + shard;
+    }
+
+    private static String pendingKey(String productId, String variantId, String counter) {
+        return configKey(productId, variantId) + ":" + counter;
+    }
+
+}
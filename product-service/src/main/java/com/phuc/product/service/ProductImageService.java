@@ -0,0 +1,14 @@
+package com.phuc.product.service;
+
+import com.phuc.product.upload.ImageUploadBatch;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+public interface ProductImageService {
+
+    ImageUploadBatch prepare(List<MultipartFile> images);
+
+    void upload(String productId, ImageUploadBatch batch);
+
+}
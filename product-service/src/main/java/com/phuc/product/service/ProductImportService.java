@@ -0,0 +1,14 @@
+package com.phuc.product.service;
+
+import com.phuc.product.dto.response.ProductImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ProductImportService {
+
+    ProductImportResponse importJson(InputStream input) throws IOException;
+
+    ProductImportResponse importCsv(InputStream input) throws IOException;
+
+}
@@ -0,0 +1,14 @@
+package com.phuc.product.service;
+
+import com.phuc.product.dto.response.ProductSearchResponse;
+import com.phuc.product.entity.Product;
+
+public interface ProductSearchService {
+
+    ProductSearchResponse search(String query, String categoryId, String shopId, int page, int size);
+
+    void index(Product product);
+
+    void remove(String productId);
+
+}
@@ -1,13 +1,19 @@
 package com.phuc.product.service;
 
 import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.dto.request.ProductLookupItemRequest;
 import com.phuc.product.dto.request.ProductUpdateRequest;
+import com.phuc.product.dto.response.CursorPageResponse;
 import com.phuc.product.dto.response.ExistsResponse;
+import com.phuc.product.dto.response.ProductLookupResponse;
 import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
 import com.phuc.product.enums.ProductSort;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface ProductService {
@@ -20,12 +26,20 @@ public interface ProductService {
 
   Page<ProductResponse> getProducts(String shopId, String categoryId, int page, int size, String sortBy, String sortDirection, Double minPrice, Double maxPrice, ProductSort productSort);
 
+  Page<ProductSummaryResponse> getProductSummaries(String shopId, String categoryId, int page, int size, String sortBy, String sortDirection, Double minPrice, Double maxPrice, ProductSort productSort);
+
+  ProductSummaryResponse getProductSummary(String productId);
+
+  CursorPageResponse<ProductResponse> getProductsByCursor(String shopId, String categoryId, String cursor, int size, String sortBy, String sortDirection, Double minPrice, Double maxPrice, ProductSort productSort, boolean includeTotal);
+
   ProductResponse getProductById(String productId);
 
   List<ProductResponse> getProductsByShopId(String shopId);
 
   List<ProductResponse> getAllProducts();
 
+  void exportProducts(String shopId, OutputStream outputStream) throws IOException;
+
   double getProductPriceById(String productId, String variantId);
 
   int getProductStockById(String productId, String variantId);
@@ -34,9 +48,11 @@ public interface ProductService {
 
   String getShopIdByProductId(String productId);
 
+  List<ProductLookupResponse> lookupProducts(List<ProductLookupItemRequest> items);
+
   boolean isProductExist(String productId);
 
-  List<ProductResponse> getProductsByCategoryId(String categoryId);
+  Page<ProductResponse> getProductsByCategoryId(String categoryId, int page, int size);
   void reduceStock(String productId, String variantId, Integer quantity);
   
   void restoreStock(String productId, String variantId, Integer quantity);
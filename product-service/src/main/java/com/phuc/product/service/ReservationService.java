@@ -0,0 +1,16 @@
+package com.phuc.product.service;
+
+import com.phuc.product.dto.request.ReservationRequest;
+import com.phuc.product.dto.response.ReservationResponse;
+
+public interface ReservationService {
+
+    ReservationResponse reserve(ReservationRequest request);
+
+    ReservationResponse confirm(String reference);
+
+    ReservationResponse release(String reference);
+
+    int expireReservations();
+
+}
@@ -0,0 +1,44 @@
+package com.phuc.product.service;
+
+import com.phuc.product.dto.response.StockShardResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.enums.StockShardResult;
+
+import java.util.List;
+
+/**
+ * Sharded stock for hot variants. Operations report {@link StockShardResult#NOT_SHARDED}
+ * or {@code false} when the variant is not sharded, in which case the caller applies the
+ * change to Mongo itself.
+ */
+public interface StockShardService {
+
+    boolean isSharded(String productId, String variantId);
+
+    long getAvailable(String productId, String variantId);
+
+    StockShardResult decrement(String productId, String variantId, int quantity, boolean recordSale);
+
+    boolean increment(String productId, String variantId, int quantity);
+
+    StockShardResult hold(String productId, String variantId, int quantity);
+
+    boolean commitHeld(String productId, String variantId, int quantity);
+
+    boolean releaseHeld(String productId, String variantId, int quantity);
+
+    /**
+     * Saves a whole product document without overwriting the stock counters of its sharded
+     * variants, which only the reconcile may move while they are sharded.
+     */
+    Product save(Product product);
+
+    StockShardResponse enable(String productId, String variantId, int shards);
+
+    StockShardResponse disable(String productId, String variantId);
+
+    List<StockShardResponse> getShardedVariants();
+
+    void reconcile();
+
+}
@@ -0,0 +1,19 @@
+package com.phuc.product.upload;
+
+import java.util.List;
+
+/**
+ * Images accepted with a product write and uploaded after it. {@code id} guards the
+ * product's slots, so a later batch supersedes this one.
+ */
+public record ImageUploadBatch(String id, String authorization, List<SpooledMultipartFile> files) {
+
+    public int size() {
+        return files.size();
+    }
+
+    public void discard() {
+        files.forEach(SpooledMultipartFile::delete);
+    }
+
+}
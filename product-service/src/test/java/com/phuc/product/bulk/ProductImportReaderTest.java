@@ -0,0 +1,140 @@
+package com.phuc.product.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportReaderTest {
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void groupsConsecutiveCsvLinesIntoVariants() throws Exception {
+        String csv = """
+                productKey,name,description,categoryId,price,stock,attributes
+                shirt,Linen shirt,"Soft, breathable",c1,19.5,10,size=M;color=blue
+                shirt,Linen shirt,"Soft, breathable",c1,21,4,size=L;color=blue
+                hat,Bucket hat,,c2,9.99,30,size=OS
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readCsv(stream(csv), rows::add);
+
+        assertThat(rows).extracting(ImportRow::row).containsExactly(1, 3);
+        assertThat(rows.get(0).request().getDescription()).isEqualTo("Soft, breathable");
+        assertThat(rows.get(0).request().getVariants()).hasSize(2);
+        assertThat(rows.get(0).request().getVariants().get(1).getAttributes())
+                .isEqualTo(Map.of("size", "L", "color", "blue"));
+        assertThat(rows.get(1).request().getDescription()).isNull();
+    }
+
+    @Test
+    void reportsUnreadableCsvVariantAgainstItsProduct() throws Exception {
+        String csv = """
+                productKey,name,description,categoryId,price,stock,attributes
+                shirt,Linen shirt,,c1,abc,10,size=M
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readCsv(stream(csv), rows::add);
+
+        assertThat(rows).singleElement()
+                .satisfies(row -> assertThat(row.error()).isEqualTo(ErrorCode.INVALID_IMPORT_ROW));
+    }
+
+    @Test
+    void readsJsonArrayAndKeepsGoingPastBadRows() throws Exception {
+        String json = """
+                [
+                  {"name": "Shirt", "categoryId": "c1", "variants": [{"price": 10, "stock": 1, "attributes": {"size": "M"}}]},
+                  {"name": "Broken", "variants": "not-a-list"},
+                  {"name": "Hat", "categoryId": "c2", "variants": []}
+                ]
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readJson(stream(json), objectMapper, rows::add);
+
+        assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2, 3);
+        assertThat(rows.get(0).request().getVariants()).hasSize(1);
+        assertThat(rows.get(1).error()).isEqualTo(ErrorCode.INVALID_IMPORT_ROW);
+        assertThat(rows.get(2).request().getName()).isEqualTo("Hat");
+    }
+
+    @Test
+    void reportsMalformedJsonAsARowAndStops() throws Exception {
+        String json = """
+                [
+                  {"name": "Shirt", "categoryId": "c1", "variants": []},
+                  {"name": "Hat", "categoryId": }
+                  {"name": "Never read"}
+                ]
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readJson(stream(json), objectMapper, rows::add);
+
+        assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2);
+        assertThat(rows.get(1).error()).isEqualTo(ErrorCode.INVALID_REQUEST_FORMAT);
+    }
+
+    @Test
+    void reportsTruncatedJsonAsARow() throws Exception {
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readJson(stream("[{\"name\": \"Shirt\"}, 42]"), objectMapper, rows::add);
+
+        assertThat(rows).extracting(ImportRow::error).containsExactly(null, ErrorCode.INVALID_REQUEST_FORMAT);
+    }
+
+    @Test
+    void reportsMalformedCsvAgainstTheProductBeingRead() throws Exception {
+        String csv = """
+                productKey,name,description,categoryId,price,stock,attributes
+                shirt,Linen shirt,,c1,19.5,10,size=M
+                hat,Bucket hat,,c2,9.99,30,size=OS
+                hat,Bucket hat,"unterminated,c2,9.99,30,size=L
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readCsv(stream(csv), rows::add);
+
+        assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2);
+        assertThat(rows.get(0).error()).isNull();
+        assertThat(rows.get(1).error()).isEqualTo(ErrorCode.INVALID_REQUEST_FORMAT);
+    }
+
+    @Test
+    void stopsReadingWhenTheConsumerDeclines() throws Exception {
+        String json = """
+                [{"name": "Shirt"}, {"name": "Hat"}, {"name": "Scarf"}]
+                """;
+        List<ImportRow> rows = new ArrayList<>();
+
+        ProductImportReader.readJson(stream(json), objectMapper, row -> rows.add(row) && rows.size() < 2);
+
+        assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2);
+    }
+
+    @Test
+    void rejectsJsonThatIsNotAnArray() {
+        assertThatThrownBy(() -> ProductImportReader.readJson(stream("{\"name\": \"Shirt\"}"), objectMapper, row -> true))
+                .isInstanceOf(AppException.class);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.phuc.product.cache;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogChangeStreamListenerTest {
+
+    @Test
+    void skipsUpdatesThatOnlyMoveStockCounters() {
+        assertThat(CatalogChangeStreamListener.isCounterUpdate(update(List.of(),
+                "variants.0.stock", "variants.0.soldQuantity", "totalSold", "updatedAt"))).isTrue();
+    }
+
+    @Test
+    void keepsUpdatesTouchingAnyOtherField() {
+        assertThat(CatalogChangeStreamListener.isCounterUpdate(update(List.of(), "variants.0.stock", "name"))).isFalse();
+        assertThat(CatalogChangeStreamListener.isCounterUpdate(update(List.of(), "variants"))).isFalse();
+        assertThat(CatalogChangeStreamListener.isCounterUpdate(update(List.of("imageUploadId"), "updatedAt"))).isFalse();
+    }
+
+    @Test
+    void keepsInsertsAndReplaces() {
+        ChangeStreamDocument<Document> event = update(List.of(), "updatedAt");
+        when(event.getOperationType()).thenReturn(OperationType.REPLACE);
+
+        assertThat(CatalogChangeStreamListener.isCounterUpdate(event)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> update(List<String> removed, String... updated) {
+        BsonDocument fields = new BsonDocument();
+        for (String field : updated) {
+            fields.append(field, new BsonInt32(1));
+        }
+        ChangeStreamDocument<Document> event = mock(ChangeStreamDocument.class);
+        when(event.getOperationType()).thenReturn(OperationType.UPDATE);
+        when(event.getUpdateDescription()).thenReturn(new UpdateDescription(removed, fields, List.of()));
+        return event;
+    }
+}
@@ -0,0 +1,120 @@
+package com.phuc.product.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.phuc.product.dto.response.CategoryResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRedisSerializerTest {
+
+    final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer(jsonMapper());
+    final CompactRedisSerializer serializer = new CompactRedisSerializer(json, true);
+
+    @Test
+    void roundTripsProductSmallerThanJson() {
+        Product product = product();
+
+        byte[] compact = serializer.serialize(product);
+        Product decoded = (Product) serializer.deserialize(compact);
+
+        assertThat(compact[0]).isEqualTo(CompactRedisSerializer.FORMAT_VERSION);
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(product);
+        assertThat(compact.length).isLessThan(json.serialize(product).length / 2);
+    }
+
+    @Test
+    void roundTripsCategoryList() {
+        List<CategoryResponse> categories = List.of(
+                CategoryResponse.builder().id("c1").shopId("s1").name("Shoes").productCount(2).build(),
+                CategoryResponse.builder().id("c2").shopId("s1").name("Hats").build());
+
+        Object decoded = serializer.deserialize(serializer.serialize(categories));
+
+        assertThat(decoded).isEqualTo(categories);
+    }
+
+    @Test
+    void delegatesOtherValuesToJson() {
+        byte[] bytes = serializer.serialize("shop-1");
+
+        assertThat(bytes[0]).isEqualTo((byte) '"');
+        assertThat(serializer.deserialize(bytes)).isEqualTo("shop-1");
+    }
+
+    @Test
+    void readsEntriesWrittenByJsonSerializer() {
+        CategoryResponse category = CategoryResponse.builder().id("c1").name("Shoes").build();
+
+        assertThat(serializer.deserialize(json.serialize(category))).isEqualTo(category);
+    }
+
+    @Test
+    void writesJsonUntilCompactWritesAreEnabled() {
+        CompactRedisSerializer rolling = new CompactRedisSerializer(json, false);
+        Product product = product();
+
+        byte[] bytes = rolling.serialize(product);
+
+        assertThat(bytes[0]).isEqualTo((byte) '{');
+        assertThat(json.deserialize(bytes)).usingRecursiveComparison().isEqualTo(product);
+        assertThat(rolling.deserialize(serializer.serialize(product))).usingRecursiveComparison().isEqualTo(product);
+    }
+
+    @Test
+    void treatsUnknownVersionAsMiss() {
+        byte[] bytes = serializer.serialize(product());
+        bytes[0] = CompactRedisSerializer.FORMAT_VERSION + 1;
+
+        assertThat(serializer.deserialize(bytes)).isNull();
+    }
+
+    private static Product product() {
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            variants.add(ProductVariant.builder()
+                    .variantId("variant-" + i)
+                    .price(19.99 + i)
+                    .stock(100 - i)
+                    .soldQuantity(i)
+                    .attributes(Map.of("size", "M", "color", "blue"))
+                    .build());
+        }
+        return Product.builder()
+                .id("65f1c0ffee0000000000beef")
+                .shopId("shop-1")
+                .categoryId("category-1")
+                .name("Linen shirt")
+                .description("Breathable linen shirt")
+                .variants(variants)
+                .minPrice(19.99)
+                .maxPrice(23.99)
+                .totalSold(10)
+                .imageUrls(List.of("https://cdn.example.com/a.png"))
+                .createdAt(LocalDateTime.of(2024, 3, 1, 10, 15, 30))
+                .updatedAt(LocalDateTime.of(2024, 3, 2, 8, 0))
+                .build();
+    }
+
+    private static ObjectMapper jsonMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return mapper;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.phuc.product.cache;
+
+import com.phuc.product.dto.response.ProductSummaryResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheRedisTest {
+
+    static final String ID = "65f1c0ffee0000000000beef";
+
+    static RedisServer redisServer;
+    static LettuceConnectionFactory connectionFactory;
+    static RedisTemplate<String, Object> redisTemplate;
+    static StringRedisTemplate redis;
+
+    final ProductCache cache = new ProductCache(redisTemplate, redis, new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(1), 1.0, Duration.ofMinutes(10));
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(RedisSerializer.json());
+        redisTemplate.setHashValueSerializer(RedisSerializer.json());
+        redisTemplate.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redis.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void loadedDocumentsExpireAndNeverReplaceAWrite() {
+        cache.getOrLoad(ID, id -> Product.builder().id(id)
+                .variants(List.of(ProductVariant.builder().variantId("v1").build())).build());
+
+        assertThat(redis.getExpire(ProductCache.key(ID))).isBetween(1L, 600L);
+        assertThat(redis.getExpire(ProductCache.variantsKey(ID))).isBetween(1L, 600L);
+
+        String other = "65f1c0ffee0000000000cafe";
+        redisTemplate.opsForValue().set(ProductCache.key(other), Product.builder().id(other).name("written").build());
+        ProductCache replica = new ProductCache(redisTemplate, redis, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), 1.0, Duration.ofMinutes(10));
+
+        assertThat(replica.getOrLoad(other, id -> Product.builder().id(id).name("loaded").build()).getName())
+                .isEqualTo("written");
+        assertThat(redis.getExpire(ProductCache.key(other))).isEqualTo(-1L);
+    }
+
+    @Test
+    void variantHashCreatedFromAReadExpires() {
+        cache.putRemoteVariant(ID, ProductVariant.builder().variantId("v1").price(10).build());
+
+        assertThat(cache.getRemoteVariant(ID, "v1")).get().extracting(ProductVariant::getPrice).isEqualTo(10.0);
+        assertThat(redis.getExpire(ProductCache.variantsKey(ID))).isBetween(1L, 600L);
+    }
+
+    @Test
+    void variantFromAReadNeitherOverwritesNorExpiresAWrittenHash() {
+        redisTemplate.opsForHash().putAll(ProductCache.variantsKey(ID),
+                Map.of("v1", ProductVariant.builder().variantId("v1").price(12).build()));
+
+        cache.putRemoteVariant(ID, ProductVariant.builder().variantId("v1").price(10).build());
+        cache.putRemoteVariant(ID, ProductVariant.builder().variantId("v2").price(20).build());
+
+        assertThat(cache.getRemoteVariant(ID, "v1")).get().extracting(ProductVariant::getPrice).isEqualTo(12.0);
+        assertThat(cache.getRemoteVariant(ID, "v2")).get().extracting(ProductVariant::getPrice).isEqualTo(20.0);
+        assertThat(redis.getExpire(ProductCache.variantsKey(ID))).isEqualTo(-1L);
+    }
+
+    @Test
+    void summaryFillsExpireAndRefillAfterEviction() {
+        cache.putSummary(ProductSummaryResponse.builder().id(ID).name("first").build());
+        cache.putSummary(ProductSummaryResponse.builder().id(ID).name("second").build());
+
+        assertThat(cache.getSummary(ID)).get().extracting(ProductSummaryResponse::getName).isEqualTo("first");
+        assertThat(redis.getExpire(ProductCache.summaryKey(ID))).isBetween(1L, 600L);
+
+        cache.evict(ID);
+
+        assertThat(cache.getSummary(ID)).isEmpty();
+        cache.putSummary(ProductSummaryResponse.builder().id(ID).name("second").build());
+        assertThat(cache.getSummary(ID)).get().extracting(ProductSummaryResponse::getName).isEqualTo("second");
+    }
+}
@@ -0,0 +1,177 @@
+package com.phuc.product.cache;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductCacheTest {
+
+    static final String ID = "65f1c0ffee0000000000beef";
+    static final int CALLERS = 64;
+
+    @SuppressWarnings("unchecked")
+    final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    final ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+    final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final ProductCache cache;
+
+    ProductCacheTest() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(null);
+        cache = new ProductCache(redisTemplate, stringRedisTemplate, meterRegistry,
+                100, Duration.ofMinutes(1), 1.0, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void coalescesConcurrentMissesIntoOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Product> slowLoader = id -> {
+            loads.incrementAndGet();
+            sleep(200);
+            return Product.builder().id(id).name("Hot product").build();
+        };
+
+        List<Product> results = callConcurrently(() -> cache.getOrLoad(ID, slowLoader));
+
+        assertThat(loads).hasValue(1);
+        assertThat(results).hasSize(CALLERS).allSatisfy(product -> assertThat(product.getId()).isEqualTo(ID));
+        assertThat(meterRegistry.counter("product.cache.loads", "mode", "coalesced").count())
+                .isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void sharesLoaderFailureAndRetriesAfterward() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        // Fails only once every other caller is waiting on this load.
+        Function<String, Product> failingLoader = id -> {
+            loads.incrementAndGet();
+            while (meterRegistry.counter("product.cache.loads", "mode", "coalesced").count() < 7) {
+                sleep(5);
+            }
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        };
+
+        List<Throwable> failures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.getOrLoad(ID, failingLoader)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception ex) {
+                    failures.add(ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(failures).hasSize(8).allSatisfy(ex -> assertThat(ex).isInstanceOf(AppException.class));
+        assertThat(loads).hasValue(1);
+
+        Product product = cache.getOrLoad(ID, id -> Product.builder().id(id).build());
+        assertThat(product.getId()).isEqualTo(ID);
+        assertThatThrownBy(() -> cache.getOrLoad(null, failingLoader)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void evictionDuringLoadDoesNotRepopulateLocalCache() {
+        cache.getOrLoad(ID, id -> {
+            cache.evict(id);
+            return Product.builder().id(id).name("stale").build();
+        });
+
+        assertThat(cache.getLocal(ID)).isEmpty();
+    }
+
+    @Test
+    void findsVariantsThroughLocalIndexEvenAfterReorder() {
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            variants.add(ProductVariant.builder().variantId("v" + i).price(i).build());
+        }
+        Product product = cache.getOrLoad(ID, id -> Product.builder().id(id).variants(variants).build());
+
+        assertThat(cache.findVariant(product, "v150")).get().extracting(ProductVariant::getPrice).isEqualTo(150.0);
+        assertThat(cache.findVariant(product, "missing")).isEmpty();
+
+        Collections.reverse(variants);
+        assertThat(cache.findVariant(product, "v150")).get().extracting(ProductVariant::getPrice).isEqualTo(150.0);
+    }
+
+    @Test
+    void fillsFromReadsWithoutPublishingInvalidations() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(true));
+
+        cache.fill(List.of(Product.builder().id(ID).name("Looked up").build()));
+
+        assertThat(cache.getLocal(ID)).get().extracting(Product::getName).isEqualTo("Looked up");
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+        verify(redisTemplate, never()).delete(anyCollection());
+    }
+
+    private List<Product> callConcurrently(Callable<Product> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Product>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<Product> results = new ArrayList<>();
+            for (Future<Product> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.phuc.product.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InternalTokenAuthorizationManagerTest {
+
+    @Test
+    void trustsOnlyTheConfiguredToken() {
+        InternalTokenAuthorizationManager manager = new InternalTokenAuthorizationManager("s3cret");
+
+        assertThat(manager.isTrusted(request("s3cret"))).isTrue();
+        assertThat(manager.isTrusted(request("guess"))).isFalse();
+        assertThat(manager.isTrusted(request(null))).isFalse();
+    }
+
+    @Test
+    void deniesEveryoneWhenNoTokenIsConfigured() {
+        InternalTokenAuthorizationManager manager = new InternalTokenAuthorizationManager("");
+
+        assertThat(manager.isTrusted(request(""))).isFalse();
+        assertThat(manager.isTrusted(request(null))).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/reservations/order-1/confirm");
+        if (token != null) {
+            request.addHeader(InternalTokenAuthorizationManager.HEADER, token);
+        }
+        return request;
+    }
+}
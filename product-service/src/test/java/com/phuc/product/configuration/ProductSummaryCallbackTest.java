@@ -0,0 +1,41 @@
+package com.phuc.product.configuration;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSummaryCallbackTest {
+
+    final ProductSummaryCallback callback = new ProductSummaryCallback();
+
+    @Test
+    void derivesPriceRangeAndSalesFromTheVariantsOnSave() {
+        Product product = Product.builder()
+                .variants(List.of(
+                        ProductVariant.builder().variantId("v1").price(19.0).soldQuantity(3).build(),
+                        ProductVariant.builder().variantId("v2").price(7.5).soldQuantity(10).build(),
+                        ProductVariant.builder().variantId("v3").price(42.0).soldQuantity(0).build()))
+                .build();
+
+        callback.onBeforeConvert(product, "products");
+
+        assertThat(product.getMinPrice()).isEqualTo(7.5);
+        assertThat(product.getMaxPrice()).isEqualTo(42.0);
+        assertThat(product.getTotalSold()).isEqualTo(13);
+    }
+
+    @Test
+    void clearsTheSummaryWhenTheLastVariantIsGone() {
+        Product product = Product.builder().minPrice(5.0).maxPrice(9.0).totalSold(4).variants(List.of()).build();
+
+        callback.onBeforeConvert(product, "products");
+
+        assertThat(product.getMinPrice()).isNull();
+        assertThat(product.getMaxPrice()).isNull();
+        assertThat(product.getTotalSold()).isZero();
+    }
+}
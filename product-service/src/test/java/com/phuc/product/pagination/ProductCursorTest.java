@@ -0,0 +1,74 @@
+package com.phuc.product.pagination;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCursorTest {
+
+    static final String ID = "65f1c0ffee0000000000beef";
+
+    @Test
+    void roundTripsEverySortField() {
+        Product product = Product.builder()
+                .id(ID)
+                .name("Shirt | blue")
+                .minPrice(19.5)
+                .totalSold(42)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 10, 15, 30))
+                .build();
+
+        for (String field : ProductCursor.SORT_FIELDS) {
+            ProductCursor cursor = ProductCursor.after(product, field, Sort.Direction.DESC);
+
+            ProductCursor decoded = ProductCursor.decode(cursor.encode());
+
+            assertThat(decoded).isEqualTo(cursor);
+        }
+    }
+
+    @Test
+    void roundTripsMissingSortKey() {
+        Product product = Product.builder().id(ID).build();
+        ProductCursor cursor = ProductCursor.after(product, "minPrice", Sort.Direction.ASC);
+
+        assertThat(ProductCursor.decode(cursor.encode()).value()).isNull();
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        assertThatThrownBy(() -> ProductCursor.decode("not a cursor!"))
+                .isInstanceOf(AppException.class)
+                .extracting(ex -> ((AppException) ex).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    @Test
+    void rejectsUnsupportedSortField() {
+        assertThatThrownBy(() -> new ProductCursor("description", Sort.Direction.ASC, "x", ID))
+                .isInstanceOf(AppException.class)
+                .extracting(ex -> ((AppException) ex).getErrorCode())
+                .isEqualTo(ErrorCode.UNSUPPORTED_SORT_FIELD);
+    }
+
+    @Test
+    void ascendingCriteriaSeeksPastKeyThenId() {
+        Document criteria = new ProductCursor("totalSold", Sort.Direction.ASC, 7, ID).toCriteria().getCriteriaObject();
+
+        assertThat(criteria.getList("$or", Document.class)).isEqualTo(List.of(
+                new Document("totalSold", new Document("$gt", 7)),
+                new Document("$and", List.of(
+                        new Document("totalSold", 7),
+                        new Document("_id", new Document("$gt", ID))))));
+    }
+
+}
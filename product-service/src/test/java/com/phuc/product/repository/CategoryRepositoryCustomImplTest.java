@@ -0,0 +1,74 @@
+package com.phuc.product.repository;
+
+import com.phuc.product.entity.Category;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryRepositoryCustomImplTest {
+
+    final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    final CategoryRepositoryCustomImpl repository = new CategoryRepositoryCustomImpl(mongoTemplate);
+
+    @Test
+    void returnsTheIncrementedCategoryWithItsShop() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Category.class))).thenReturn(category("c1", "shop-a"));
+
+        assertThat(repository.incrementProductCount("c1", 1)).get()
+                .extracting(Category::getShopId).isEqualTo("shop-a");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(Category.class));
+        assertThat(query.getValue().getFieldsObject()).isEqualTo(new Document("shopId", 1));
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$inc", new Document("productCount", 1L)));
+    }
+
+    @Test
+    void returnsNothingForAnUnknownCategory() {
+        assertThat(repository.incrementProductCount("missing", 1)).isEmpty();
+    }
+
+    @Test
+    void returnsEveryCategoryTouchedByABulkIncrement() {
+        BulkOperations bulk = mock(BulkOperations.class, RETURNS_SELF);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Category.class)).thenReturn(bulk);
+        when(bulk.updateOne(anyList())).thenReturn(bulk);
+        when(mongoTemplate.find(any(Query.class), eq(Category.class)))
+                .thenReturn(List.of(category("c1", "shop-a"), category("c2", "shop-b")));
+
+        assertThat(repository.incrementProductCounts(Map.of("c1", 2L, "c2", 1L)))
+                .extracting(Category::getId).containsExactly("c1", "c2");
+        verify(bulk).execute();
+    }
+
+    @Test
+    void skipsEmptyBulkIncrements() {
+        assertThat(repository.incrementProductCounts(Map.of())).isEmpty();
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Category.class));
+    }
+
+    private static Category category(String id, String shopId) {
+        return Category.builder().id(id).shopId(shopId).build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.phuc.product.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.phuc.product.entity.Product;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductRepositoryCustomImplTest {
+
+    final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    final ProductRepositoryCustomImpl repository = new ProductRepositoryCustomImpl(mongoTemplate);
+
+    @Test
+    void decrementOnlyMatchesAVariantWithEnoughStock() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertThat(repository.decrementStock("p1", "v1", 3, true)).isTrue();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Product.class));
+
+        Document guard = query.getValue().getQueryObject();
+        assertThat(guard.get("_id")).isEqualTo("p1");
+        Document elemMatch = (Document) ((Document) guard.get("variants")).get("$elemMatch");
+        assertThat(elemMatch.get("variantId")).isEqualTo("v1");
+        assertThat(elemMatch.get("stock")).isEqualTo(new Document("$gte", 3));
+
+        Document inc = (Document) update.getValue().getUpdateObject().get("$inc");
+        assertThat(inc.get("variants.$[v].stock")).isEqualTo(-3);
+        assertThat(inc.get("variants.$[v].soldQuantity")).isEqualTo(3);
+        assertThat(inc.get("totalSold")).isEqualTo(3);
+        assertThat(update.getValue().getArrayFilters())
+                .singleElement()
+                .satisfies(filter -> assertThat(filter.asDocument()).isEqualTo(new Document("v.variantId", "v1")));
+    }
+
+    @Test
+    void decrementWithoutASaleLeavesSoldCountersAlone() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        repository.decrementStock("p1", "v1", 2, false);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Product.class));
+        assertThat((Document) update.getValue().getUpdateObject().get("$inc"))
+                .containsOnlyKeys("variants.$[v].stock");
+    }
+
+    @Test
+    void decrementReportsFalseWhenNoDocumentMatched() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(repository.decrementStock("p1", "v1", 99, true)).isFalse();
+    }
+}
@@ -0,0 +1,157 @@
+package com.phuc.product.search;
+
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.upsert(product("p1", "shop-a", "shirts", "Áo thun cotton", "Soft cotton tee", "Red"));
+        index.upsert(product("p2", "shop-a", "shirts", "Linen shirt", "Breathable shirt for summer", "Blue"));
+        index.upsert(product("p3", "shop-b", "pants", "Cotton chinos", "Slim fit", "Beige"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        index.upsert(product("p4", "shop-b", "pants", "Denim jeans", "Washed cotton blend", "Indigo"));
+
+        SearchResult result = index.search("cotton", null, null, 0, 10);
+
+        assertThat(result.total()).isEqualTo(3);
+        List<String> ranked = result.hits().stream().map(SearchHit::productId).toList();
+        assertThat(ranked.subList(0, 2)).containsExactlyInAnyOrder("p1", "p3");
+        assertThat(ranked.get(2)).isEqualTo("p4");
+        assertThat(result.hits().get(1).score()).isGreaterThan(result.hits().get(2).score());
+        assertThat(result.categoryCounts()).isEqualTo(Map.of("shirts", 1L, "pants", 2L));
+        assertThat(result.shopCounts()).isEqualTo(Map.of("shop-a", 1L, "shop-b", 2L));
+    }
+
+    @Test
+    void matchesWithoutDiacriticsAndByPrefix() {
+        assertThat(index.search("ao", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p1");
+        assertThat(index.search("chi", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p3");
+    }
+
+    @Test
+    void matchesVariantAttributesAndAppliesFilters() {
+        assertThat(index.search("blue", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p2");
+        assertThat(index.search("cotton", "pants", null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p3");
+        assertThat(index.search("cotton", null, "shop-c", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        index.upsert(product("p2", "shop-a", "shirts", "Cotton shirt", "Breathable", "Blue"));
+        index.remove("p3");
+
+        SearchResult result = index.search("cotton", null, null, 0, 10);
+
+        assertThat(result.hits()).extracting(SearchHit::productId).containsExactlyInAnyOrder("p1", "p2");
+        assertThat(index.search("linen", null, null, 0, 10).total()).isZero();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void reusesFreedSlotsWithoutStaleMatches() {
+        index.remove("p3");
+        index.upsert(product("p5", "shop-b", "scarves", "Wool scarf", "Warm", "Grey"));
+        for (int i = 0; i < 10; i++) {
+            index.upsert(product("p2", "shop-a", "shirts", "Linen shirt " + i, "Breathable", "Blue"));
+        }
+
+        assertThat(index.documents).hasSize(3);
+        assertThat(index.search("cotton", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p1");
+        assertThat(index.search("linen", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p2");
+        assertThat(index.search("wool", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p5");
+    }
+
+    @Test
+    void keepsPostingsConsistentWhileRemovingInAnyOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add("t" + i);
+            index.upsert(product("t" + i, "shop-c", "tees", "Cotton tee sku" + i, "Plain", "White"));
+        }
+        Collections.shuffle(ids, new Random(7));
+        List<String> removed = ids.subList(0, 25);
+        removed.forEach(index::remove);
+
+        for (String id : ids) {
+            // "sku1" also prefix-matches sku10..sku19, which rank below the exact match.
+            List<String> bySku = index.search("sku" + id.substring(1), null, null, 0, 50).hits().stream()
+                    .map(SearchHit::productId).toList();
+            if (removed.contains(id)) {
+                assertThat(bySku).doesNotContain(id);
+            } else {
+                assertThat(bySku).first().isEqualTo(id);
+            }
+        }
+        assertThat(index.search("white", null, null, 0, 50).total()).isEqualTo(15);
+        assertThat(index.postings.get("white").size).isEqualTo(15);
+    }
+
+    @Test
+    void bulkLoadSkipsProductsRemovedSinceItBegan() {
+        index.beginLoad();
+        index.remove("p3");
+        index.load(product("p3", "shop-b", "pants", "Cotton chinos", "Slim fit", "Beige"));
+        index.upsert(product("p6", "shop-b", "pants", "Cargo pants", "Roomy", "Olive"));
+        index.remove("p6");
+        index.upsert(product("p6", "shop-b", "pants", "Cargo pants", "Roomy", "Olive"));
+        index.load(product("p6", "shop-b", "pants", "Cargo pants", "Roomy", "Olive"));
+        index.endLoad();
+
+        assertThat(index.search("chinos", null, null, 0, 10).total()).isZero();
+        assertThat(index.search("cargo", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p6");
+
+        index.upsert(product("p3", "shop-b", "pants", "Cotton chinos", "Slim fit", "Beige"));
+        assertThat(index.search("chinos", null, null, 0, 10).hits())
+                .extracting(SearchHit::productId).containsExactly("p3");
+    }
+
+    @Test
+    void pagesThroughRankedHits() {
+        SearchResult firstPage = index.search("cotton", null, null, 0, 1);
+        SearchResult secondPage = index.search("cotton", null, null, 1, 1);
+
+        assertThat(firstPage.total()).isEqualTo(2);
+        assertThat(firstPage.hits()).hasSize(1);
+        assertThat(secondPage.hits()).hasSize(1);
+        assertThat(firstPage.hits().get(0).score()).isGreaterThanOrEqualTo(secondPage.hits().get(0).score());
+        assertThat(firstPage.hits().get(0).productId()).isNotEqualTo(secondPage.hits().get(0).productId());
+    }
+
+    private Product product(String id, String shopId, String categoryId, String name, String description, String color) {
+        return Product.builder()
+                .id(id)
+                .shopId(shopId)
+                .categoryId(categoryId)
+                .name(name)
+                .description(description)
+                .variants(List.of(ProductVariant.builder().attributes(Map.of("color", color)).build()))
+                .build();
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.request.CategoryCreationRequest;
+import com.phuc.product.dto.request.CategoryUpdateRequest;
+import com.phuc.product.entity.Category;
+import com.phuc.product.httpclient.ShopClient;
+import com.phuc.product.httpclient.response.ShopResponse;
+import com.phuc.product.mapper.CategoryMapperImpl;
+import com.phuc.product.repository.CategoryRepository;
+import com.phuc.product.service.CategoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryServiceImplTest {
+
+    final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    final ShopClient shopClient = mock(ShopClient.class);
+    final CacheManager cacheManager = new ConcurrentMapCacheManager("categories", "categoryById", "categoriesByShop");
+    final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    CategoryService service;
+
+    @BeforeEach
+    void setUp() {
+        context.register(CachingConfig.class);
+        context.registerBean(CacheManager.class, () -> cacheManager);
+        context.registerBean(CategoryServiceImpl.class,
+                () -> new CategoryServiceImpl(categoryRepository, new CategoryMapperImpl(), shopClient, cacheManager));
+        context.refresh();
+        service = context.getBean(CategoryService.class);
+
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").claim("email", "owner@shop.test").build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+        when(shopClient.getShopByOwnerEmail("owner@shop.test"))
+                .thenReturn(ApiResponse.<ShopResponse>builder().result(ShopResponse.builder().id("shop-a").build()).build());
+
+        cacheManager.getCache("categoryById").put("c1", "cached");
+        cacheManager.getCache("categoryById").put("c2", "cached");
+        cacheManager.getCache("categoriesByShop").put("shop-a", "cached");
+        cacheManager.getCache("categoriesByShop").put("shop-b", "cached");
+        cacheManager.getCache("categories").put("all", "cached");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Test
+    void createEvictsOnlyTheOwningShopsLists() {
+        when(categoryRepository.save(any(Category.class))).thenAnswer(call -> {
+            Category category = call.getArgument(0);
+            category.setId("c3");
+            return category;
+        });
+
+        service.createCategory(CategoryCreationRequest.builder().name("Hats").build());
+
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-a")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-b")).isNotNull();
+        assertThat(cacheManager.getCache("categories").get("all")).isNull();
+        assertThat(cacheManager.getCache("categoryById").get("c1")).isNotNull();
+    }
+
+    @Test
+    void updateRefreshesItsOwnEntryAndLeavesOtherCategoriesCached() {
+        when(categoryRepository.findById("c1"))
+                .thenReturn(Optional.of(Category.builder().id("c1").shopId("shop-a").name("Old").build()));
+        when(categoryRepository.save(any(Category.class))).thenAnswer(call -> call.getArgument(0));
+
+        service.updateCategory("c1", CategoryUpdateRequest.builder().name("New").build());
+
+        assertThat(cacheManager.getCache("categoryById").get("c1").get())
+                .hasFieldOrPropertyWithValue("name", "New");
+        assertThat(cacheManager.getCache("categoryById").get("c2")).isNotNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-a")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-b")).isNotNull();
+        assertThat(cacheManager.getCache("categories").get("all")).isNull();
+    }
+
+    @Test
+    void deleteEvictsTheCategoryAndItsShopsLists() {
+        when(categoryRepository.findById("c1"))
+                .thenReturn(Optional.of(Category.builder().id("c1").shopId("shop-a").build()));
+
+        service.deleteCategory("c1");
+
+        assertThat(cacheManager.getCache("categoryById").get("c1")).isNull();
+        assertThat(cacheManager.getCache("categoryById").get("c2")).isNotNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-a")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-b")).isNotNull();
+    }
+
+    @Test
+    void productCountChangesEvictTheAdjustedCategory() {
+        when(categoryRepository.incrementProductCount("c1", 1))
+                .thenReturn(Optional.of(Category.builder().id("c1").shopId("shop-a").build()));
+
+        service.adjustProductCount("c1", 1);
+
+        assertThat(cacheManager.getCache("categoryById").get("c1")).isNull();
+        assertThat(cacheManager.getCache("categoryById").get("c2")).isNotNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-a")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-b")).isNotNull();
+        assertThat(cacheManager.getCache("categories").get("all")).isNull();
+    }
+
+    @Test
+    void bulkProductCountChangesEvictEveryAdjustedCategory() {
+        when(categoryRepository.incrementProductCounts(Map.of("c1", 2L, "c2", 1L))).thenReturn(List.of(
+                Category.builder().id("c1").shopId("shop-a").build(),
+                Category.builder().id("c2").shopId("shop-a").build()));
+
+        service.adjustProductCounts(Map.of("c1", 2L, "c2", 1L));
+
+        assertThat(cacheManager.getCache("categoryById").get("c1")).isNull();
+        assertThat(cacheManager.getCache("categoryById").get("c2")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-a")).isNull();
+        assertThat(cacheManager.getCache("categoriesByShop").get("shop-b")).isNotNull();
+        assertThat(cacheManager.getCache("categories").get("all")).isNull();
+    }
+
+    @Test
+    void concurrentMissesLoadACategoryOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        when(categoryRepository.findById("c9")).thenAnswer(call -> {
+            loads.incrementAndGet();
+            Thread.sleep(100);
+            return Optional.of(Category.builder().id("c9").shopId("shop-a").name("Socks").build());
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Object>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> service.getCategoryById("c9"));
+            }
+            for (Future<Object> result : pool.invokeAll(calls)) {
+                assertThat(result.get()).hasFieldOrPropertyWithValue("name", "Socks");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        verify(categoryRepository, times(1)).findById("c9");
+    }
+
+    @Configuration
+    @EnableCaching
+    static class CachingConfig {
+    }
+}
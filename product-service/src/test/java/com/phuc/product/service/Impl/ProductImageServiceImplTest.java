@@ -0,0 +1,117 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.httpclient.FileClient;
+import com.phuc.product.httpclient.response.FileResponse;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.upload.ImageUploadBatch;
+import com.phuc.product.upload.SpooledMultipartFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductImageServiceImplTest {
+
+    static final String PRODUCT = "p1";
+    static final String AUTHORIZATION = "Bearer owner-token";
+
+    final FileClient fileClient = mock(FileClient.class);
+    final ProductRepository productRepository = mock(ProductRepository.class);
+    final ProductCache productCache = mock(ProductCache.class);
+
+    ProductImageServiceImplTest() {
+        when(productRepository.completeImageSlot(anyString(), anyString(), anyInt(), any())).thenReturn(true);
+    }
+
+    @Test
+    void patchesEverySlotWithItsUploadedUrl() throws Exception {
+        ProductImageServiceImpl service = new ProductImageServiceImpl(fileClient, productRepository, productCache, 8);
+        when(fileClient.uploadFile(eq(AUTHORIZATION), any(MultipartFile.class)))
+                .thenAnswer(call -> uploaded(call.<MultipartFile>getArgument(1)));
+        ImageUploadBatch batch = batch(3);
+
+        service.upload(PRODUCT, batch);
+        service.shutdown();
+
+        for (int slot = 0; slot < 3; slot++) {
+            verify(productRepository).completeImageSlot(PRODUCT, batch.id(), slot, "https://cdn.test/img" + slot + ".png");
+            verify(batch.files().get(slot)).delete();
+        }
+        verify(productCache, times(3)).evict(PRODUCT);
+    }
+
+    @Test
+    void clearsTheSlotOfAFailedUploadAndStillPatchesTheOthers() throws Exception {
+        ProductImageServiceImpl service = new ProductImageServiceImpl(fileClient, productRepository, productCache, 8);
+        when(fileClient.uploadFile(eq(AUTHORIZATION), any(MultipartFile.class))).thenAnswer(call -> {
+            MultipartFile file = call.getArgument(1);
+            if ("img1.png".equals(file.getOriginalFilename())) {
+                throw new IllegalStateException("file-service down");
+            }
+            return uploaded(file);
+        });
+        ImageUploadBatch batch = batch(3);
+
+        service.upload(PRODUCT, batch);
+        service.shutdown();
+
+        verify(productRepository).completeImageSlot(PRODUCT, batch.id(), 0, "https://cdn.test/img0.png");
+        verify(productRepository).completeImageSlot(eq(PRODUCT), eq(batch.id()), eq(1), isNull());
+        verify(productRepository).completeImageSlot(PRODUCT, batch.id(), 2, "https://cdn.test/img2.png");
+        verify(batch.files().get(1)).delete();
+    }
+
+    @Test
+    void boundsConcurrentUploads() throws Exception {
+        ProductImageServiceImpl service = new ProductImageServiceImpl(fileClient, productRepository, productCache, 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(fileClient.uploadFile(eq(AUTHORIZATION), any(MultipartFile.class))).thenAnswer(call -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return uploaded(call.getArgument(1));
+        });
+        ImageUploadBatch batch = batch(8);
+
+        service.upload(PRODUCT, batch);
+        service.shutdown();
+
+        assertThat(peak.get()).isEqualTo(2);
+        verify(productRepository, times(8)).completeImageSlot(eq(PRODUCT), eq(batch.id()), anyInt(), anyString());
+    }
+
+    private static ImageUploadBatch batch(int size) {
+        List<SpooledMultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SpooledMultipartFile file = mock(SpooledMultipartFile.class);
+            when(file.getOriginalFilename()).thenReturn("img" + i + ".png");
+            files.add(file);
+        }
+        return new ImageUploadBatch("upload-1", AUTHORIZATION, files);
+    }
+
+    private static ApiResponse<FileResponse> uploaded(MultipartFile file) {
+        return ApiResponse.<FileResponse>builder()
+                .result(FileResponse.builder().url("https://cdn.test/" + file.getOriginalFilename()).build())
+                .build();
+    }
+}
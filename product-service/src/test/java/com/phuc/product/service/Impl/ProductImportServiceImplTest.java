@@ -0,0 +1,90 @@
+package com.phuc.product.service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.response.ProductImportErrorResponse;
+import com.phuc.product.dto.response.ProductImportResponse;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.httpclient.ShopClient;
+import com.phuc.product.httpclient.response.ShopResponse;
+import com.phuc.product.mapper.ProductMapper;
+import com.phuc.product.mapper.ProductVariantMapper;
+import com.phuc.product.repository.CategoryRepository;
+import com.phuc.product.service.CategoryService;
+import com.phuc.product.service.ProductSearchService;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductImportServiceImplTest {
+
+    static final String EMAIL = "seller@example.com";
+
+    final ShopClient shopClient = mock(ShopClient.class);
+    final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+
+    @BeforeEach
+    void authenticate() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").claim("email", EMAIL).build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+        when(shopClient.getShopByOwnerEmail(EMAIL)).thenReturn(ApiResponse.<ShopResponse>builder()
+                .result(ShopResponse.builder().id("shop-1").build())
+                .build());
+        when(categoryRepository.findAllById(any())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+        validatorFactory.close();
+    }
+
+    @Test
+    void stopsAtTheRowLimitWithOneError() throws Exception {
+        ProductImportResponse response = service(2).importJson(json("[{}, {}, {}, {}, {}]"));
+
+        assertThat(response.getTotal()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(3);
+        assertThat(response.getErrors()).extracting(ProductImportErrorResponse::getCode).containsExactly(
+                ErrorCode.CATEGORY_ID_IS_REQUIRED.name(),
+                ErrorCode.CATEGORY_ID_IS_REQUIRED.name(),
+                ErrorCode.IMPORT_ROW_LIMIT_EXCEEDED.name());
+    }
+
+    @Test
+    void returnsWhatWasReadWhenThePayloadBreaks() throws Exception {
+        ProductImportResponse response = service(10).importJson(json("[{}, {\"name\": }"));
+
+        assertThat(response.getTotal()).isEqualTo(2);
+        assertThat(response.getErrors()).extracting(ProductImportErrorResponse::getRow).containsExactly(1, 2);
+        assertThat(response.getErrors().get(1).getCode()).isEqualTo(ErrorCode.INVALID_REQUEST_FORMAT.name());
+    }
+
+    private ProductImportServiceImpl service(int maxRows) {
+        return new ProductImportServiceImpl(mock(MongoTemplate.class), categoryRepository, mock(CategoryService.class),
+                mock(ProductMapper.class), mock(ProductVariantMapper.class), mock(ProductCache.class),
+                mock(ProductSearchService.class), shopClient, new ObjectMapper(), validatorFactory.getValidator(),
+                500, maxRows);
+    }
+
+    private static ByteArrayInputStream json(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,29 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.mapper.ProductMapper;
+import com.phuc.product.repository.ProductRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ProductSearchServiceImplTest {
+
+    final ProductSearchServiceImpl service = new ProductSearchServiceImpl(mock(MongoTemplate.class),
+            mock(ProductRepository.class), mock(ProductCache.class), mock(ProductMapper.class));
+
+    @ParameterizedTest
+    @CsvSource({"-1, 10", "0, 0", "0, -5", "0, 101", "2147483647, 100"})
+    void rejectsInvalidPages(int page, int size) {
+        assertThatThrownBy(() -> service.search("shirt", null, null, page, size))
+                .isInstanceOfSatisfying(AppException.class,
+                        ex -> assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_PAGE_REQUEST));
+    }
+
+}
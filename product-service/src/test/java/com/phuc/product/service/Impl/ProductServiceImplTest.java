@@ -0,0 +1,247 @@
+package com.phuc.product.service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.request.ProductLookupItemRequest;
+import com.phuc.product.dto.response.ProductLookupResponse;
+import com.phuc.product.dto.response.ProductResponse;
+import com.phuc.product.dto.response.ProductSummaryResponse;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import com.phuc.product.enums.ProductSort;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.httpclient.ShopClient;
+import com.phuc.product.mapper.ProductMapper;
+import com.phuc.product.mapper.ProductVariantMapper;
+import com.phuc.product.repository.CategoryRepository;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.service.CategoryService;
+import com.phuc.product.service.ProductImageService;
+import com.phuc.product.service.ProductSearchService;
+import com.phuc.product.service.StockShardService;
+import com.phuc.product.dto.ApiResponse;
+import com.phuc.product.dto.request.ProductCreationRequest;
+import com.phuc.product.entity.Category;
+import com.phuc.product.httpclient.response.ShopResponse;
+import com.phuc.product.upload.ImageUploadBatch;
+import com.phuc.product.upload.SpooledMultipartFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.bson.Document;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductServiceImplTest {
+
+    final ProductRepository productRepository = mock(ProductRepository.class);
+    final ProductMapper productMapper = mock(ProductMapper.class);
+    final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    final ProductCache productCache = mock(ProductCache.class);
+    final ProductImageService productImageService = mock(ProductImageService.class);
+    final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    final ShopClient shopClient = mock(ShopClient.class);
+    @SuppressWarnings("unchecked")
+    final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    final ProductServiceImpl service = new ProductServiceImpl(productRepository, productMapper,
+            mock(ProductVariantMapper.class), categoryRepository, mock(CategoryService.class), shopClient, mongoTemplate, productCache,
+            mock(ProductSearchService.class), productImageService, mock(StockShardService.class),
+            redisTemplate, objectMapper);
+
+    @Test
+    void exportFlushesPerBatchRatherThanPerProduct() throws Exception {
+        int count = ProductServiceImpl.EXPORT_BATCH_SIZE + 1;
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenReturn(IntStream.range(0, count).mapToObj(i -> Product.builder().id("p" + i).build()));
+        when(productMapper.toProductResponse(any(Product.class)))
+                .thenAnswer(call -> ProductResponse.builder().id(call.<Product>getArgument(0).getId()).build());
+        FlushCountingStream out = new FlushCountingStream();
+
+        service.exportProducts("shop-1", out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).lines()).hasSize(count);
+        // One flush for the full batch and one when the generator closes.
+        assertThat(out.flushes).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lookupResolvesEveryPairFromOneBatchedRead() {
+        ProductVariant cachedVariant = ProductVariant.builder().variantId("v1").price(12.5).stock(4).build();
+        Product cached = Product.builder().id("p1").shopId("shop-1").name("Tee").variants(List.of(cachedVariant)).build();
+        Product loaded = Product.builder().id("p2").shopId("shop-2").name("Mug").variants(List.of()).build();
+        when(productCache.getAll(List.of("p1", "p2", "p3"))).thenReturn(Map.of("p1", cached));
+        when(productRepository.findAllById(any())).thenReturn(List.of(loaded));
+        when(productCache.findVariant(cached, "v1")).thenReturn(Optional.of(cachedVariant));
+
+        List<ProductLookupResponse> responses = service.lookupProducts(List.of(
+                lookup("p1", "v1"), lookup("p2", null), lookup("p3", "v1"), lookup("p1", "gone")));
+
+        assertThat(responses).extracting(ProductLookupResponse::getProductId, ProductLookupResponse::isExists)
+                .containsExactly(
+                        tuple("p1", true),
+                        tuple("p2", true),
+                        tuple("p3", false),
+                        tuple("p1", false));
+        assertThat(responses.get(0).getPrice()).isEqualTo(12.5);
+        assertThat(responses.get(0).getStock()).isEqualTo(4);
+        assertThat(responses.get(1).getShopId()).isEqualTo("shop-2");
+        assertThat(responses.get(1).getPrice()).isNull();
+        ArgumentCaptor<Iterable<String>> missing = ArgumentCaptor.forClass(Iterable.class);
+        verify(productRepository).findAllById(missing.capture());
+        assertThat(missing.getValue()).containsExactly("p2", "p3");
+        verify(productCache).fill(List.of(loaded));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listingFiltersAndSortsOnTheDenormalizedFields() {
+        ValueOperations<String, Object> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenReturn(42L);
+        when(productMapper.toProductResponses(anyList())).thenReturn(List.of());
+
+        Page<ProductResponse> page = service.getProducts("shop-1", null, 0, 20, "createdAt", "desc",
+                10.0, 50.0, ProductSort.BEST_SELLING);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Product.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("shopId", "shop-1")
+                .append("minPrice", new Document("$gte", 10.0).append("$lte", 50.0)));
+        assertThat(query.getValue().getSortObject()).isEqualTo(new Document("totalSold", -1));
+        assertThat(page.getTotalElements()).isEqualTo(42);
+        verify(values).set(ProductServiceImpl.PRODUCT_COUNT_CACHE_PREFIX + "shop-1:null:10.0:50.0", 42L,
+                ProductServiceImpl.PRODUCT_COUNT_CACHE_TTL);
+    }
+
+    @Test
+    void unfilteredListingUsesTheEstimatedCount() {
+        when(mongoTemplate.estimatedCount(Product.class)).thenReturn(1000L);
+        when(productMapper.toProductResponses(anyList())).thenReturn(List.of());
+
+        Page<ProductResponse> page = service.getProducts(null, null, 0, 20, "price", "asc",
+                null, null, ProductSort.DEFAULT);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Product.class));
+        assertThat(query.getValue().getSortObject()).isEqualTo(new Document("minPrice", 1));
+        assertThat(page.getTotalElements()).isEqualTo(1000);
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void summaryReadsServeCachedSummariesWithoutQuerying() {
+        ProductSummaryResponse cached = ProductSummaryResponse.builder().id("p1").name("cached").build();
+        when(productCache.getLocal("p1")).thenReturn(Optional.empty());
+        when(productCache.getSummary("p1")).thenReturn(Optional.of(cached));
+
+        assertThat(service.getProductSummary("p1")).isSameAs(cached);
+        verify(productRepository, never()).findSummaryById(anyString());
+        verify(productCache, never()).putSummary(any());
+    }
+
+    @Test
+    void summaryReadsFillTheCacheFromTheProjectionOnAMiss() {
+        Product projected = Product.builder().id("p1").name("loaded").build();
+        ProductSummaryResponse summary = ProductSummaryResponse.builder().id("p1").name("loaded").build();
+        when(productCache.getLocal("p1")).thenReturn(Optional.empty());
+        when(productCache.getSummary("p1")).thenReturn(Optional.empty());
+        when(productRepository.findSummaryById("p1")).thenReturn(Optional.of(projected));
+        when(productMapper.toProductSummaryResponse(projected)).thenReturn(summary);
+
+        assertThat(service.getProductSummary("p1")).isSameAs(summary);
+        verify(productCache).putSummary(summary);
+        verify(productRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void discardsStagedImagesWhenTheProductCannotBeSaved() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").claim("email", "owner@shop.test").build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+        when(shopClient.getShopByOwnerEmail("owner@shop.test"))
+                .thenReturn(ApiResponse.<ShopResponse>builder().result(ShopResponse.builder().id("shop-1").build()).build());
+        when(categoryRepository.findById("c1"))
+                .thenReturn(Optional.of(Category.builder().id("c1").shopId("shop-1").build()));
+        when(productMapper.toProduct(any(ProductCreationRequest.class))).thenReturn(new Product());
+        SpooledMultipartFile image = mock(SpooledMultipartFile.class);
+        when(productImageService.prepare(anyList())).thenReturn(new ImageUploadBatch("u1", null, List.of(image)));
+        when(productRepository.save(any(Product.class))).thenThrow(new DataAccessResourceFailureException("down"));
+        ProductCreationRequest request = ProductCreationRequest.builder().categoryId("c1").variants(List.of()).build();
+
+        try {
+            assertThatThrownBy(() -> service.createProduct(request, List.of(mock(MultipartFile.class))))
+                    .isInstanceOf(DataAccessResourceFailureException.class);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(image).delete();
+        verify(productImageService, never()).upload(anyString(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, 101, 10_000})
+    void rejectsCursorPagesOutsideTheAllowedSize(int size) {
+        assertThatThrownBy(() -> service.getProductsByCursor(null, null, null, size, "createdAt", "desc", null, null, ProductSort.NEWEST, false))
+                .isInstanceOfSatisfying(AppException.class,
+                        ex -> assertThat(ex.getErrorCode()).isEqualTo(ErrorCode.INVALID_PAGE_REQUEST));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void acceptsTheLargestCursorPage() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of());
+
+        service.getProductsByCursor(null, null, null, ProductServiceImpl.MAX_CURSOR_PAGE_SIZE, "createdAt", "desc",
+                null, null, ProductSort.NEWEST, false);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Product.class));
+        assertThat(query.getValue().getLimit()).isEqualTo(ProductServiceImpl.MAX_CURSOR_PAGE_SIZE + 1);
+    }
+
+    private static ProductLookupItemRequest lookup(String productId, String variantId) {
+        return ProductLookupItemRequest.builder().productId(productId).variantId(variantId).build();
+    }
+
+    static final class FlushCountingStream extends ByteArrayOutputStream {
+        int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.phuc.product.service.Impl;
+
+import com.mongodb.client.result.UpdateResult;
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.dto.request.ReservationItemRequest;
+import com.phuc.product.dto.request.ReservationRequest;
+import com.phuc.product.dto.response.ReservationResponse;
+import com.phuc.product.entity.Reservation;
+import com.phuc.product.entity.ReservationItem;
+import com.phuc.product.enums.ReservationStatus;
+import com.phuc.product.enums.StockShardResult;
+import com.phuc.product.exception.AppException;
+import com.phuc.product.exception.ErrorCode;
+import com.phuc.product.mapper.ReservationMapperImpl;
+import com.phuc.product.repository.ProductRepository;
+import com.phuc.product.repository.ReservationRepository;
+import com.phuc.product.service.StockShardService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceImplTest {
+
+    static final String REFERENCE = "5b0e8c0a-3f4e-4d38-9a55-0c2d1f6b7e21";
+
+    final ReservationRepository reservationRepository = mock(ReservationRepository.class);
+    final ProductRepository productRepository = mock(ProductRepository.class);
+    final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    final ProductCache productCache = mock(ProductCache.class);
+    final StockShardService stockShardService = mock(StockShardService.class);
+    final ReservationServiceImpl service = new ReservationServiceImpl(reservationRepository, productRepository,
+            mongoTemplate, productCache, stockShardService, new ReservationMapperImpl());
+
+    ReservationServiceImplTest() {
+        ReflectionTestUtils.setField(service, "reservationTtl", Duration.ofMinutes(15));
+        when(stockShardService.hold(anyString(), anyString(), anyInt())).thenReturn(StockShardResult.NOT_SHARDED);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Reservation.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @Test
+    void reserveHoldsEveryItem() {
+        when(productRepository.holdStock(anyString(), anyString(), anyInt())).thenReturn(true);
+
+        ReservationResponse response = service.reserve(request(item("p1", "v1", 2), item("p2", "v2", 1)));
+
+        assertThat(response.getReference()).isEqualTo(REFERENCE);
+        assertThat(response.getStatus()).isEqualTo(ReservationStatus.PENDING);
+        assertThat(response.getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(14));
+        verify(productRepository).holdStock("p1", "v1", 2);
+        verify(productRepository).holdStock("p2", "v2", 1);
+        verify(productCache).evict("p1");
+        verify(productCache).evict("p2");
+    }
+
+    @Test
+    void reserveReturnsEarlierHoldsWhenAnItemRunsOut() {
+        when(productRepository.holdStock("p1", "v1", 2)).thenReturn(true);
+        when(productRepository.holdStock("p2", "v2", 5)).thenReturn(false);
+        when(productRepository.existsById("p2")).thenReturn(true);
+        when(productRepository.existsVariant("p2", "v2")).thenReturn(true);
+        when(productRepository.releaseHeldStock(anyString(), anyString(), anyInt())).thenReturn(true);
+        stored(reservation(ReservationStatus.PENDING, held("p1", "v1", 2), reservationItem("p2", "v2", 5)));
+
+        assertThatThrownBy(() -> service.reserve(request(item("p1", "v1", 2), item("p2", "v2", 5))))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.INSUFFICIENT_STOCK));
+
+        verify(productRepository).releaseHeldStock("p1", "v1", 2);
+        verify(productRepository, never()).releaseHeldStock(eq("p2"), anyString(), anyInt());
+    }
+
+    @Test
+    void retriedReserveReturnsTheExistingReservation() {
+        when(mongoTemplate.insert(any(Reservation.class))).thenThrow(new DuplicateKeyException("dup"));
+        when(reservationRepository.findById(REFERENCE))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, held("p1", "v1", 2))));
+
+        ReservationResponse response = service.reserve(request(item("p1", "v1", 2)));
+
+        assertThat(response.getReference()).isEqualTo(REFERENCE);
+        verify(productRepository, never()).holdStock(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void rejectsADifferentReservationUnderAnExistingReference() {
+        when(mongoTemplate.insert(any(Reservation.class))).thenThrow(new DuplicateKeyException("dup"));
+        when(reservationRepository.findById(REFERENCE))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, held("p1", "v1", 2))));
+
+        assertThatThrownBy(() -> service.reserve(request(item("p1", "v1", 3))))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESERVATION_CONFLICT));
+        assertThatThrownBy(() -> service.reserve(request(item("p1", "v1", 2), item("p2", "v2", 1))))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESERVATION_CONFLICT));
+        verify(productRepository, never()).holdStock(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void confirmCommitsOnlyHeldItems() {
+        when(productRepository.commitHeldStock(anyString(), anyString(), anyInt())).thenReturn(true);
+        stored(reservation(ReservationStatus.PENDING, held("p1", "v1", 2), reservationItem("p2", "v2", 1)));
+
+        ReservationResponse response = service.confirm(REFERENCE);
+
+        assertThat(response.getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+        verify(productRepository).commitHeldStock("p1", "v1", 2);
+        verify(productRepository, never()).commitHeldStock(eq("p2"), anyString(), anyInt());
+    }
+
+    @Test
+    void confirmIsIdempotentButRefusesFinishedReservations() {
+        when(reservationRepository.findById(REFERENCE))
+                .thenReturn(Optional.of(reservation(ReservationStatus.CONFIRMED, held("p1", "v1", 2))));
+
+        assertThat(service.confirm(REFERENCE).getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+
+        when(reservationRepository.findById(REFERENCE))
+                .thenReturn(Optional.of(reservation(ReservationStatus.EXPIRED, held("p1", "v1", 2))));
+
+        assertThatThrownBy(() -> service.confirm(REFERENCE))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESERVATION_NOT_PENDING));
+        verify(productRepository, never()).commitHeldStock(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void confirmOfAnUnknownReferenceIsNotFound() {
+        when(reservationRepository.findById(REFERENCE)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.confirm(REFERENCE))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESERVATION_NOT_FOUND));
+    }
+
+    @Test
+    void releaseReturnsHeldStock() {
+        when(stockShardService.releaseHeld("p1", "v1", 2)).thenReturn(true);
+        when(productRepository.releaseHeldStock(anyString(), anyString(), anyInt())).thenReturn(true);
+        stored(reservation(ReservationStatus.PENDING, held("p1", "v1", 2), held("p2", "v2", 1)));
+
+        ReservationResponse response = service.release(REFERENCE);
+
+        assertThat(response.getStatus()).isEqualTo(ReservationStatus.RELEASED);
+        verify(productRepository, never()).releaseHeldStock(eq("p1"), anyString(), anyInt());
+        verify(productRepository).releaseHeldStock("p2", "v2", 1);
+        verify(productCache).evict("p2");
+    }
+
+    @Test
+    void expiryReturnsTheHoldsOfEveryLapsedReservation() {
+        when(productRepository.releaseHeldStock(anyString(), anyString(), anyInt())).thenReturn(true);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Reservation.class)))
+                .thenReturn(reservation(ReservationStatus.PENDING, held("p1", "v1", 2)),
+                        reservation(ReservationStatus.PENDING, held("p2", "v2", 1)),
+                        null);
+
+        assertThat(service.expireReservations()).isEqualTo(2);
+
+        verify(productRepository).releaseHeldStock("p1", "v1", 2);
+        verify(productRepository).releaseHeldStock("p2", "v2", 1);
+    }
+
+    private void stored(Reservation reservation) {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Reservation.class))).thenReturn(reservation);
+    }
+
+    private static ReservationRequest request(ReservationItemRequest... items) {
+        return ReservationRequest.builder().reference(REFERENCE).items(List.of(items)).build();
+    }
+
+    private static ReservationItemRequest item(String productId, String variantId, int quantity) {
+        return ReservationItemRequest.builder().productId(productId).variantId(variantId).quantity(quantity).build();
+    }
+
+    private static Reservation reservation(ReservationStatus status, ReservationItem... items) {
+        return Reservation.builder()
+                .id(REFERENCE)
+                .items(new ArrayList<>(List.of(items)))
+                .status(status)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(15))
+                .build();
+    }
+
+    private static ReservationItem held(String productId, String variantId, int quantity) {
+        ReservationItem item = reservationItem(productId, variantId, quantity);
+        item.setHeld(true);
+        return item;
+    }
+
+    private static ReservationItem reservationItem(String productId, String variantId, int quantity) {
+        return ReservationItem.builder().productId(productId).variantId(variantId).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,255 @@
+package com.phuc.product.service.Impl;
+
+import com.phuc.product.cache.ProductCache;
+import com.phuc.product.entity.Product;
+import com.phuc.product.entity.ProductVariant;
+import com.phuc.product.enums.StockShardResult;
+import com.phuc.product.repository.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockShardServiceImplTest {
+
+    static final String PRODUCT = "65f1c0ffee0000000000beef";
+    static final String VARIANT = "v1";
+
+    static RedisServer redisServer;
+    static LettuceConnectionFactory connectionFactory;
+    static StringRedisTemplate redis;
+
+    final ProductRepository productRepository = mock(ProductRepository.class);
+    final StockShardServiceImpl shards;
+
+    StockShardServiceImplTest() {
+        when(productRepository.applyStockDelta(any(), any(), anyLong(), anyLong(), anyLong())).thenReturn(true);
+        shards = new StockShardServiceImpl(redis, productRepository, mock(ProductCache.class));
+    }
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redis.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void takesAcrossShardsOrNothing() {
+        enable(10, 4);
+
+        assertThat(shards.decrement(PRODUCT, VARIANT, 7, true)).isEqualTo(StockShardResult.TAKEN);
+        assertThat(shards.decrement(PRODUCT, VARIANT, 4, true)).isEqualTo(StockShardResult.INSUFFICIENT);
+
+        assertThat(shards.getAvailable(PRODUCT, VARIANT)).isEqualTo(3);
+        assertThat(pending("sold")).isEqualTo(7);
+    }
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        enable(100, 8);
+
+        List<StockShardResult> results = callConcurrently(32, 10,
+                () -> shards.hold(PRODUCT, VARIANT, 1));
+
+        assertThat(results).filteredOn(StockShardResult.TAKEN::equals).hasSize(100);
+        assertThat(shards.getAvailable(PRODUCT, VARIANT)).isZero();
+        assertThat(pending("reserved")).isEqualTo(100);
+    }
+
+    @Test
+    void disableDrainsShardsAndPendingCounters() {
+        enable(10, 4);
+        shards.hold(PRODUCT, VARIANT, 3);
+        shards.decrement(PRODUCT, VARIANT, 2, true);
+
+        shards.disable(PRODUCT, VARIANT);
+
+        verify(productRepository).applyStockDelta(PRODUCT, VARIANT, -5, 3, 2);
+        assertThat(redis.keys("stock-shards:*")).isEmpty();
+        assertThat(shards.hold(PRODUCT, VARIANT, 1)).isEqualTo(StockShardResult.NOT_SHARDED);
+        assertThat(shards.commitHeld(PRODUCT, VARIANT, 1)).isFalse();
+        assertThat(shards.releaseHeld(PRODUCT, VARIANT, 1)).isFalse();
+        assertThat(shards.increment(PRODUCT, VARIANT, 1)).isFalse();
+        assertThat(redis.keys("stock-shards:*")).isEmpty();
+    }
+
+    @Test
+    void disablePutsEverythingBackWhenTheWriteFails() {
+        enable(10, 4);
+        shards.hold(PRODUCT, VARIANT, 3);
+        when(productRepository.applyStockDelta(PRODUCT, VARIANT, -3, 3, 0))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(true);
+
+        assertThatThrownBy(() -> shards.disable(PRODUCT, VARIANT))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(shards.isSharded(PRODUCT, VARIANT)).isTrue();
+        assertThat(shards.getAvailable(PRODUCT, VARIANT)).isEqualTo(7);
+        assertThat(pending("reserved")).isEqualTo(3);
+
+        shards.disable(PRODUCT, VARIANT);
+
+        verify(productRepository, times(2)).applyStockDelta(PRODUCT, VARIANT, -3, 3, 0);
+        assertThat(redis.keys("stock-shards:*")).isEmpty();
+    }
+
+    @Test
+    void reconcileAppliesEachDeltaOnce() {
+        enable(10, 4);
+        shards.decrement(PRODUCT, VARIANT, 3, true);
+        shards.hold(PRODUCT, VARIANT, 2);
+        shards.commitHeld(PRODUCT, VARIANT, 2);
+
+        shards.reconcile();
+        shards.reconcile();
+
+        verify(productRepository, times(1)).applyStockDelta(PRODUCT, VARIANT, -5, 0, 5);
+        verify(productRepository, times(1)).applyStockDelta(any(), any(), anyLong(), anyLong(), anyLong());
+        assertThat(pending("sold")).isZero();
+    }
+
+    @Test
+    void reconcileGivesDeltasBackWhenTheWriteFails() {
+        enable(10, 4);
+        shards.decrement(PRODUCT, VARIANT, 3, true);
+        when(productRepository.applyStockDelta(PRODUCT, VARIANT, -3, 0, 3))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(true);
+
+        shards.reconcile();
+        assertThat(pending("sold")).isEqualTo(3);
+        shards.reconcile();
+        shards.reconcile();
+
+        verify(productRepository, times(2)).applyStockDelta(PRODUCT, VARIANT, -3, 0, 3);
+        verify(productRepository, times(2)).applyStockDelta(any(), any(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void releasedHoldsReturnToTheShards() {
+        enable(5, 2);
+        shards.hold(PRODUCT, VARIANT, 5);
+
+        assertThat(shards.releaseHeld(PRODUCT, VARIANT, 2)).isTrue();
+
+        assertThat(shards.getAvailable(PRODUCT, VARIANT)).isEqualTo(2);
+        assertThat(pending("reserved")).isEqualTo(3);
+    }
+
+    @Test
+    void saveKeepsTheStoredCountersOfShardedVariants() {
+        enable(10, 2);
+        Product edited = product(10);
+        edited.getVariants().getFirst().setPrice(42);
+        Product stored = product(7);
+        stored.getVariants().getFirst().setSoldQuantity(3);
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.of(stored));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Product saved = shards.save(edited);
+
+        ProductVariant variant = saved.getVariants().getFirst();
+        assertThat(variant.getPrice()).isEqualTo(42);
+        assertThat(variant.getStock()).isEqualTo(7);
+        assertThat(variant.getSoldQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void saveLeavesUnshardedProductsAlone() {
+        Product edited = product(10);
+        when(productRepository.save(edited)).thenReturn(edited);
+
+        assertThat(shards.save(edited)).isSameAs(edited);
+        verify(productRepository, never()).findById(eq(PRODUCT));
+    }
+
+    private void enable(int stock, int count) {
+        when(productRepository.findWithVariant(PRODUCT, VARIANT)).thenReturn(Optional.of(product(stock)));
+        shards.enable(PRODUCT, VARIANT, count);
+    }
+
+    private long pending(String counter) {
+        String value = redis.opsForValue().get("stock-shards:" + PRODUCT + ":" + VARIANT + ":" + counter);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static Product product(int stock) {
+        ProductVariant variant = ProductVariant.builder().variantId(VARIANT).price(10).stock(stock).build();
+        return Product.builder().id(PRODUCT).variants(new ArrayList<>(List.of(variant))).build();
+    }
+
+    private static <T> List<T> callConcurrently(int callers, int callsEach, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<T> results = new ArrayList<>();
+                    for (int call = 0; call < callsEach; call++) {
+                        results.add(task.call());
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,10 +2,16 @@ package com.phuc.promotion.httpclient;
 
 import com.phuc.promotion.configuration.AuthenticationRequestInterceptor;
 import com.phuc.promotion.dto.ApiResponse;
+import com.phuc.promotion.httpclient.request.ProductLookupRequest;
+import com.phuc.promotion.httpclient.response.ProductLookupResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 
 @FeignClient(name = "product-service", url = "${product.service.url}", configuration = AuthenticationRequestInterceptor.class)
@@ -17,5 +23,8 @@ public interface ProductClient {
     @GetMapping(value = "/{productId}/shopId", produces = MediaType.APPLICATION_JSON_VALUE)
     ApiResponse<String> getShopIdByProductId(@PathVariable("productId") String productId);
 
+    @PostMapping(value = "/products/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<List<ProductLookupResponse>> lookupProducts(@RequestBody ProductLookupRequest request);
+
 }
 
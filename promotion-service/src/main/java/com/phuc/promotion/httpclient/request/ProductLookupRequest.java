@@ -0,0 +1,17 @@
+package com.phuc.promotion.httpclient.request;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductLookupRequest {
+
+    List<ProductLookupItemRequest> items;
+
+}
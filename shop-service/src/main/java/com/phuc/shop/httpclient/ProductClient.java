@@ -2,11 +2,15 @@ package com.phuc.shop.httpclient;
 
 import com.phuc.shop.configuration.AuthenticationRequestInterceptor;
 import com.phuc.shop.dto.ApiResponse;
+import com.phuc.shop.httpclient.request.ProductLookupRequest;
+import com.phuc.shop.httpclient.response.ProductLookupResponse;
 import com.phuc.shop.httpclient.response.ProductResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.List;
 
@@ -25,4 +29,7 @@ public interface ProductClient {
     @GetMapping(value = "/product/{productId}/price/{variantId}", produces = MediaType.APPLICATION_JSON_VALUE)
     ApiResponse<Double> getProductPriceById(@PathVariable("productId") String productId, @PathVariable("variantId") String variantId);
 
+    @PostMapping(value = "/product/products/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<List<ProductLookupResponse>> lookupProducts(@RequestBody ProductLookupRequest request);
+
 }
\ No newline at end of file
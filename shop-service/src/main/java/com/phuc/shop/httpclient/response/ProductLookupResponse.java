@@ -0,0 +1,21 @@
+package com.phuc.shop.httpclient.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductLookupResponse {
+
+    String productId;
+    String variantId;
+    boolean exists;
+    String shopId;
+    String name;
+    Double price;
+    Integer stock;
+
+}